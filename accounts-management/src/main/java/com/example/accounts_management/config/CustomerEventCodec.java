@@ -0,0 +1,180 @@
+package com.example.accounts_management.config;
+
+import com.example.accounts_management.model.CustomerEvent;
+import com.example.accounts_management.model.CustomerEventType;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Binary encoding of {@link CustomerEvent}.
+ *
+ * <p>A payload starts with a format version byte followed by tagged fields. Each tag is a
+ * varint holding the field number and the wire type ({@code 0} varint, {@code 2} length
+ * prefixed bytes), so readers skip fields they do not know and new fields can be added without
+ * breaking older consumers. Field numbers must never be reused:
+ * <ol>
+ *     <li>type code</li>
+ *     <li>customer id</li>
+ *     <li>version</li>
+ *     <li>event time, epoch milliseconds</li>
+ *     <li>customer name, UTF-8</li>
+ * </ol>
+ * The format version only changes for incompatible layouts. It can never be {@code '{'}, which
+ * is how the JSON events published before this format are told apart.
+ */
+public final class CustomerEventCodec {
+
+    public static final byte FORMAT_VERSION = 1;
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_BYTES = 2;
+
+    private static final int FIELD_TYPE = 1;
+    private static final int FIELD_CUSTOMER_ID = 2;
+    private static final int FIELD_VERSION = 3;
+    private static final int FIELD_EVENT_TIME = 4;
+    private static final int FIELD_CUSTOMER_NAME = 5;
+
+    private CustomerEventCodec() {
+    }
+
+    public static byte[] encode(CustomerEvent event) {
+        byte[] name = event.getCustomerName() == null ? null : event.getCustomerName().getBytes(StandardCharsets.UTF_8);
+
+        int size = 1;
+        size += fieldSize(FIELD_TYPE, event.getType() == null ? null : (long) event.getType().getCode());
+        size += fieldSize(FIELD_CUSTOMER_ID, event.getCustomerId());
+        size += fieldSize(FIELD_VERSION, event.getVersion());
+        size += fieldSize(FIELD_EVENT_TIME, event.getEventTime() == null ? null : event.getEventTime().toEpochMilli());
+        if (name != null) {
+            size += varintSize(tag(FIELD_CUSTOMER_NAME, WIRE_BYTES)) + varintSize(name.length) + name.length;
+        }
+
+        Writer writer = new Writer(new byte[size]);
+        writer.buffer[writer.position++] = FORMAT_VERSION;
+        if (event.getType() != null) {
+            writer.writeField(FIELD_TYPE, event.getType().getCode());
+        }
+        if (event.getCustomerId() != null) {
+            writer.writeField(FIELD_CUSTOMER_ID, event.getCustomerId());
+        }
+        if (event.getVersion() != null) {
+            writer.writeField(FIELD_VERSION, event.getVersion());
+        }
+        if (event.getEventTime() != null) {
+            writer.writeField(FIELD_EVENT_TIME, event.getEventTime().toEpochMilli());
+        }
+        if (name != null) {
+            writer.writeVarint(tag(FIELD_CUSTOMER_NAME, WIRE_BYTES));
+            writer.writeVarint(name.length);
+            System.arraycopy(name, 0, writer.buffer, writer.position, name.length);
+            writer.position += name.length;
+        }
+        return writer.buffer;
+    }
+
+    public static CustomerEvent decode(byte[] data) {
+        if (data.length == 0 || data[0] != FORMAT_VERSION) {
+            throw new SerializationException("Unsupported customer event format " + (data.length == 0 ? "<empty>" : data[0]));
+        }
+
+        CustomerEvent event = new CustomerEvent();
+        Reader reader = new Reader(data);
+        reader.position = 1;
+        while (reader.position < data.length) {
+            long tag = reader.readVarint();
+            int field = (int) (tag >>> 3);
+            int wireType = (int) (tag & 0x7);
+
+            if (wireType == WIRE_VARINT) {
+                long value = reader.readVarint();
+                switch (field) {
+                    case FIELD_TYPE -> event.setType(CustomerEventType.fromCode((int) value));
+                    case FIELD_CUSTOMER_ID -> event.setCustomerId(value);
+                    case FIELD_VERSION -> event.setVersion(value);
+                    case FIELD_EVENT_TIME -> event.setEventTime(Instant.ofEpochMilli(value));
+                    default -> {
+                        // Field added by a newer producer.
+                    }
+                }
+            } else if (wireType == WIRE_BYTES) {
+                int length = (int) reader.readVarint();
+                if (length < 0 || length > data.length - reader.position) {
+                    throw new SerializationException("Truncated customer event");
+                }
+                if (field == FIELD_CUSTOMER_NAME) {
+                    event.setCustomerName(new String(data, reader.position, length, StandardCharsets.UTF_8));
+                }
+                reader.position += length;
+            } else {
+                throw new SerializationException("Unknown wire type " + wireType + " for field " + field);
+            }
+        }
+        return event;
+    }
+
+    private static int fieldSize(int field, Long value) {
+        return value == null ? 0 : varintSize(tag(field, WIRE_VARINT)) + varintSize(value);
+    }
+
+    private static long tag(int field, int wireType) {
+        return ((long) field << 3) | wireType;
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static final class Writer {
+        private final byte[] buffer;
+        private int position;
+
+        private Writer(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private void writeField(int field, long value) {
+            writeVarint(tag(field, WIRE_VARINT));
+            writeVarint(value);
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        private Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= buffer.length) {
+                    throw new SerializationException("Truncated customer event");
+                }
+                byte b = buffer[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Malformed varint in customer event");
+        }
+    }
+}
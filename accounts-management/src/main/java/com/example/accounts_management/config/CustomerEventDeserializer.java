@@ -0,0 +1,68 @@
+package com.example.accounts_management.config;
+
+import com.example.accounts_management.model.CustomerEvent;
+import com.example.accounts_management.model.CustomerEventType;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Kafka deserializer for {@link CustomerEvent}, see {@link CustomerEventCodec} for the format.
+ *
+ * <p>Events published before the binary format, a JSON object mapping the customer id to its
+ * name, are still read as an update with version {@code 0}. Payloads that cannot be read are
+ * logged and returned as {@code null} so they are skipped instead of blocking the partition; the
+ * log holds their size and first bytes in hex, since they are binary.
+ */
+@Slf4j
+public class CustomerEventDeserializer implements Deserializer<CustomerEvent> {
+
+    private static final int LOGGED_BYTES = 64;
+
+    private static final TypeReference<Map<String, String>> LEGACY_EVENT = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+
+    public CustomerEventDeserializer() {
+        this(new ObjectMapper());
+    }
+
+    public CustomerEventDeserializer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public CustomerEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return data.length > 0 && data[0] == '{' ? deserializeLegacy(data) : CustomerEventCodec.decode(data);
+        } catch (IOException | RuntimeException e) {
+            log.error("Error processing Kafka message of {} bytes from {}: {}", data.length, topic,
+                    HexFormat.of().formatHex(data, 0, Math.min(data.length, LOGGED_BYTES)), e);
+            return null;
+        }
+    }
+
+    private CustomerEvent deserializeLegacy(byte[] data) throws IOException {
+        Map<String, String> event = objectMapper.readValue(data, LEGACY_EVENT);
+        if (event.size() != 1) {
+            throw new IOException("Expected one customer per legacy event but got " + event.size());
+        }
+
+        Map.Entry<String, String> entry = event.entrySet().iterator().next();
+        return CustomerEvent.builder()
+                .type(CustomerEventType.UPDATED)
+                .customerId(Long.valueOf(entry.getKey()))
+                .customerName(entry.getValue())
+                .version(0L)
+                .build();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.accounts_management.config;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.propagation.Propagator;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Continues in accounts-management the traces of the customer changes. Spring Kafka observes
+ * single record listeners only, so the batch listener of customer events starts a consumer span
+ * per record, as a child of the span that published it.
+ */
+@Component
+public class CustomerEventTracing {
+
+    private final Propagator propagator;
+
+    public CustomerEventTracing(Propagator propagator) {
+        this.propagator = propagator;
+    }
+
+    /**
+     * Starts a span for each record carrying a trace context. Records published outside a trace
+     * get none.
+     */
+    public List<Span> startConsumeSpans(List<? extends ConsumerRecord<String, ?>> records) {
+        List<Span> spans = new ArrayList<>();
+        for (ConsumerRecord<String, ?> record : records) {
+            if (propagator.fields().stream().noneMatch(field -> record.headers().lastHeader(field) != null)) {
+                continue;
+            }
+            spans.add(propagator.extract(record, (carrier, key) -> {
+                        Header header = carrier.headers().lastHeader(key);
+                        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+                    })
+                    .name("customer-events process")
+                    .kind(Span.Kind.CONSUMER)
+                    .remoteServiceName("kafka")
+                    .tag("messaging.destination.name", record.topic())
+                    .tag("messaging.kafka.message.key", String.valueOf(record.key()))
+                    .start());
+        }
+        return spans;
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.accounts_management.config;
+
+import com.example.accounts_management.exception.custom.BusinessException;
+import com.example.accounts_management.infrastructure.dto.ErrorResponse;
+import com.example.accounts_management.model.IdempotencyKey;
+import com.example.accounts_management.service.IdempotencyKeyStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+
+/**
+ * Makes the write requests carrying an Idempotency-Key header safe to retry. The first request
+ * with a key executes and its response is recorded as it is written; the next ones with the same
+ * key, method and path get that response back, marked with an Idempotent-Replayed header, without
+ * executing again. Responses are streamed to the client as usual while they are recorded. Server
+ * errors are not replayed, see {@link IdempotencyKeyStore}.
+ * <p>
+ * The request body is hashed as the handler reads it, so a key reused with a different body is
+ * rejected with 422 instead of replaying the response of another request.
+ */
+@Component
+public class IdempotencyFilter implements WebFilter {
+
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Set<HttpMethod> WRITE_METHODS = Set.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+
+    private final IdempotencyKeyStore idempotencyKeyStore;
+    private final ObjectMapper objectMapper;
+    /**
+     * Largest response body recorded. Larger responses, like the results of a big bulk request,
+     * are replayed with their status only.
+     */
+    private final int maxResponseSize;
+
+    public IdempotencyFilter(IdempotencyKeyStore idempotencyKeyStore, ObjectMapper objectMapper,
+                             @Value("${accounts.idempotency.max-response-size:1048576}") int maxResponseSize) {
+        this.idempotencyKeyStore = idempotencyKeyStore;
+        this.objectMapper = objectMapper;
+        this.maxResponseSize = maxResponseSize;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String key = exchange.getRequest().getHeaders().getFirst(IDEMPOTENCY_KEY_HEADER);
+        if (key == null || !WRITE_METHODS.contains(exchange.getRequest().getMethod())) {
+            return chain.filter(exchange);
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return writeError(exchange.getResponse(), new BusinessException(HttpStatus.BAD_REQUEST,
+                    "The Idempotency-Key header must have between 1 and " + MAX_KEY_LENGTH + " characters"));
+        }
+
+        String scopedKey = exchange.getRequest().getMethod().name() + " " + exchange.getRequest().getPath().value() + " " + key;
+        HashingRequest hashing = new HashingRequest(exchange.getRequest());
+        RecordingResponse recording = new RecordingResponse(exchange.getResponse(), maxResponseSize);
+        Mono<IdempotencyKey> request = Mono.defer(() -> chain.filter(exchange.mutate().request(hashing).response(recording).build()))
+                .then(Mono.fromSupplier(() -> recording.toIdempotencyKey(hashing.hash())));
+
+        return idempotencyKeyStore.execute(scopedKey, request)
+                .flatMap(execution -> execution.replayed() ? replayIfSameBody(exchange, execution.response()) : Mono.<Void>empty())
+                .onErrorResume(BusinessException.class, e -> writeError(exchange.getResponse(), e));
+    }
+
+    /**
+     * Replays the stored response when the retry carries the body of the request that produced
+     * it. Responses of requests whose body was never read are replayed as they are.
+     */
+    private Mono<Void> replayIfSameBody(ServerWebExchange exchange, IdempotencyKey stored) {
+        if (stored.getRequestHash() == null) {
+            return replay(exchange.getResponse(), stored);
+        }
+        return exchange.getRequest().getBody()
+                .reduce(sha256(), (digest, buffer) -> {
+                    update(digest, buffer);
+                    DataBufferUtils.release(buffer);
+                    return digest;
+                })
+                .flatMap(digest -> MessageDigest.isEqual(digest.digest(), stored.getRequestHash())
+                        ? replay(exchange.getResponse(), stored)
+                        : Mono.error(new BusinessException(HttpStatus.UNPROCESSABLE_ENTITY,
+                        "The Idempotency-Key was already used with a different request body")));
+    }
+
+    private Mono<Void> replay(ServerHttpResponse response, IdempotencyKey stored) {
+        response.setStatusCode(HttpStatusCode.valueOf(stored.getStatus()));
+        response.getHeaders().set(REPLAYED_HEADER, "true");
+        if (stored.getContentType() != null) {
+            response.getHeaders().set(HttpHeaders.CONTENT_TYPE, stored.getContentType());
+        }
+        return stored.getBody() == null
+                ? response.setComplete()
+                : response.writeWith(Mono.just(response.bufferFactory().wrap(stored.getBody())));
+    }
+
+    private Mono<Void> writeError(ServerHttpResponse response, BusinessException e) {
+        ErrorResponse error = ErrorResponse.builder()
+                .code(String.valueOf(e.getStatus().value()))
+                .message(e.getMessage())
+                .build();
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(error);
+            response.setStatusCode(e.getStatus());
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        } catch (JsonProcessingException ex) {
+            return Mono.error(ex);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, DataBuffer buffer) {
+        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+            iterator.forEachRemaining(digest::update);
+        }
+    }
+
+    /**
+     * Hashes the body while the handler reads it. The hash is empty when the body was not read
+     * to the end.
+     */
+    private static class HashingRequest extends ServerHttpRequestDecorator {
+
+        private final MessageDigest digest = sha256();
+        private boolean read;
+
+        HashingRequest(ServerHttpRequest delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return super.getBody()
+                    .doOnNext(this::hash)
+                    .doOnComplete(this::read);
+        }
+
+        private synchronized void hash(DataBuffer buffer) {
+            update(digest, buffer);
+        }
+
+        private synchronized void read() {
+            read = true;
+        }
+
+        synchronized byte[] hash() {
+            return read ? digest.digest() : null;
+        }
+    }
+
+    /**
+     * Copies the body while it is written, up to the maximum size.
+     */
+    private static class RecordingResponse extends ServerHttpResponseDecorator {
+
+        private final int maxSize;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private boolean truncated;
+
+        RecordingResponse(ServerHttpResponse delegate, int maxSize) {
+            super(delegate);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return super.writeWith(Flux.from(body).doOnNext(this::record));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return super.writeAndFlushWith(Flux.from(body).map(chunk -> Flux.from(chunk).doOnNext(this::record)));
+        }
+
+        private synchronized void record(DataBuffer buffer) {
+            int length = buffer.readableByteCount();
+            if (truncated || body.size() + length > maxSize) {
+                truncated = true;
+                return;
+            }
+            byte[] bytes = new byte[length];
+            buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(bytes), 0, length);
+            body.writeBytes(bytes);
+        }
+
+        synchronized IdempotencyKey toIdempotencyKey(byte[] requestHash) {
+            HttpStatusCode status = getStatusCode();
+            return IdempotencyKey.builder()
+                    .requestHash(requestHash)
+                    .status(status == null ? HttpStatus.OK.value() : status.value())
+                    .contentType(getHeaders().getFirst(HttpHeaders.CONTENT_TYPE))
+                    .body(truncated ? null : body.toByteArray())
+                    .build();
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.example.accounts_management.config;
 
+import com.example.accounts_management.model.CustomerEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -9,6 +13,10 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -23,8 +31,26 @@ public class KafkaConsumerConfig {
     @Value(value = "${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value(value = "${spring.kafka.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value(value = "${accounts.customer-events.retry-interval-ms:1000}")
+    private long retryIntervalMs;
+
+    /**
+     * Reads the binary customer events as well as the JSON ones published before them.
+     */
+    @Bean
+    public Deserializer<CustomerEvent> customerEventDeserializer(ObjectMapper objectMapper) {
+        return new CustomerEventDeserializer(objectMapper);
+    }
+
+    /**
+     * The client metrics of the consumers, records lag included, are bound to the registry as
+     * kafka.consumer.* meters.
+     */
     @Bean
-    public ConsumerFactory<String, String> consumerFactory() {
+    public ConsumerFactory<String, CustomerEvent> consumerFactory(Deserializer<CustomerEvent> customerEventDeserializer, MeterRegistry meterRegistry) {
         Map<String, Object> props = new HashMap<>();
         props.put(
                 ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG,
@@ -33,21 +59,28 @@ public class KafkaConsumerConfig {
                 ConsumerConfig.GROUP_ID_CONFIG,
                 groupId);
         props.put(
-                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG,
-                StringDeserializer.class);
+                ConsumerConfig.MAX_POLL_RECORDS_CONFIG,
+                maxPollRecords);
         props.put(
-                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG,
-                StringDeserializer.class);
-        return new DefaultKafkaConsumerFactory<>(props);
+                ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG,
+                false);
+        DefaultKafkaConsumerFactory<String, CustomerEvent> consumerFactory = new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), customerEventDeserializer);
+        consumerFactory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return consumerFactory;
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String>
-    kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, CustomerEvent>
+    kafkaListenerContainerFactory(ConsumerFactory<String, CustomerEvent> consumerFactory) {
 
-        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+        ConcurrentKafkaListenerContainerFactory<String, CustomerEvent> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(consumerFactory());
+        factory.setConsumerFactory(consumerFactory);
+        // Whole poll batches are handed to the listener and their offsets are committed once it
+        // returns. A failed batch is redelivered until it is written (at-least-once).
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(retryIntervalMs, FixedBackOff.UNLIMITED_ATTEMPTS)));
         return factory;
     }
-}
\ No newline at end of file
+}
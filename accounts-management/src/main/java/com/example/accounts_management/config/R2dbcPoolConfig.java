@@ -0,0 +1,28 @@
+package com.example.accounts_management.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The pool itself is configured with the {@code spring.r2dbc.pool.*} properties; this only adds
+ * the acquisition timer on top of the gauges Spring Boot already exposes for it.
+ */
+@Configuration
+public class R2dbcPoolConfig {
+
+    @Bean
+    static BeanPostProcessor timedConnectionPoolPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof ConnectionPool connectionPool
+                        ? new TimedConnectionFactory(connectionPool, beanName, meterRegistry.getObject())
+                        : bean;
+            }
+        };
+    }
+}
@@ -1,22 +1,29 @@
 package com.example.accounts_management.controller;
 
 import com.example.accounts_management.infrastructure.accounts.api.AccountsApi;
+import com.example.accounts_management.infrastructure.dto.AccountBalanceResponse;
 import com.example.accounts_management.infrastructure.dto.AccountRequest;
 import com.example.accounts_management.infrastructure.dto.AccountResponse;
+import com.example.accounts_management.model.CursorPage;
 import com.example.accounts_management.service.AccountsService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDate;
+
 @RestController
 public class AccountsController implements AccountsApi {
 
     private final AccountsService accountsService;
+    private final int listingPrefetch;
 
-    public AccountsController(AccountsService accountsService) {
+    public AccountsController(AccountsService accountsService, @Value("${accounts.listings.prefetch:256}") int listingPrefetch) {
         this.accountsService = accountsService;
+        this.listingPrefetch = listingPrefetch;
     }
 
     @Override
@@ -25,8 +32,15 @@ public class AccountsController implements AccountsApi {
     }
 
     @Override
-    public Mono<ResponseEntity<Flux<AccountResponse>>> getAllAccounts(ServerWebExchange exchange) {
-        return Mono.just(ResponseEntity.ok(accountsService.findAll()));
+    public Mono<ResponseEntity<Flux<AccountResponse>>> getAllAccounts(String cursor, Integer limit, ServerWebExchange exchange) {
+        return accountsService.findPage(cursor, limit)
+                .map(page -> CursorPage.toResponseEntity(page, listingPrefetch));
+    }
+
+    @Override
+    public Mono<ResponseEntity<AccountBalanceResponse>> getBalance(Long id, LocalDate asOf, ServerWebExchange exchange) {
+        return accountsService.getBalance(id, asOf)
+                .map(ResponseEntity::ok);
     }
 
     @Override
@@ -37,7 +51,7 @@ public class AccountsController implements AccountsApi {
 
     @Override
     public Mono<ResponseEntity<Flux<AccountResponse>>> getByCustomerId(Long id, ServerWebExchange exchange) {
-        return Mono.just(ResponseEntity.ok(accountsService.findByCustomerId(id)));
+        return Mono.just(ResponseEntity.ok(accountsService.findByCustomerId(id).limitRate(listingPrefetch)));
     }
 
     @Override
@@ -1,9 +1,17 @@
 package com.example.accounts_management.controller;
 
+import com.example.accounts_management.infrastructure.dto.AccountStatementResponse;
+import com.example.accounts_management.infrastructure.dto.BulkMovementRequest;
+import com.example.accounts_management.infrastructure.dto.BulkMovementResult;
 import com.example.accounts_management.infrastructure.dto.MovementRequest;
 import com.example.accounts_management.infrastructure.dto.MovementResponse;
 import com.example.accounts_management.infrastructure.movements.api.MovementsApi;
+import com.example.accounts_management.model.CursorPage;
+import com.example.accounts_management.service.BulkMovementsService;
 import com.example.accounts_management.service.MovementsService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ServerWebExchange;
@@ -15,10 +23,16 @@ import java.time.LocalDate;
 @RestController
 public class MovementsController implements MovementsApi {
 
+    private static final StringDecoder LINES = StringDecoder.allMimeTypes();
+
     private final MovementsService movementService;
+    private final BulkMovementsService bulkMovementsService;
+    private final int listingPrefetch;
 
-    public MovementsController(MovementsService movementService){
+    public MovementsController(MovementsService movementService, BulkMovementsService bulkMovementsService, @Value("${accounts.listings.prefetch:256}") int listingPrefetch){
         this.movementService = movementService;
+        this.bulkMovementsService = bulkMovementsService;
+        this.listingPrefetch = listingPrefetch;
     }
 
 
@@ -34,20 +48,26 @@ public class MovementsController implements MovementsApi {
     }
 
     @Override
-    public Mono<ResponseEntity<Flux<MovementResponse>>> getAllMovements(ServerWebExchange exchange) {
-        Flux<MovementResponse> movements = movementService.findAll();
-        return Mono.just(ResponseEntity.ok(movements));
+    public Mono<ResponseEntity<Flux<MovementResponse>>> getAllMovements(String cursor, Integer limit, ServerWebExchange exchange) {
+        return movementService.findPage(cursor, limit)
+                .map(page -> CursorPage.toResponseEntity(page, listingPrefetch));
     }
 
     @Override
     public Mono<ResponseEntity<Flux<MovementResponse>>> getAllMovementsByDateRanges(LocalDate startDate, LocalDate endDate, Long customerId, ServerWebExchange exchange) {
-        Flux<MovementResponse> movementResponseFlux = movementService.getMovementsReport(startDate, endDate, customerId);
+        Flux<MovementResponse> movementResponseFlux = movementService.getMovementsReport(startDate, endDate, customerId).limitRate(listingPrefetch);
         return Mono.just(ResponseEntity.ok(movementResponseFlux));
     }
 
+    @Override
+    public Mono<ResponseEntity<Flux<AccountStatementResponse>>> getStatement(LocalDate startDate, LocalDate endDate, Long customerId, ServerWebExchange exchange) {
+        Flux<AccountStatementResponse> statements = movementService.getStatement(startDate, endDate, customerId).limitRate(listingPrefetch);
+        return Mono.just(ResponseEntity.ok(statements));
+    }
+
     @Override
     public Mono<ResponseEntity<Flux<MovementResponse>>> getByAccountId(Long id, ServerWebExchange exchange) {
-        Flux<MovementResponse> movements = movementService.findAllByAccount(id);
+        Flux<MovementResponse> movements = movementService.findAllByAccount(id).limitRate(listingPrefetch);
         return Mono.just(ResponseEntity.ok(movements));
     }
 
@@ -57,6 +77,15 @@ public class MovementsController implements MovementsApi {
                 .flatMap(request -> movementService.save(request).map(ResponseEntity::ok));
     }
 
+    @Override
+    public Mono<ResponseEntity<Flux<BulkMovementResult>>> saveAll(Flux<BulkMovementRequest> bulkMovementRequest, ServerWebExchange exchange) {
+        // The body is split into lines and each one is parsed by the service, instead of decoding
+        // bulkMovementRequest, which fails as a whole on the first malformed line.
+        Flux<String> lines = LINES.decode(exchange.getRequest().getBody(), ResolvableType.forClass(String.class),
+                exchange.getRequest().getHeaders().getContentType(), null);
+        return Mono.just(ResponseEntity.ok(bulkMovementsService.ingest(lines)));
+    }
+
     @Override
     public Mono<ResponseEntity<MovementResponse>> update(Long id, Mono<MovementRequest> movementRequest, ServerWebExchange exchange) {
         return movementRequest
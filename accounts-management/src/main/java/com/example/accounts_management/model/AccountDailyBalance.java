@@ -0,0 +1,27 @@
+package com.example.accounts_management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Balance of an account at the end of a day that has movements. Days without movements have no
+ * row; their balance is the one of the closest earlier day.
+ */
+@Table(name = "account_daily_balance")
+@Getter
+@Setter
+@SuperBuilder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountDailyBalance {
+    private Long accountId;
+    private LocalDate balanceDate;
+    private BigDecimal balance;
+}
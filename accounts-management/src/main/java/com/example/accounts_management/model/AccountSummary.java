@@ -0,0 +1,53 @@
+package com.example.accounts_management.model;
+
+import com.example.accounts_management.infrastructure.dto.AccountRequest;
+import com.example.accounts_management.infrastructure.dto.AccountResponse;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Read model of an account, joined with the name of its customer and kept up to date with its
+ * balance and movement totals. The account columns are written with the account; the balance and
+ * the totals follow the movement events, applied by {@code AccountSummaryProjector}.
+ */
+@Table(name = "account_summary")
+@Getter
+@Setter
+@SuperBuilder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountSummary {
+    @Id
+    private Long accountId;
+    private String accountNumber;
+    private AccountRequest.AccountTypeEnum accountType;
+    private BigDecimal initialBalance;
+    private Boolean status;
+    private Long customerId;
+    private String customerName;
+    private BigDecimal balance;
+    private LocalDate lastMovementDate;
+    private Long movementCount;
+
+    public AccountResponse toAccountResponse() {
+        return AccountResponse.builder()
+                .id(accountId)
+                .accountNumber(accountNumber)
+                .accountType(accountType.getValue())
+                .initialBalance(initialBalance)
+                .status(status)
+                .customerName(customerName)
+                .balance(balance)
+                .lastMovementDate(lastMovementDate)
+                .movementCount(movementCount)
+                .build();
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.accounts_management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * One page of a listing and the cursor of the next one, {@code null} on the last page.
+ */
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    /**
+     * Streams the items of the page, requesting at most {@code prefetch} of them at once.
+     */
+    public static <T> ResponseEntity<Flux<T>> toResponseEntity(CursorPage<T> page, int prefetch) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(Flux.fromIterable(page.getItems()).limitRate(prefetch));
+    }
+}
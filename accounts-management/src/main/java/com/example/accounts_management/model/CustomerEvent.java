@@ -0,0 +1,29 @@
+package com.example.accounts_management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+
+import java.time.Instant;
+
+/**
+ * Customer change published to the customer topic. The version grows with every change, so
+ * consumers can discard events that arrive after a newer one.
+ */
+@Getter
+@Setter
+@SuperBuilder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class CustomerEvent {
+
+    private CustomerEventType type;
+    private Long customerId;
+    private String customerName;
+    private Long version;
+    private Instant eventTime;
+}
@@ -0,0 +1,33 @@
+package com.example.accounts_management.model;
+
+import java.util.Arrays;
+
+/**
+ * Kind of customer change. The code is what travels on the wire, so it must never be reused
+ * for a different type. {@link #UNKNOWN} is never sent: it stands for the codes of types added
+ * by a newer producer.
+ */
+public enum CustomerEventType {
+    UNKNOWN(0),
+    CREATED(1),
+    UPDATED(2),
+    DELETED(3);
+
+    private final int code;
+
+    CustomerEventType(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public static CustomerEventType fromCode(int code) {
+        return Arrays.stream(values())
+                .filter(type -> type.code == code)
+                .filter(type -> type != UNKNOWN)
+                .findFirst()
+                .orElse(UNKNOWN);
+    }
+}
@@ -6,7 +6,6 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
 @Table(name = "customer_snapshot")
@@ -19,4 +18,16 @@ public class CustomerSnapshot {
     @Id
     private Long id;
     private String customerName;
+    /**
+     * Version of the last customer event applied to the snapshot.
+     */
+    private Long version;
+
+    public static CustomerSnapshot fromCustomerEvent(CustomerEvent customerEvent) {
+        return CustomerSnapshot.builder()
+                .id(customerEvent.getCustomerId())
+                .customerName(customerEvent.getCustomerName())
+                .version(customerEvent.getVersion() == null ? 0L : customerEvent.getVersion())
+                .build();
+    }
 }
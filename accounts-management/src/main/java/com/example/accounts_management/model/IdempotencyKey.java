@@ -0,0 +1,37 @@
+package com.example.accounts_management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Response of a write request, stored under the Idempotency-Key it was sent with. The status is
+ * empty while the request is executing or when its outcome is unknown. The request hash is the
+ * SHA-256 of the request body, empty when the body was not read. The body is empty when the
+ * response was larger than the size kept; retries then get the status only.
+ */
+@Table(name = "idempotency_key")
+@Getter
+@Setter
+@SuperBuilder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+    @Id
+    private String idempotencyKey;
+    private byte[] requestHash;
+    private Integer status;
+    private String contentType;
+    private byte[] body;
+    private LocalDateTime createdAt;
+
+    public boolean isCompleted() {
+        return status != null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.accounts_management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+
+/**
+ * Latest balance and movement sequence number of an account, so new movements do not need to
+ * read the account history to know the previous balance.
+ */
+@Table(name = "account_ledger_head")
+@Getter
+@Setter
+@SuperBuilder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerHead {
+    @Id
+    private Long accountId;
+    private BigDecimal balance;
+    private Long lastSeq;
+}
@@ -0,0 +1,58 @@
+package com.example.accounts_management.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Amount of money as a whole number of minor units (cents) of the account currency. Balances are
+ * computed with it instead of {@link BigDecimal}, which allocates a new instance on every step;
+ * amounts are converted from and to {@link BigDecimal} only where they enter and leave the
+ * service, in the requests, responses and database columns. Arithmetic fails with an
+ * {@link ArithmeticException} instead of overflowing.
+ */
+public record Money(long minorUnits) {
+
+    /**
+     * Decimal places of the account currency.
+     */
+    public static final int SCALE = 2;
+
+    public static final Money ZERO = new Money(0);
+
+    /**
+     * Converts an amount of a request or a column. Amounts with more decimal places than the
+     * currency, or beyond the range of minor units, are rejected with an
+     * {@link IllegalArgumentException}.
+     */
+    public static Money of(BigDecimal amount) {
+        try {
+            return new Money(amount.movePointRight(SCALE).longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount " + amount.toPlainString()
+                    + " must have at most " + SCALE + " decimal places and fit in the supported range");
+        }
+    }
+
+    public Money plus(Money other) {
+        return new Money(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(minorUnits));
+    }
+
+    /**
+     * Returns the amount with the scale of the currency, e.g. {@code 150.00}.
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -31,14 +31,16 @@ public class Movement {
     private BigDecimal value;
     private BigDecimal balance;
     private Long accountId;
+    private Long seq;
 
-    public static Movement fromMovementRequest(MovementRequest movementRequest, BigDecimal balance) {
+    public static Movement fromMovementRequest(MovementRequest movementRequest, BigDecimal balance, Long seq) {
         return Movement.builder()
                 .date(movementRequest.getDate())
                 .type(movementRequest.getType())
                 .value(movementRequest.getValue())
                 .balance(balance)
                 .accountId(movementRequest.getAccountId())
+                .seq(seq)
                 .build();
     }
 
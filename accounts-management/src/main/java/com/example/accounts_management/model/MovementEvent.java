@@ -0,0 +1,34 @@
+package com.example.accounts_management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Change of the balance of an account caused by movements, written in the same transaction as
+ * the movements and removed once the account summary has been updated from it. Edits carry a
+ * movement count of zero and deletions a negative one.
+ */
+@Table(name = "movement_event")
+@Getter
+@Setter
+@SuperBuilder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovementEvent {
+    @Id
+    private Long id;
+    private Long accountId;
+    private LocalDate movementDate;
+    private BigDecimal delta;
+    private Integer movementCount;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,47 @@
+package com.example.accounts_management.repository;
+
+import com.example.accounts_management.model.AccountDailyBalance;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Repository
+public interface AccountDailyBalanceRepository extends org.springframework.data.repository.Repository<AccountDailyBalance, Long> {
+
+    /**
+     * Adds a movement of the given date to the rollups: opens the day from the closest earlier
+     * one, or from the initial balance of the account, and shifts it and every later day. The
+     * cost follows the days after the movement, a single row for movements of the latest day.
+     */
+    default Mono<Integer> applyDelta(Long accountId, LocalDate date, BigDecimal delta) {
+        return openDay(accountId, date)
+                .then(shiftFrom(accountId, date, delta));
+    }
+
+    @Modifying
+    @Query("""
+        insert into account_daily_balance (account_id, balance_date, balance)
+        select :accountId, :date, coalesce(
+            (select d.balance from account_daily_balance d
+             where d.account_id = :accountId and d.balance_date < :date
+             order by d.balance_date desc limit 1),
+            (select coalesce(a.initial_balance, 0) from account a where a.id = :accountId))
+        on conflict (account_id, balance_date) do nothing
+    """)
+    Mono<Integer> openDay(@Param("accountId") Long accountId, @Param("date") LocalDate date);
+
+    @Modifying
+    @Query("update account_daily_balance set balance = balance + :delta where account_id = :accountId and balance_date >= :date")
+    Mono<Integer> shiftFrom(@Param("accountId") Long accountId, @Param("date") LocalDate date, @Param("delta") BigDecimal delta);
+
+    /**
+     * Balance at the end of the given day, read from the closest rollup on or before it.
+     */
+    @Query("select balance from account_daily_balance where account_id = :accountId and balance_date <= :asOf order by balance_date desc limit 1")
+    Mono<BigDecimal> findBalanceAsOf(@Param("accountId") Long accountId, @Param("asOf") LocalDate asOf);
+}
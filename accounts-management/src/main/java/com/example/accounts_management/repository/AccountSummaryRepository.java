@@ -0,0 +1,93 @@
+package com.example.accounts_management.repository;
+
+import com.example.accounts_management.model.AccountSummary;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface AccountSummaryRepository extends ReactiveCrudRepository<AccountSummary, Long> {
+
+    @Query("select * from account_summary where customer_id = :customerId order by account_id")
+    Flux<AccountSummary> findByCustomerId(@Param("customerId") Long customerId);
+
+    /**
+     * Writes the account columns of the summary from the account and its customer snapshot and
+     * returns the summary. The balance starts at the initial balance and, once the account has
+     * movements, is only moved by their events.
+     */
+    @Query("""
+        insert into account_summary (account_id, account_number, account_type, initial_balance, status, customer_id, customer_name, balance)
+        select a.id, a.account_number, a.account_type, a.initial_balance, a.status, a.customer_id, c.customer_name,
+            coalesce(h.balance, a.initial_balance, 0)
+        from account a
+        join customer_snapshot c on c.id = a.customer_id
+        left join account_ledger_head h on h.account_id = a.id
+        where a.id = :accountId
+        on conflict (account_id) do update
+            set account_number = excluded.account_number,
+                account_type = excluded.account_type,
+                initial_balance = excluded.initial_balance,
+                status = excluded.status,
+                customer_id = excluded.customer_id,
+                customer_name = excluded.customer_name,
+                balance = case
+                    when exists (select 1 from account_ledger_head h where h.account_id = excluded.account_id) then account_summary.balance
+                    else excluded.balance
+                end
+        returning *
+    """)
+    Mono<AccountSummary> refresh(@Param("accountId") Long accountId);
+
+    /**
+     * Copies the names of the given customer snapshots to the summaries of their accounts. Both
+     * tables are filtered by the ids, so each is read through its index on the customer id.
+     */
+    @Modifying
+    @Query("""
+        update account_summary s set customer_name = c.customer_name
+        from customer_snapshot c
+        where c.id = s.customer_id and c.id = any(:ids) and s.customer_id = any(:ids) and s.customer_name <> c.customer_name
+    """)
+    Mono<Integer> refreshCustomerNames(@Param("ids") Long[] customerIds);
+
+    /**
+     * Consumes the oldest pending movement events and applies them to the summaries, all in one
+     * statement: the events are deleted, summed per account and added to the balance and the
+     * movement count. The last movement date moves forward with the events, and is read again
+     * from the movements, archived ones included, when one was removed. Events locked by another
+     * projector are skipped; their ids are collected into an array so that the delete probes the
+     * primary key for them instead of joining the whole table. Returns the number of events
+     * consumed.
+     */
+    @Query("""
+        with events as (
+            delete from movement_event
+            where id = any(array(select id from movement_event order by id limit :limit for update skip locked))
+            returning account_id, movement_date, delta, movement_count
+        ), changes as (
+            select account_id, sum(delta) as delta, sum(movement_count) as movement_count,
+                max(movement_date) as movement_date, bool_or(movement_count < 0) as removed
+            from events
+            group by account_id
+        ), applied as (
+            update account_summary s
+            set balance = s.balance + c.delta,
+                movement_count = s.movement_count + c.movement_count,
+                last_movement_date = case
+                    when c.removed then coalesce(
+                        (select max(m.movement_date) from movement m where m.account_id = s.account_id),
+                        (select max(d.movement_date) from movement_archive a cross join unnest(a.movement_dates) as d(movement_date) where a.account_id = s.account_id))
+                    else greatest(s.last_movement_date, c.movement_date)
+                end
+            from changes c
+            where s.account_id = c.account_id
+        )
+        select cast(count(*) as integer) from events
+    """)
+    Mono<Integer> applyMovementEvents(@Param("limit") int limit);
+}
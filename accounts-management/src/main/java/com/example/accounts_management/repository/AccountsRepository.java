@@ -11,7 +11,7 @@ import reactor.core.publisher.Mono;
 import java.util.List;
 
 @Repository
-public interface AccountsRepository extends ReactiveCrudRepository<Account, Long> {
+public interface AccountsRepository extends ReactiveCrudRepository<Account, Long>, AccountsRepositoryCustom {
 
     @Query(value = "Select * from account where customer_id = :customerId")
     Flux<Account> findByCustomerId(@Param("customerId") Long customerId);
@@ -0,0 +1,13 @@
+package com.example.accounts_management.repository;
+
+import com.example.accounts_management.infrastructure.dto.AccountResponse;
+import reactor.core.publisher.Flux;
+
+public interface AccountsRepositoryCustom {
+
+    /**
+     * Reads the page of accounts after the given id, ordered by id, already joined with the name
+     * of their customer and with the balance and movement totals of their summary.
+     */
+    Flux<AccountResponse> findResponsePageAfter(Long afterId, int limit);
+}
@@ -0,0 +1,58 @@
+package com.example.accounts_management.repository;
+
+import com.example.accounts_management.infrastructure.dto.AccountRequest;
+import com.example.accounts_management.infrastructure.dto.AccountResponse;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class AccountsRepositoryCustomImpl implements AccountsRepositoryCustom {
+
+    /**
+     * Walks the primary key of account from the cursor and looks up the customer snapshot and the
+     * summary of each row by their primary keys, so the page costs one round trip whatever its
+     * size. An account without a summary yet is listed with its initial balance.
+     */
+    static final String RESPONSE_PAGE = """
+            select a.id, a.account_number, a.account_type, a.initial_balance, a.status, c.customer_name,
+                coalesce(s.balance, a.initial_balance, 0) as balance, s.last_movement_date, coalesce(s.movement_count, 0) as movement_count
+            from account a
+            join customer_snapshot c on c.id = a.customer_id
+            left join account_summary s on s.account_id = a.id
+            where a.id > :afterId
+            order by a.id
+            limit :limit
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    public AccountsRepositoryCustomImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Flux<AccountResponse> findResponsePageAfter(Long afterId, int limit) {
+        return databaseClient.sql(RESPONSE_PAGE)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(AccountsRepositoryCustomImpl::toAccountResponse)
+                .all();
+    }
+
+    private static AccountResponse toAccountResponse(Readable row) {
+        return AccountResponse.builder()
+                .id(row.get("id", Long.class))
+                .accountNumber(row.get("account_number", String.class))
+                .accountType(AccountRequest.AccountTypeEnum.fromValue(row.get("account_type", String.class)).getValue())
+                .initialBalance(row.get("initial_balance", BigDecimal.class))
+                .status(row.get("status", Boolean.class))
+                .customerName(row.get("customer_name", String.class))
+                .balance(row.get("balance", BigDecimal.class))
+                .lastMovementDate(row.get("last_movement_date", LocalDate.class))
+                .movementCount(row.get("movement_count", Long.class))
+                .build();
+    }
+}
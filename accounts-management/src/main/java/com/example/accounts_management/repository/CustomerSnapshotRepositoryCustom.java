@@ -0,0 +1,23 @@
+package com.example.accounts_management.repository;
+
+import com.example.accounts_management.model.CustomerSnapshot;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+public interface CustomerSnapshotRepositoryCustom {
+
+    /**
+     * Inserts the given snapshots, replacing the customer name of the ones that already exist,
+     * with multi-row statements. A stored snapshot is only replaced by one with the same or a
+     * newer version. Emits the ids of the snapshots written, leaving out the stale ones.
+     */
+    Flux<Long> upsertAll(Collection<CustomerSnapshot> snapshots);
+
+    /**
+     * Deletes the snapshots of the given customers that no account refers to. Returns the number
+     * of rows deleted.
+     */
+    Mono<Long> deleteAllUnreferenced(Collection<Long> customerIds);
+}
@@ -0,0 +1,66 @@
+package com.example.accounts_management.repository;
+
+import com.example.accounts_management.model.CustomerSnapshot;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class CustomerSnapshotRepositoryCustomImpl implements CustomerSnapshotRepositoryCustom {
+
+    /**
+     * Keeps each statement well below the bind parameter limit of PostgreSQL.
+     */
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    static final String DELETE_UNREFERENCED = "delete from customer_snapshot s where s.id = any(:ids)"
+            + " and not exists (select 1 from account a where a.customer_id = s.id)";
+
+    private final DatabaseClient databaseClient;
+
+    public CustomerSnapshotRepositoryCustomImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Flux<Long> upsertAll(Collection<CustomerSnapshot> snapshots) {
+        List<CustomerSnapshot> rows = new ArrayList<>(snapshots);
+        List<List<CustomerSnapshot>> chunks = new ArrayList<>();
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_STATEMENT) {
+            chunks.add(rows.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, rows.size())));
+        }
+
+        return Flux.fromIterable(chunks)
+                .concatMap(this::upsertChunk);
+    }
+
+    private Flux<Long> upsertChunk(List<CustomerSnapshot> chunk) {
+        StringBuilder sql = new StringBuilder("insert into customer_snapshot (id, customer_name, version) values ");
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(:id").append(i).append(", :name").append(i).append(", :version").append(i).append(")");
+        }
+        sql.append(" on conflict (id) do update set customer_name = excluded.customer_name, version = excluded.version")
+                .append(" where customer_snapshot.version <= excluded.version")
+                .append(" returning id");
+
+        DatabaseClient.GenericExecuteSpec statement = databaseClient.sql(sql.toString());
+        for (int i = 0; i < chunk.size(); i++) {
+            statement = statement
+                    .bind("id" + i, chunk.get(i).getId())
+                    .bind("name" + i, chunk.get(i).getCustomerName())
+                    .bind("version" + i, chunk.get(i).getVersion());
+        }
+        return statement.map(row -> row.get("id", Long.class)).all();
+    }
+
+    @Override
+    public Mono<Long> deleteAllUnreferenced(Collection<Long> customerIds) {
+        return databaseClient.sql(DELETE_UNREFERENCED)
+                .bind("ids", customerIds.toArray(Long[]::new))
+                .fetch()
+                .rowsUpdated();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.accounts_management.repository;
+
+import com.example.accounts_management.model.IdempotencyKey;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyKeyRepository extends ReactiveCrudRepository<IdempotencyKey, String> {
+
+    /**
+     * Claims the key for a request about to execute. Returns 1 when the key was free and 0 when
+     * it is taken, whether its request completed, is executing or ended without a response.
+     */
+    @Modifying
+    @Query("""
+        insert into idempotency_key (idempotency_key, created_at)
+        values (:key, :createdAt)
+        on conflict (idempotency_key) do nothing
+    """)
+    Mono<Integer> claim(@Param("key") String key, @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Query("""
+        update idempotency_key
+        set request_hash = :requestHash, status = :status, content_type = :contentType, body = :body
+        where idempotency_key = :key
+    """)
+    Mono<Integer> complete(@Param("key") String key, @Param("requestHash") byte[] requestHash, @Param("status") int status,
+                           @Param("contentType") String contentType, @Param("body") byte[] body);
+
+    @Modifying
+    @Query("delete from idempotency_key where created_at < :before")
+    Mono<Integer> deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
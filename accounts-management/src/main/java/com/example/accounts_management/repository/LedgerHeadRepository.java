@@ -0,0 +1,55 @@
+package com.example.accounts_management.repository;
+
+import com.example.accounts_management.model.LedgerHead;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+@Repository
+public interface LedgerHeadRepository extends ReactiveCrudRepository<LedgerHead, Long> {
+
+    /**
+     * Applies a movement to the ledger head in one statement and returns the new head. The
+     * head is opened from the initial balance of the account on its first movement.
+     */
+    @Query("""
+        insert into account_ledger_head (account_id, balance, last_seq)
+        values (:accountId, :openingBalance + :delta, 1)
+        on conflict (account_id) do update
+            set balance = account_ledger_head.balance + :delta,
+                last_seq = account_ledger_head.last_seq + 1
+        returning *
+    """)
+    Mono<LedgerHead> advance(@Param("accountId") Long accountId, @Param("openingBalance") BigDecimal openingBalance, @Param("delta") BigDecimal delta);
+
+    /**
+     * Applies a group of movements to the ledger head at once: the balance moves by their total
+     * and the sequence by their count. The balances and sequence numbers of the group follow
+     * from the returned head, counting back from it.
+     */
+    @Query("""
+        insert into account_ledger_head (account_id, balance, last_seq)
+        values (:accountId, :openingBalance + :delta, :count)
+        on conflict (account_id) do update
+            set balance = account_ledger_head.balance + :delta,
+                last_seq = account_ledger_head.last_seq + :count
+        returning *
+    """)
+    Mono<LedgerHead> advanceBy(@Param("accountId") Long accountId, @Param("openingBalance") BigDecimal openingBalance, @Param("delta") BigDecimal delta, @Param("count") long count);
+
+    /**
+     * Locks the ledger head of an account until the end of the current transaction, so writers
+     * on other instances wait for the rebalance that holds it.
+     */
+    @Query("select * from account_ledger_head where account_id = :accountId for update")
+    Mono<LedgerHead> lockByAccountId(@Param("accountId") Long accountId);
+
+    @Modifying
+    @Query("update account_ledger_head set balance = balance + :delta where account_id = :accountId")
+    Mono<Integer> shift(@Param("accountId") Long accountId, @Param("delta") BigDecimal delta);
+}
@@ -0,0 +1,22 @@
+package com.example.accounts_management.repository;
+
+import com.example.accounts_management.model.MovementEvent;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Repository
+public interface MovementEventRepository extends org.springframework.data.repository.Repository<MovementEvent, Long> {
+
+    @Modifying
+    @Query("""
+        insert into movement_event (account_id, movement_date, delta, movement_count)
+        values (:accountId, :date, :delta, :count)
+    """)
+    Mono<Integer> append(@Param("accountId") Long accountId, @Param("date") LocalDate date, @Param("delta") BigDecimal delta, @Param("count") int count);
+}
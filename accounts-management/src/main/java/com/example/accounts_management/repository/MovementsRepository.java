@@ -1,6 +1,8 @@
 package com.example.accounts_management.repository;
 
+import com.example.accounts_management.infrastructure.dto.MovementRequest;
 import com.example.accounts_management.model.Movement;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
@@ -8,19 +10,63 @@ import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
 @Repository
-public interface MovementsRepository extends ReactiveCrudRepository<Movement, Long> {
+public interface MovementsRepository extends ReactiveCrudRepository<Movement, Long>, MovementsRepositoryCustom {
 
     Flux<Movement> findByAccountIdOrderByDateDesc(Long accountId);
 
-    Flux<Movement> findByAccountIdOrderByDateAsc(Long accountId);
+    /**
+     * Reads a movement by its whole primary key. The date confines the lookup to the partition of
+     * its month, where {@link #findById} has to probe the primary key of every partition.
+     */
+    @Query("select * from movement where id = :id and movement_date = :date")
+    Mono<Movement> findByIdAndDate(@Param("id") Long id, @Param("date") LocalDate date);
+
+    @Modifying
+    @Query("update movement set movement_type = :type, value = :value, balance = :balance where id = :id and movement_date = :date")
+    Mono<Integer> updateByIdAndDate(@Param("id") Long id, @Param("date") LocalDate date, @Param("type") MovementRequest.TypeEnum type,
+                                    @Param("value") BigDecimal value, @Param("balance") BigDecimal balance);
+
+    @Modifying
+    @Query("delete from movement where id = :id and movement_date = :date")
+    Mono<Integer> deleteByIdAndDate(@Param("id") Long id, @Param("date") LocalDate date);
+
+    Flux<Movement> findByAccountIdOrderBySeqAsc(Long accountId);
+
+    /**
+     * Whether the account has any movement, archived ones included.
+     */
+    @Query("select exists (select 1 from movement_history where account_id = :accountId)")
+    Mono<Boolean> existsInHistoryByAccountId(@Param("accountId") Long accountId);
 
     @Query("Select * from movement where account_id = :accountId order by 1 desc limit 1")
     Mono<Movement> findLastTransactionByAccountId(@Param("accountId") Long accountId);
 
-    @Query("Select * from movement where movement_date Between :startDate and :endDate and account_id= :customerId order by id asc")
-    Flux<Movement> findTransactionByDateRangeAndCustomerId(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate, @Param("customerId") Long customerId);
+    @Query("select * from movement order by movement_date, id limit :limit")
+    Flux<Movement> findFirstPage(@Param("limit") int limit);
+
+    @Query("select * from movement where (movement_date, id) > (:afterDate, :afterId) order by movement_date, id limit :limit")
+    Flux<Movement> findPageAfter(@Param("afterDate") LocalDate afterDate, @Param("afterId") Long afterId, @Param("limit") int limit);
+
+    @Modifying
+    @Query("update movement set balance = balance + :delta where account_id = :accountId and seq > :seq")
+    Mono<Integer> shiftBalancesAfter(@Param("accountId") Long accountId, @Param("seq") Long seq, @Param("delta") BigDecimal delta);
+
+    /**
+     * Creates the monthly partitions missing from the month of fromDate to the one of toDate and
+     * returns how many were created.
+     */
+    @Query("select create_movement_partitions(:fromDate, :toDate)")
+    Mono<Integer> createPartitions(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    /**
+     * Moves the monthly partitions of the months before the one of beforeDate to the archive and
+     * returns how many were archived.
+     */
+    @Query("select archive_movement_partitions(:beforeDate)")
+    Mono<Integer> archivePartitionsBefore(@Param("beforeDate") LocalDate beforeDate);
 }
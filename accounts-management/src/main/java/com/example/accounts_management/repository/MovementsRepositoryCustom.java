@@ -0,0 +1,29 @@
+package com.example.accounts_management.repository;
+
+import com.example.accounts_management.infrastructure.dto.AccountStatementResponse;
+import com.example.accounts_management.infrastructure.dto.MovementResponse;
+import com.example.accounts_management.model.Movement;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface MovementsRepositoryCustom {
+
+    /**
+     * Inserts the movements with multi-row statements and emits them with their generated id.
+     */
+    Flux<Movement> insertAll(List<Movement> movements);
+
+    /**
+     * Streams the movements of every account of the customer within the date range, already
+     * joined with their account and customer, ordered by account, date and id.
+     */
+    Flux<MovementResponse> findReportRows(Long customerId, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Computes, for every account of the customer, the balances at the start and at the end of
+     * the date range and the totals per movement type within it, in one aggregate query.
+     */
+    Flux<AccountStatementResponse> findAccountStatements(Long customerId, LocalDate startDate, LocalDate endDate);
+}
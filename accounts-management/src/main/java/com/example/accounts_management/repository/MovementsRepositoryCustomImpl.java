@@ -0,0 +1,155 @@
+package com.example.accounts_management.repository;
+
+import com.example.accounts_management.infrastructure.dto.AccountStatementResponse;
+import com.example.accounts_management.infrastructure.dto.MovementRequest;
+import com.example.accounts_management.infrastructure.dto.MovementResponse;
+import com.example.accounts_management.model.Movement;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MovementsRepositoryCustomImpl implements MovementsRepositoryCustom {
+
+    /**
+     * Keeps each statement well below the bind parameter limit of PostgreSQL.
+     */
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    /**
+     * Walks the (account_id, movement_date, id) index of each account of the customer, in the
+     * monthly partitions of the range only; the columns it includes make it an index-only scan.
+     * Archived months are read from movement_archive by account and month.
+     */
+    static final String REPORT_ROWS = """
+            select m.id, m.movement_date, m.movement_type, m.value, m.balance, m.account_id,
+                   a.initial_balance, a.status, c.customer_name
+            from account a
+            join customer_snapshot c on c.id = a.customer_id
+            join movement_history m on m.account_id = a.id
+            where a.customer_id = :customerId
+              and m.movement_date between :startDate and :endDate
+              and m.movement_month between cast(date_trunc('month', cast(:startDate as date)) as date) and :endDate
+            order by m.account_id, m.movement_date, m.id
+            """;
+
+    /**
+     * Movements before the range only feed the opening balance, the ones within it feed the
+     * closing balance and the totals. Accounts without movements still get a statement. The
+     * partitions of the months after the range are not read.
+     */
+    static final String ACCOUNT_STATEMENTS = """
+            select a.id as account_id, a.account_number, c.customer_name,
+                   coalesce(a.initial_balance, 0) + coalesce(sum(case when m.movement_type = 'WITHDRAWAL' then -m.value else m.value end)
+                       filter (where m.movement_date < :startDate), 0) as opening_balance,
+                   coalesce(a.initial_balance, 0) + coalesce(sum(case when m.movement_type = 'WITHDRAWAL' then -m.value else m.value end), 0) as closing_balance,
+                   coalesce(sum(m.value) filter (where m.movement_type = 'DEPOSIT' and m.movement_date >= :startDate), 0) as total_deposits,
+                   coalesce(sum(m.value) filter (where m.movement_type = 'WITHDRAWAL' and m.movement_date >= :startDate), 0) as total_withdrawals,
+                   count(m.id) filter (where m.movement_date >= :startDate) as movement_count
+            from account a
+            join customer_snapshot c on c.id = a.customer_id
+            left join movement_history m on m.account_id = a.id and m.movement_date <= :endDate and m.movement_month <= :endDate
+            where a.customer_id = :customerId
+            group by a.id, a.account_number, a.initial_balance, c.customer_name
+            order by a.id
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    public MovementsRepositoryCustomImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Flux<Movement> insertAll(List<Movement> movements) {
+        List<List<Movement>> chunks = new ArrayList<>();
+        for (int from = 0; from < movements.size(); from += MAX_ROWS_PER_STATEMENT) {
+            chunks.add(movements.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, movements.size())));
+        }
+
+        return Flux.fromIterable(chunks)
+                .concatMap(this::insertChunk);
+    }
+
+    private Flux<Movement> insertChunk(List<Movement> chunk) {
+        StringBuilder sql = new StringBuilder("insert into movement (movement_date, movement_type, value, balance, account_id, seq) values ");
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "" : ", ")
+                    .append("(:date").append(i)
+                    .append(", :type").append(i)
+                    .append(", :value").append(i)
+                    .append(", :balance").append(i)
+                    .append(", :accountId").append(i)
+                    .append(", :seq").append(i).append(")");
+        }
+        sql.append(" returning id, account_id, seq");
+
+        DatabaseClient.GenericExecuteSpec statement = databaseClient.sql(sql.toString());
+        Map<String, Movement> bySeq = new HashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Movement movement = chunk.get(i);
+            bySeq.put(movement.getAccountId() + ":" + movement.getSeq(), movement);
+            statement = statement
+                    .bind("date" + i, movement.getDate())
+                    .bind("type" + i, movement.getType().name())
+                    .bind("value" + i, movement.getValue())
+                    .bind("balance" + i, movement.getBalance())
+                    .bind("accountId" + i, movement.getAccountId())
+                    .bind("seq" + i, movement.getSeq());
+        }
+
+        // Rows are matched back by (account_id, seq), which is unique, not by returning order.
+        return statement
+                .map((row, metadata) -> {
+                    Movement movement = bySeq.get(row.get("account_id", Long.class) + ":" + row.get("seq", Long.class));
+                    movement.setId(row.get("id", Long.class));
+                    return movement;
+                })
+                .all();
+    }
+
+    @Override
+    public Flux<MovementResponse> findReportRows(Long customerId, LocalDate startDate, LocalDate endDate) {
+        return databaseClient.sql(REPORT_ROWS)
+                .bind("customerId", customerId)
+                .bind("startDate", startDate)
+                .bind("endDate", endDate)
+                .map((row, metadata) -> Movement.fromMovement(
+                        Movement.builder()
+                                .id(row.get("id", Long.class))
+                                .date(row.get("movement_date", LocalDate.class))
+                                .type(MovementRequest.TypeEnum.fromValue(row.get("movement_type", String.class)))
+                                .value(row.get("value", BigDecimal.class))
+                                .balance(row.get("balance", BigDecimal.class))
+                                .accountId(row.get("account_id", Long.class))
+                                .build(),
+                        row.get("customer_name", String.class),
+                        row.get("status", Boolean.class),
+                        row.get("initial_balance", BigDecimal.class)))
+                .all();
+    }
+
+    @Override
+    public Flux<AccountStatementResponse> findAccountStatements(Long customerId, LocalDate startDate, LocalDate endDate) {
+        return databaseClient.sql(ACCOUNT_STATEMENTS)
+                .bind("customerId", customerId)
+                .bind("startDate", startDate)
+                .bind("endDate", endDate)
+                .map((row, metadata) -> AccountStatementResponse.builder()
+                        .accountId(row.get("account_id", Long.class))
+                        .accountNumber(row.get("account_number", String.class))
+                        .customer(row.get("customer_name", String.class))
+                        .openingBalance(row.get("opening_balance", BigDecimal.class))
+                        .closingBalance(row.get("closing_balance", BigDecimal.class))
+                        .totalDeposits(row.get("total_deposits", BigDecimal.class))
+                        .totalWithdrawals(row.get("total_withdrawals", BigDecimal.class))
+                        .movementCount(row.get("movement_count", Long.class))
+                        .build())
+                .all();
+    }
+}
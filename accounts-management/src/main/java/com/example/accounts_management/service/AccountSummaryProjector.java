@@ -0,0 +1,46 @@
+package com.example.accounts_management.service;
+
+import com.example.accounts_management.repository.AccountSummaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps the balances and movement totals of the account summaries up to date from the movement
+ * events. The movement writes only append an event, so they do not wait on the summaries, and
+ * the summaries trail them by up to the poll interval. Each run drains the pending events in
+ * batches; several instances can run it at the same time, each consuming different events.
+ */
+@Component
+@Slf4j
+public class AccountSummaryProjector {
+
+    private final AccountSummaryRepository accountSummaryRepository;
+    private final int batchSize;
+
+    public AccountSummaryProjector(AccountSummaryRepository accountSummaryRepository,
+                                   @Value("${accounts.account-summary.batch-size:1000}") int batchSize) {
+        this.accountSummaryRepository = accountSummaryRepository;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${accounts.account-summary.poll-interval-ms:200}")
+    public void project() {
+        try {
+            Integer applied = drain().block();
+            if (applied != null && applied > 0) {
+                log.debug("Applied {} movement events to the account summaries", applied);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error to apply movement events to the account summaries: ", e);
+        }
+    }
+
+    public Mono<Integer> drain() {
+        return accountSummaryRepository.applyMovementEvents(batchSize)
+                .expand(applied -> applied < batchSize ? Mono.empty() : accountSummaryRepository.applyMovementEvents(batchSize))
+                .reduce(0, Integer::sum);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.accounts_management.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serializes writes per account. Every account is hashed to one of a fixed number of lanes and
+ * each lane runs its work one item at a time, while different lanes run independently. This
+ * keeps two movements on the same account from reading the same previous balance without
+ * serializing writes on unrelated accounts.
+ */
+@Component
+public class AccountWriteLanes {
+
+    private static final Duration EMIT_TIMEOUT = Duration.ofSeconds(5);
+
+    private final List<Sinks.Many<Mono<Void>>> lanes;
+    private final List<Disposable> workers;
+
+    public AccountWriteLanes(@Value("${accounts.write-lanes:64}") int laneCount) {
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("accounts.write-lanes must be at least 1");
+        }
+        this.lanes = new ArrayList<>(laneCount);
+        this.workers = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            Sinks.Many<Mono<Void>> lane = Sinks.many().unicast().onBackpressureBuffer();
+            lanes.add(lane);
+            workers.add(lane.asFlux().concatMap(work -> work, 1).subscribe());
+        }
+    }
+
+    /**
+     * Runs the given work on the lane of the account once the work submitted before it on the
+     * same lane has finished. The returned Mono relays the outcome of the work.
+     */
+    public <T> Mono<T> submit(Long accountId, Mono<T> work) {
+        return Mono.defer(() -> {
+            Sinks.One<T> result = Sinks.one();
+            Mono<Void> task = work
+                    .doOnSuccess(value -> {
+                        if (value == null) {
+                            result.tryEmitEmpty();
+                        } else {
+                            result.tryEmitValue(value);
+                        }
+                    })
+                    .doOnError(result::tryEmitError)
+                    .onErrorResume(error -> Mono.empty())
+                    .then();
+
+            laneOf(accountId).emitNext(task, Sinks.EmitFailureHandler.busyLooping(EMIT_TIMEOUT));
+            return result.asMono();
+        });
+    }
+
+    private Sinks.Many<Mono<Void>> laneOf(Long accountId) {
+        return lanes.get(Math.floorMod(Long.hashCode(accountId), lanes.size()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.forEach(lane -> lane.tryEmitComplete());
+        workers.forEach(Disposable::dispose);
+    }
+}
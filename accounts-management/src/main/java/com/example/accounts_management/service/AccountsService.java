@@ -1,67 +1,115 @@
 package com.example.accounts_management.service;
 
 import com.example.accounts_management.exception.custom.BusinessException;
+import com.example.accounts_management.infrastructure.dto.AccountBalanceResponse;
 import com.example.accounts_management.infrastructure.dto.AccountRequest;
 import com.example.accounts_management.infrastructure.dto.AccountResponse;
 import com.example.accounts_management.model.Account;
+import com.example.accounts_management.model.AccountSummary;
+import com.example.accounts_management.model.CursorPage;
+import com.example.accounts_management.model.Money;
+import com.example.accounts_management.model.PageCursor;
+import com.example.accounts_management.repository.AccountDailyBalanceRepository;
+import com.example.accounts_management.repository.AccountSummaryRepository;
 import com.example.accounts_management.repository.AccountsRepository;
-import com.example.accounts_management.repository.CustomerSnapshotRepository;
 import com.example.accounts_management.repository.MovementsRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
 @Service
 public class AccountsService {
 
     private final AccountsRepository accountsRepository;
-    private final CustomerSnapshotRepository customerSnapshotRepository;
+    private final CustomerSnapshotCache customerSnapshotCache;
     private final MovementsRepository movementsRepository;
+    private final AccountDailyBalanceRepository accountDailyBalanceRepository;
+    private final AccountSummaryRepository accountSummaryRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final int maxPageSize;
 
-    public AccountsService(AccountsRepository accountsRepository, CustomerSnapshotRepository customerSnapshotRepository, MovementsRepository movementsRepository) {
+    public AccountsService(AccountsRepository accountsRepository, CustomerSnapshotCache customerSnapshotCache, MovementsRepository movementsRepository, AccountDailyBalanceRepository accountDailyBalanceRepository, AccountSummaryRepository accountSummaryRepository, TransactionalOperator transactionalOperator,
+                           @Value("${accounts.pagination.max-page-size:500}") int maxPageSize) {
         this.accountsRepository = accountsRepository;
-        this.customerSnapshotRepository = customerSnapshotRepository;
+        this.customerSnapshotCache = customerSnapshotCache;
         this.movementsRepository = movementsRepository;
+        this.accountDailyBalanceRepository = accountDailyBalanceRepository;
+        this.accountSummaryRepository = accountSummaryRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.maxPageSize = maxPageSize;
     }
 
+    /**
+     * Reads the summary of the account, which already holds the customer name and the current
+     * balance. The balance trails the latest movements by the projection interval.
+     */
     public Mono<AccountResponse> findById(Long accountId) {
-        return accountsRepository.findById(accountId)//Mono<Account>
+        return accountSummaryRepository.findById(accountId) //Mono<AccountSummary>
                 .switchIfEmpty(Mono.error(new BusinessException(HttpStatus.NOT_FOUND, "Account not found")))
-                .flatMap(account ->
-                        customerSnapshotRepository.findById(account.getCustomerId()) //Mono<CustomerSnapshot>
-                                .flatMap(cs -> Mono.just(Account.fromAccount(account, cs.getCustomerName())))
-
-                );
+                .map(AccountSummary::toAccountResponse);
     }
 
-    public Flux<AccountResponse> findAll() {
-        return accountsRepository.findAll()
-                .flatMap(account -> customerSnapshotRepository.findById(account.getCustomerId()) //Mono<CustomerSnapshot>
-                        .flatMap(cs -> Mono.just(Account.fromAccount(account, cs.getCustomerName()))));
+    /**
+     * Reads the page of accounts after the cursor, ordered by id and joined with their customer
+     * name and summary in a single query, so each account comes with its balance like in
+     * {@link #findById}. One row more than the page is read to know whether another page follows.
+     */
+    public Mono<CursorPage<AccountResponse>> findPage(String cursor, Integer limit) {
+        int pageSize = limit == null ? maxPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+        return Mono.fromCallable(() -> cursor == null ? 0L : PageCursor.decode(cursor, keys -> Long.valueOf(keys[0])))
+                .flatMapMany(afterId -> accountsRepository.findResponsePageAfter(afterId, pageSize + 1))
+                .collectList()
+                .map(accounts -> {
+                    boolean hasNextPage = accounts.size() > pageSize;
+                    List<AccountResponse> page = hasNextPage ? accounts.subList(0, pageSize) : accounts;
+                    String nextCursor = hasNextPage ? PageCursor.encode(page.get(page.size() - 1).getId()) : null;
+                    return new CursorPage<>(page, nextCursor);
+                });
     }
 
+    /**
+     * Reads the summaries of the accounts of the customer. The customer snapshot is only looked
+     * up when there are none, to tell a customer without accounts from an unknown one.
+     */
     public Flux<AccountResponse> findByCustomerId(Long customerId) {
-        return customerSnapshotRepository.findById(customerId) //Mono<CustomerSnapshot>
-                .switchIfEmpty(Mono.error(new BusinessException(HttpStatus.NOT_FOUND, "Customer not found")))
-                .flatMapMany(customerSnapshot ->
-                        accountsRepository
-                                .findByCustomerId(customerId) // Flux<Account>
-                                .map(account ->
-                                        Account.fromAccount(
-                                                account,
-                                                customerSnapshot.getCustomerName()
-                                        )
-                                )
-                );
+        return accountSummaryRepository.findByCustomerId(customerId) // Flux<AccountSummary>
+                .map(AccountSummary::toAccountResponse)
+                .switchIfEmpty(Flux.defer(() -> customerSnapshotCache.get(customerId) //Mono<CustomerSnapshot>
+                        .switchIfEmpty(Mono.error(new BusinessException(HttpStatus.NOT_FOUND, "Customer not found")))
+                        .thenMany(Flux.empty())));
+    }
+
+    /**
+     * Balance of the account at the end of the given day, today when no day is given. It is read
+     * from the daily rollups, without scanning the movements of the account.
+     */
+    public Mono<AccountBalanceResponse> getBalance(Long accountId, LocalDate asOf) {
+        LocalDate balanceDate = asOf == null ? LocalDate.now() : asOf;
+
+        return accountsRepository.findById(accountId)
+                .switchIfEmpty(Mono.error(new BusinessException(HttpStatus.NOT_FOUND, "Account not found")))
+                .flatMap(account -> accountDailyBalanceRepository.findBalanceAsOf(accountId, balanceDate)
+                        .defaultIfEmpty(account.getInitialBalance() == null ? BigDecimal.ZERO : account.getInitialBalance())
+                        .map(balance -> AccountBalanceResponse.builder()
+                                .accountId(accountId)
+                                .asOf(balanceDate)
+                                .balance(balance)
+                                .build()));
     }
 
     public Mono<Void> deleteById(Long accountId) {
         return findById(accountId)
                 .switchIfEmpty(Mono.error(new BusinessException(HttpStatus.NOT_FOUND, "Account not found")))
                 .flatMap(accountResponse ->
-                        movementsRepository.findByAccountIdOrderByDateDesc(accountResponse.getId())
-                                .hasElements() // Mono<Boolean>
+                        movementsRepository.existsInHistoryByAccountId(accountResponse.getId())
                                 .flatMap(hasMovements -> {
                                     if (hasMovements) {
                                         return Mono.error(
@@ -75,8 +123,8 @@ public class AccountsService {
     }
 
     public Mono<AccountResponse> save(AccountRequest accountRequest) {
-        return customerSnapshotRepository
-                .findById(accountRequest.getCustomerId())
+        return checkInitialBalance(accountRequest)
+                .then(Mono.defer(() -> customerSnapshotCache.get(accountRequest.getCustomerId())))
                 .switchIfEmpty(Mono.error(new BusinessException(HttpStatus.NOT_FOUND, "Customer not found")))
                 .flatMap(customerSnapshot ->
                         accountsRepository.findByAccountNumber(accountRequest.getAccountNumber()) //Mono<Account>
@@ -87,7 +135,9 @@ public class AccountsService {
                                 .switchIfEmpty(
                                         Mono.defer(() ->
                                                 accountsRepository.save(Account.fromAccountRequest(accountRequest))
-                                                        .flatMap(savedAccount -> Mono.just(Account.fromAccount(savedAccount, customerSnapshot.getCustomerName())))
+                                                        .flatMap(savedAccount -> accountSummaryRepository.refresh(savedAccount.getId()))
+                                                        .map(AccountSummary::toAccountResponse)
+                                                        .as(transactionalOperator::transactional)
                                         )
                                 )
                 );
@@ -123,28 +173,37 @@ public class AccountsService {
     }
 
     public Mono<AccountResponse> update(Long id, AccountRequest accountRequest) {
-        return findById(id)
+        return checkInitialBalance(accountRequest)
+                .then(Mono.defer(() -> findById(id)))
                 .switchIfEmpty(Mono.error(new BusinessException(HttpStatus.NOT_FOUND, "Account not found")))
                 .flatMap(accountResponse -> {
                     Account account = Account.fromAccountRequest(accountRequest);
                     account.setId(id);
                     return accountsRepository.save(account)
                             .flatMap(savedAccount ->
-                                    customerSnapshotRepository
-                                            .findById(savedAccount.getCustomerId())
+                                    accountSummaryRepository
+                                            .refresh(savedAccount.getId())
                                             .switchIfEmpty(Mono.error(
                                                     new BusinessException(
                                                             HttpStatus.NOT_FOUND,
                                                             "Customer not found"
                                                     )
                                             ))
-                                            .map(cs ->
-                                                    Account.fromAccount(
-                                                            savedAccount,
-                                                            cs.getCustomerName()
-                                                    )
-                                            )
-                            );
+                                            .map(AccountSummary::toAccountResponse)
+                            )
+                            .as(transactionalOperator::transactional);
                 });
     }
+
+    /**
+     * Rejects an initial balance the balances cannot be computed from, such as one with a
+     * fraction of a cent, before anything is read or written.
+     */
+    private static Mono<Void> checkInitialBalance(AccountRequest accountRequest) {
+        return Mono.fromRunnable(() -> {
+            if (accountRequest.getInitialBalance() != null) {
+                Money.of(accountRequest.getInitialBalance());
+            }
+        });
+    }
 }
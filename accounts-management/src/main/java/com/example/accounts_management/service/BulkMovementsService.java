@@ -0,0 +1,270 @@
+package com.example.accounts_management.service;
+
+import com.example.accounts_management.infrastructure.dto.BulkMovementRequest;
+import com.example.accounts_management.infrastructure.dto.BulkMovementResult;
+import com.example.accounts_management.infrastructure.dto.MovementRequest;
+import com.example.accounts_management.model.Account;
+import com.example.accounts_management.model.Money;
+import com.example.accounts_management.model.Movement;
+import com.example.accounts_management.repository.AccountDailyBalanceRepository;
+import com.example.accounts_management.repository.AccountsRepository;
+import com.example.accounts_management.repository.LedgerHeadRepository;
+import com.example.accounts_management.repository.MovementEventRepository;
+import com.example.accounts_management.repository.MovementsRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.spi.R2dbcTimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Ingests a stream of movements in chunks. Within a chunk the movements are grouped by account
+ * and each group is written in one transaction: one ledger head update, multi-row inserts and
+ * one daily rollup update per date, and one movement event for the whole group, so the round
+ * trips follow the accounts and not the lines.
+ */
+@Service
+@Slf4j
+public class BulkMovementsService {
+
+    private final AccountsRepository accountsRepository;
+    private final MovementsRepository movementsRepository;
+    private final LedgerHeadRepository ledgerHeadRepository;
+    private final AccountDailyBalanceRepository accountDailyBalanceRepository;
+    private final MovementEventRepository movementEventRepository;
+    private final AccountWriteLanes accountWriteLanes;
+    private final TransactionalOperator transactionalOperator;
+    private final ObjectMapper objectMapper;
+    /**
+     * Lines read from the request before they are written. Bounds the memory held per request
+     * and the size of the account groups.
+     */
+    private final int chunkSize;
+    /**
+     * Account groups of a chunk written at once. Each holds a connection for its transaction,
+     * so more than the pool size only queues for connections and risks the acquire timeout.
+     */
+    private final int concurrency;
+
+    public BulkMovementsService(AccountsRepository accountsRepository, MovementsRepository movementsRepository, LedgerHeadRepository ledgerHeadRepository, AccountDailyBalanceRepository accountDailyBalanceRepository, MovementEventRepository movementEventRepository, AccountWriteLanes accountWriteLanes, TransactionalOperator transactionalOperator, ObjectMapper objectMapper,
+                                @Value("${accounts.movements.bulk.chunk-size:1000}") int chunkSize,
+                                @Value("${accounts.movements.bulk.concurrency:${spring.r2dbc.pool.max-size:10}}") int concurrency) {
+        this.accountsRepository = accountsRepository;
+        this.movementsRepository = movementsRepository;
+        this.ledgerHeadRepository = ledgerHeadRepository;
+        this.accountDailyBalanceRepository = accountDailyBalanceRepository;
+        this.movementEventRepository = movementEventRepository;
+        this.accountWriteLanes = accountWriteLanes;
+        this.transactionalOperator = transactionalOperator;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Emits one result per line of JSON; blank lines are skipped. Results of rejected lines come
+     * first within their chunk, then the results of each account group once it is committed.
+     * Each line is parsed on its own, so a malformed one is rejected without failing the others.
+     */
+    public Flux<BulkMovementResult> ingest(Flux<String> lines) {
+        return lines
+                .index((index, text) -> parse(index + 1, text))
+                .filter(line -> line.request() != null || line.violation() != null)
+                .buffer(chunkSize)
+                .concatMap(this::ingestChunk);
+    }
+
+    private Flux<BulkMovementResult> ingestChunk(List<Line> chunk) {
+        List<BulkMovementResult> rejected = new ArrayList<>();
+        List<Line> valid = new ArrayList<>();
+        for (Line line : chunk) {
+            String violation = line.violation() == null ? validate(line.request()) : line.violation();
+            if (violation == null) {
+                valid.add(line);
+            } else {
+                rejected.add(rejected(line, violation));
+            }
+        }
+
+        Set<Long> accountIds = valid.stream()
+                .map(line -> line.request().getAccountId())
+                .collect(Collectors.toSet());
+
+        Flux<BulkMovementResult> written = accountIds.isEmpty()
+                ? Flux.empty()
+                : accountsRepository.findAllById(accountIds)
+                .collectMap(Account::getId)
+                .flatMapMany(accounts -> {
+                    Map<Long, List<Line>> groups = valid.stream()
+                            .collect(Collectors.groupingBy(line -> line.request().getAccountId(), LinkedHashMap::new, Collectors.toList()));
+
+                    return Flux.fromIterable(groups.entrySet())
+                            .flatMapSequential(group -> {
+                                Account account = accounts.get(group.getKey());
+                                return account == null
+                                        ? Flux.fromIterable(group.getValue()).map(line -> rejected(line, "Account not found"))
+                                        : writeGroup(account, group.getValue());
+                            }, concurrency);
+                });
+
+        return Flux.fromIterable(rejected).concatWith(written);
+    }
+
+    /**
+     * Writes the movements of one account in their order in the request. The ledger head is
+     * advanced once by the total of the group and the running balances are computed back from
+     * it, in minor units. A failure rolls back the whole group and rejects all of its lines.
+     */
+    private Flux<BulkMovementResult> writeGroup(Account account, List<Line> lines) {
+        Mono<List<Movement>> write = Mono.defer(() -> {
+            long[] deltas = new long[lines.size()];
+            Money total = Money.ZERO;
+            for (int i = 0; i < deltas.length; i++) {
+                Money delta = delta(lines.get(i).request());
+                deltas[i] = delta.minorUnits();
+                total = total.plus(delta);
+            }
+            Money groupTotal = total;
+
+            return ledgerHeadRepository.advanceBy(account.getId(), account.getInitialBalance(), groupTotal.toBigDecimal(), lines.size())
+                    .flatMap(ledgerHead -> {
+                        List<Movement> movements = toMovements(lines, deltas, Money.of(ledgerHead.getBalance()).minus(groupTotal), ledgerHead.getLastSeq() - lines.size());
+
+                        TreeMap<LocalDate, Money> deltasByDate = new TreeMap<>();
+                        for (int i = 0; i < movements.size(); i++) {
+                            deltasByDate.merge(movements.get(i).getDate(), new Money(deltas[i]), Money::plus);
+                        }
+
+                        return movementsRepository.insertAll(movements)
+                                .then(Flux.fromIterable(deltasByDate.entrySet())
+                                        .concatMap(entry -> accountDailyBalanceRepository.applyDelta(account.getId(), entry.getKey(), entry.getValue().toBigDecimal()))
+                                        .then())
+                                .then(movementEventRepository.append(account.getId(), deltasByDate.lastKey(), groupTotal.toBigDecimal(), movements.size()))
+                                .thenReturn(movements);
+                    })
+                    .as(transactionalOperator::transactional);
+        });
+
+        return accountWriteLanes.submit(account.getId(), write)
+                .flatMapMany(movements -> Flux.range(0, movements.size())
+                        .map(i -> created(lines.get(i), movements.get(i))))
+                .onErrorResume(error -> {
+                    log.error("Error writing {} movements of account {}", lines.size(), account.getId(), error);
+                    return Flux.fromIterable(lines).map(line -> rejected(line, failure(error)));
+                });
+    }
+
+    /**
+     * Message of a failed group. The cause is logged, not returned, since driver errors carry
+     * SQL and schema details.
+     */
+    private static String failure(Throwable error) {
+        return error instanceof DataAccessResourceFailureException || error instanceof CannotCreateTransactionException || error instanceof R2dbcTimeoutException
+                ? "Database connection unavailable, retry later"
+                : "Movements of the account could not be written";
+    }
+
+    private List<Movement> toMovements(List<Line> lines, long[] deltas, Money openingBalance, long openingSeq) {
+        List<Movement> movements = new ArrayList<>(lines.size());
+        long runningBalance = openingBalance.minorUnits();
+        for (int i = 0; i < lines.size(); i++) {
+            BulkMovementRequest request = lines.get(i).request();
+            runningBalance = Math.addExact(runningBalance, deltas[i]);
+            movements.add(Movement.builder()
+                    .date(request.getDate() == null ? LocalDate.now() : request.getDate())
+                    .type(MovementRequest.TypeEnum.fromValue(request.getType().getValue()))
+                    .value(request.getValue())
+                    .balance(new Money(runningBalance).toBigDecimal())
+                    .accountId(request.getAccountId())
+                    .seq(openingSeq + i + 1)
+                    .build());
+        }
+        return movements;
+    }
+
+    private Line parse(long number, String text) {
+        if (text.isBlank()) {
+            return new Line(number, null, null);
+        }
+        try {
+            return new Line(number, objectMapper.readValue(text, BulkMovementRequest.class), null);
+        } catch (JsonMappingException e) {
+            String field = e.getPath().isEmpty() ? null : e.getPath().get(e.getPath().size() - 1).getFieldName();
+            return new Line(number, null, field == null ? "Line is not a movement object" : field + " has an invalid value");
+        } catch (JsonProcessingException e) {
+            return new Line(number, null, "Line is not valid JSON");
+        }
+    }
+
+    /**
+     * Applies the constraints of {@link MovementRequest} to a line.
+     */
+    private String validate(BulkMovementRequest request) {
+        if (request.getType() == null) {
+            return "type is required";
+        }
+        if (request.getValue() == null) {
+            return "value is required";
+        }
+        try {
+            Money.of(request.getValue());
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        if (request.getAccountId() == null) {
+            return "accountId is required";
+        }
+        if (request.getAccountId() <= 0) {
+            return "accountId must be greater than 0";
+        }
+        return null;
+    }
+
+    private Money delta(BulkMovementRequest request) {
+        Money value = Money.of(request.getValue());
+        return BulkMovementRequest.TypeEnum.WITHDRAWAL.equals(request.getType())
+                ? value.negate()
+                : value;
+    }
+
+    private BulkMovementResult created(Line line, Movement movement) {
+        return BulkMovementResult.builder()
+                .line(line.number())
+                .status(BulkMovementResult.StatusEnum.CREATED)
+                .movementId(movement.getId())
+                .accountId(movement.getAccountId())
+                .balance(movement.getBalance())
+                .build();
+    }
+
+    private BulkMovementResult rejected(Line line, String message) {
+        return BulkMovementResult.builder()
+                .line(line.number())
+                .status(BulkMovementResult.StatusEnum.REJECTED)
+                .accountId(line.request() == null ? null : line.request().getAccountId())
+                .message(message)
+                .build();
+    }
+
+    /**
+     * A line of the request, with its movement or, when it could not be parsed, the reason.
+     */
+    private record Line(long number, BulkMovementRequest request, String violation) {
+    }
+}
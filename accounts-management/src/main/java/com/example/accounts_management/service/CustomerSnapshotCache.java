@@ -0,0 +1,73 @@
+package com.example.accounts_management.service;
+
+import com.example.accounts_management.model.CustomerSnapshot;
+import com.example.accounts_management.repository.CustomerSnapshotRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-through cache of customer snapshots. Snapshots only change when a customer event is
+ * consumed, and {@link CustomerSnapshotService} refreshes the cache when that happens.
+ */
+@Component
+public class CustomerSnapshotCache {
+
+    private final CustomerSnapshotRepository customerSnapshotRepository;
+    private final AsyncCache<Long, CustomerSnapshot> cache;
+
+    public CustomerSnapshotCache(CustomerSnapshotRepository customerSnapshotRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${accounts.customer-snapshot-cache.maximum-size:10000}") long maximumSize,
+                                 @Value("${accounts.customer-snapshot-cache.expire-after-write:PT10M}") Duration expireAfterWrite) {
+        this.customerSnapshotRepository = customerSnapshotRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+        new CaffeineCacheMetrics<>(cache.synchronous(), "customer-snapshots", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    public Mono<CustomerSnapshot> get(Long customerId) {
+        return Mono.fromFuture(() -> cache.get(customerId, (id, executor) -> customerSnapshotRepository.findById(id).toFuture()), true);
+    }
+
+    /**
+     * Returns the snapshots found for the given ids, loading every missing one with a single
+     * repository query. Ids without a snapshot are left out of the map.
+     */
+    public Mono<Map<Long, CustomerSnapshot>> getAll(Set<Long> customerIds) {
+        return Mono.fromFuture(() -> cache.getAll(customerIds, (missingIds, executor) ->
+                customerSnapshotRepository.findAllById(List.copyOf(missingIds))
+                        .collectMap(CustomerSnapshot::getId)
+                        .toFuture()), true);
+    }
+
+    /**
+     * Caches the snapshot unless a newer version of it is already cached, so a stale event that
+     * the database ignored does not overwrite the cached name either.
+     */
+    public void put(CustomerSnapshot customerSnapshot) {
+        cache.synchronous().asMap().merge(customerSnapshot.getId(), customerSnapshot,
+                (cached, written) -> isNewer(cached, written) ? cached : written);
+    }
+
+    public void invalidate(Long customerId) {
+        cache.synchronous().invalidate(customerId);
+    }
+
+    private boolean isNewer(CustomerSnapshot cached, CustomerSnapshot written) {
+        return cached.getVersion() != null && written.getVersion() != null && cached.getVersion() > written.getVersion();
+    }
+}
@@ -1,60 +1,155 @@
 package com.example.accounts_management.service;
 
+import com.example.accounts_management.config.CustomerEventTracing;
+import com.example.accounts_management.model.CustomerEvent;
+import com.example.accounts_management.model.CustomerEventType;
 import com.example.accounts_management.model.CustomerSnapshot;
+import com.example.accounts_management.repository.AccountSummaryRepository;
 import com.example.accounts_management.repository.CustomerSnapshotRepository;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class CustomerSnapshotService {
 
     private final CustomerSnapshotRepository customerSnapshotRepository;
-    private final ObjectMapper objectMapper;
+    private final CustomerSnapshotCache customerSnapshotCache;
+    private final AccountSummaryRepository accountSummaryRepository;
+    private final CustomerEventTracing customerEventTracing;
+    /**
+     * Time from the change of the customer to its consumption here, so publishing and consumer
+     * lag both show up in it.
+     */
+    private final Timer eventDelay;
+    private final Counter unreadableEvents;
+    private final Counter unknownEvents;
 
-    public CustomerSnapshotService(CustomerSnapshotRepository customerSnapshotRepository, ObjectMapper objectMapper) {
+    public CustomerSnapshotService(CustomerSnapshotRepository customerSnapshotRepository, CustomerSnapshotCache customerSnapshotCache, AccountSummaryRepository accountSummaryRepository, CustomerEventTracing customerEventTracing, MeterRegistry meterRegistry) {
         this.customerSnapshotRepository = customerSnapshotRepository;
-        this.objectMapper = objectMapper;
+        this.customerSnapshotCache = customerSnapshotCache;
+        this.accountSummaryRepository = accountSummaryRepository;
+        this.customerEventTracing = customerEventTracing;
+        this.eventDelay = Timer.builder("customer.events.delay")
+                .description("Time from the customer change to its consumption")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.unreadableEvents = Counter.builder("customer.events.skipped")
+                .description("Customer events skipped without being applied")
+                .tag("reason", "unreadable")
+                .register(meterRegistry);
+        this.unknownEvents = Counter.builder("customer.events.skipped")
+                .description("Customer events skipped without being applied")
+                .tag("reason", "unknown-type")
+                .register(meterRegistry);
     }
 
+    /**
+     * Consumes a poll batch of customer events. Events are deduplicated by customer id, keeping
+     * the last one, and written with a single upsert. The listener returns, and the container
+     * commits the offsets of the batch, only once the write has completed; a failed write is
+     * thrown back to the container so the batch is delivered again. Payloads the deserializer
+     * could not read arrive as {@code null}, and events of a type added by a newer producer as
+     * {@link CustomerEventType#UNKNOWN}; both are logged, counted in
+     * {@code customer.events.skipped} and skipped, so they do not block the partition. Each record
+     * continues the trace of the change it carries, until the batch is written.
+     */
     @KafkaListener(topics = "${spring.kafka.topic}", groupId = "${spring.kafka.consumer.group-id}")
-    public void listen(String message) {
-        log.info("Received Message: {}", message);
+    public void listen(List<ConsumerRecord<String, CustomerEvent>> records) {
+        log.info("Received {} messages", records.size());
+        List<Span> spans = customerEventTracing.startConsumeSpans(records);
         try {
-            Map<String, String> event = objectMapper.readValue(message, new TypeReference<>() {
-            });
-
-            for (Map.Entry<String, String> entry : event.entrySet()) {
-                Long customerId = Long.valueOf(entry.getKey());
-                String customerName = entry.getValue();
+            write(records);
+        } catch (RuntimeException e) {
+            spans.forEach(span -> span.error(e));
+            throw e;
+        } finally {
+            spans.forEach(Span::end);
+        }
+    }
 
-                CustomerSnapshot snapshot = CustomerSnapshot.builder()
-                        .id(customerId)
-                        .customerName(customerName)
-                        .build();
+    private void write(List<ConsumerRecord<String, CustomerEvent>> records) {
+        Map<Long, CustomerEvent> lastEvents = new LinkedHashMap<>();
+        Instant now = Instant.now();
 
+        for (ConsumerRecord<String, CustomerEvent> record : records) {
+            CustomerEvent event = record.value();
+            if (event == null || event.getCustomerId() == null || event.getType() == null) {
+                unreadableEvents.increment();
+                continue;
+            }
+            if (event.getType() == CustomerEventType.UNKNOWN) {
+                log.warn("Skipping customer event of an unknown type for customer {} at offset {} of {}-{}",
+                        event.getCustomerId(), record.offset(), record.topic(), record.partition());
+                unknownEvents.increment();
+                continue;
+            }
+            if (event.getEventTime() != null) {
+                eventDelay.record(Duration.between(event.getEventTime(), now));
+            }
+            lastEvents.remove(event.getCustomerId());
+            lastEvents.put(event.getCustomerId(), event);
+        }
 
-                save(snapshot).subscribe(
-                        null,
-                        error -> log.error("Error saving customer snapshot: {}", error.getMessage(), error),
-                        () -> log.info("Customer snapshot saved successfully for ID: {}", customerId)
-                );
+        List<CustomerSnapshot> snapshots = new ArrayList<>();
+        List<Long> deletedCustomerIds = new ArrayList<>();
+        for (CustomerEvent event : lastEvents.values()) {
+            if (event.getType() == CustomerEventType.DELETED) {
+                deletedCustomerIds.add(event.getCustomerId());
+            } else {
+                snapshots.add(CustomerSnapshot.fromCustomerEvent(event));
             }
-        } catch (JsonProcessingException e) {
-            log.error("Error processing Kafka message", e);
-        } catch (NumberFormatException e) {
-            log.error("Error parsing customer ID", e);
         }
+
+        if (!snapshots.isEmpty()) {
+            saveAll(snapshots).block();
+            log.info("Customer snapshots saved successfully for IDs: {}", snapshots.stream().map(CustomerSnapshot::getId).toList());
+        }
+        if (!deletedCustomerIds.isEmpty()) {
+            deleteAll(deletedCustomerIds).block();
+            log.info("Customer snapshots deleted for IDs: {}", deletedCustomerIds);
+        }
+    }
+
+    /**
+     * Only the snapshots the upsert wrote are cached, so a stale event it ignored is not served
+     * from the cache even when nothing was cached for the customer. The stored names, not the
+     * ones of the events, are then copied to the account summaries, so a stale event does not
+     * reach them either.
+     */
+    public Mono<Void> saveAll(Collection<CustomerSnapshot> customerSnapshots) {
+        return customerSnapshotRepository.upsertAll(customerSnapshots)
+                .collect(Collectors.toSet())
+                .doOnSuccess(written -> customerSnapshots.stream()
+                        .filter(snapshot -> written.contains(snapshot.getId()))
+                        .forEach(customerSnapshotCache::put))
+                .doOnError(error -> customerSnapshots.forEach(snapshot -> customerSnapshotCache.invalidate(snapshot.getId())))
+                .then(Mono.defer(() -> accountSummaryRepository.refreshCustomerNames(customerSnapshots.stream().map(CustomerSnapshot::getId).toArray(Long[]::new))))
+                .then();
     }
 
-    public Mono<Void> save(CustomerSnapshot customerSnapshot) {
-        return customerSnapshotRepository.insertSnapshot(customerSnapshot).then();
+    /**
+     * Snapshots still referenced by an account are kept, so its listings keep the customer name.
+     */
+    public Mono<Void> deleteAll(Collection<Long> customerIds) {
+        return customerSnapshotRepository.deleteAllUnreferenced(customerIds)
+                .doFinally(ignored -> customerIds.forEach(customerSnapshotCache::invalidate))
+                .then();
     }
 }
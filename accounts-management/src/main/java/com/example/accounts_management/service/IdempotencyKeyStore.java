@@ -0,0 +1,155 @@
+package com.example.accounts_management.service;
+
+import com.example.accounts_management.exception.custom.BusinessException;
+import com.example.accounts_management.model.IdempotencyKey;
+import com.example.accounts_management.repository.IdempotencyKeyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Executes a write request at most once per idempotency key and hands the stored response to the
+ * retries. Completed keys are kept in the idempotency_key table for the ttl, the most recent ones
+ * also in memory. Duplicates arriving while the first request still executes wait for its
+ * response on this instance, and are rejected with a conflict when it executes on another one.
+ * <p>
+ * Only 2xx and 4xx responses are kept. A request that ends with a server error, fails without a
+ * response or is cancelled, e.g. because the client disconnected, releases its key, so that a
+ * retry executes again instead of getting a transient failure back for the whole ttl.
+ */
+@Component
+@Slf4j
+public class IdempotencyKeyStore {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final Duration ttl;
+    private final Cache<String, IdempotencyKey> cache;
+    private final Map<String, CompletableFuture<IdempotencyKey>> executing = new ConcurrentHashMap<>();
+    private final Counter released;
+
+    public IdempotencyKeyStore(IdempotencyKeyRepository idempotencyKeyRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${accounts.idempotency.ttl:PT24H}") Duration ttl,
+                               @Value("${accounts.idempotency.cache-size:10000}") long cacheSize) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.ttl = ttl;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        new CaffeineCacheMetrics<>(cache, "idempotency-keys", Tags.empty()).bindTo(meterRegistry);
+        this.released = meterRegistry.counter("idempotency.keys.released");
+    }
+
+    /**
+     * Runs the request unless its key was already used, and emits its response. The request is
+     * subscribed to at most once per key while the key is kept.
+     */
+    public Mono<Execution> execute(String key, Mono<IdempotencyKey> request) {
+        return Mono.defer(() -> {
+            IdempotencyKey cached = cache.getIfPresent(key);
+            if (cached != null) {
+                return Mono.just(new Execution(cached, true));
+            }
+
+            CompletableFuture<IdempotencyKey> response = new CompletableFuture<>();
+            CompletableFuture<IdempotencyKey> running = executing.putIfAbsent(key, response);
+            if (running != null) {
+                return Mono.fromFuture(running, true).map(stored -> new Execution(stored, true));
+            }
+
+            return claimAndExecute(key, request)
+                    .doOnNext(execution -> {
+                        if (isKept(execution.response())) {
+                            response.complete(execution.response());
+                        }
+                    })
+                    .doFinally(signal -> {
+                        executing.remove(key, response);
+                        response.completeExceptionally(conflict());
+                    });
+        });
+    }
+
+    private Mono<Execution> claimAndExecute(String key, Mono<IdempotencyKey> request) {
+        return idempotencyKeyRepository.claim(key, LocalDateTime.now())
+                .flatMap(claimed -> claimed > 0
+                        ? request.flatMap(response -> keep(key, response))
+                        .map(response -> new Execution(response, false))
+                        .onErrorResume(e -> release(key, "failed").then(Mono.error(e)))
+                        .doOnCancel(() -> release(key, "was cancelled").subscribe())
+                        : idempotencyKeyRepository.findById(key)
+                        .filter(IdempotencyKey::isCompleted)
+                        .doOnNext(stored -> cache.put(key, stored))
+                        .map(stored -> new Execution(stored, true))
+                        .switchIfEmpty(Mono.error(conflict())));
+    }
+
+    private Mono<IdempotencyKey> keep(String key, IdempotencyKey response) {
+        if (!isKept(response)) {
+            return release(key, "ended with " + response.getStatus()).thenReturn(response);
+        }
+        return idempotencyKeyRepository.complete(key, response.getRequestHash(), response.getStatus(), response.getContentType(), response.getBody())
+                .doOnSuccess(ignored -> cache.put(key, response))
+                .thenReturn(response);
+    }
+
+    /**
+     * Deletes the claim of a request without a response worth replaying, so that a retry with
+     * the key executes again. A claim that cannot be deleted stays until the key expires.
+     */
+    private Mono<Void> release(String key, String outcome) {
+        return idempotencyKeyRepository.deleteById(key)
+                .doOnSuccess(ignored -> {
+                    released.increment();
+                    log.warn("Request with idempotency key {} {}, the key was released", key, outcome);
+                })
+                .onErrorResume(e -> {
+                    log.error("Error to release the idempotency key {}: ", key, e);
+                    return Mono.empty();
+                });
+    }
+
+    private static boolean isKept(IdempotencyKey response) {
+        return !HttpStatusCode.valueOf(response.getStatus()).is5xxServerError();
+    }
+
+    private static BusinessException conflict() {
+        return new BusinessException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is in progress or ended without a response");
+    }
+
+    @Scheduled(fixedDelayString = "${accounts.idempotency.cleanup-interval:PT1H}")
+    public void removeExpired() {
+        try {
+            Integer removed = idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minus(ttl)).block();
+            if (removed != null && removed > 0) {
+                log.info("Removed {} expired idempotency keys", removed);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error to remove the expired idempotency keys: ", e);
+        }
+    }
+
+    /**
+     * Response of a request, and whether it comes from an earlier execution.
+     */
+    public record Execution(IdempotencyKey response, boolean replayed) {
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.accounts_management.service;
+
+import com.example.accounts_management.repository.MovementsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Keeps the monthly partitions of movement ahead of the calendar and moves the months past the
+ * retention to the archive, repeating until nothing is left, as each call drains at most one
+ * month of movement_legacy. Runs at startup and then periodically; the database functions take
+ * an advisory lock, so instances running it at the same time wait for each other.
+ */
+@Component
+@Slf4j
+public class MovementPartitionMaintenance {
+
+    private final MovementsRepository movementsRepository;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public MovementPartitionMaintenance(MovementsRepository movementsRepository,
+                                        @Value("${accounts.movements.partitions.months-ahead:3}") int monthsAhead,
+                                        @Value("${accounts.movements.partitions.retention-months:24}") int retentionMonths) {
+        this.movementsRepository = movementsRepository;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @Scheduled(fixedDelayString = "${accounts.movements.partitions.check-interval:PT6H}")
+    public void run() {
+        try {
+            maintain(LocalDate.now()).block();
+        } catch (RuntimeException e) {
+            log.error("Error to maintain the movement partitions: ", e);
+        }
+    }
+
+    Mono<Void> maintain(LocalDate today) {
+        Mono<Void> archive = retentionMonths <= 0
+                ? Mono.empty()
+                : Mono.defer(() -> movementsRepository.archivePartitionsBefore(today.withDayOfMonth(1).minusMonths(retentionMonths)))
+                .repeat()
+                .takeWhile(archived -> archived > 0)
+                .reduce(0, Integer::sum)
+                .filter(archived -> archived > 0)
+                .doOnNext(archived -> log.info("Archived {} movement partitions", archived))
+                .then();
+
+        return movementsRepository.createPartitions(today, today.plusMonths(monthsAhead))
+                .filter(created -> created > 0)
+                .doOnNext(created -> log.info("Created {} movement partitions", created))
+                .then(archive);
+    }
+}
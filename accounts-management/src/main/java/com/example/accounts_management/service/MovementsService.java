@@ -1,15 +1,24 @@
 package com.example.accounts_management.service;
 
 import com.example.accounts_management.exception.custom.BusinessException;
+import com.example.accounts_management.infrastructure.dto.AccountStatementResponse;
 import com.example.accounts_management.infrastructure.dto.MovementRequest;
 import com.example.accounts_management.infrastructure.dto.MovementResponse;
 import com.example.accounts_management.model.Account;
+import com.example.accounts_management.model.CursorPage;
+import com.example.accounts_management.model.CustomerSnapshot;
+import com.example.accounts_management.model.Money;
 import com.example.accounts_management.model.Movement;
+import com.example.accounts_management.model.PageCursor;
+import com.example.accounts_management.repository.AccountDailyBalanceRepository;
 import com.example.accounts_management.repository.AccountsRepository;
-import com.example.accounts_management.repository.CustomerSnapshotRepository;
+import com.example.accounts_management.repository.LedgerHeadRepository;
+import com.example.accounts_management.repository.MovementEventRepository;
 import com.example.accounts_management.repository.MovementsRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -17,102 +26,245 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class MovementsService {
 
+    /**
+     * Number of movements resolved together when enriching listings. Each window costs one
+     * account query and one customer snapshot query, whatever the number of rows in it.
+     */
+    private static final int ENRICHMENT_WINDOW_SIZE = 256;
+
     private final MovementsRepository movementsRepository;
     private final AccountsRepository accountsRepository;
-    private final CustomerSnapshotRepository customerSnapshotRepository;
-
-    public MovementsService(MovementsRepository movementsRepository, AccountsRepository accountsRepository, CustomerSnapshotRepository customerSnapshotRepository) {
+    private final CustomerSnapshotCache customerSnapshotCache;
+    private final LedgerHeadRepository ledgerHeadRepository;
+    private final AccountWriteLanes accountWriteLanes;
+    private final TransactionalOperator transactionalOperator;
+    private final AccountDailyBalanceRepository accountDailyBalanceRepository;
+    private final MovementEventRepository movementEventRepository;
+    /**
+     * Recomputes every balance of the account on update instead of shifting the movements after
+     * the edited one. Meant to repair histories whose stored balances have drifted.
+     */
+    private final boolean fullRebalance;
+    private final int maxPageSize;
+
+    public MovementsService(MovementsRepository movementsRepository, AccountsRepository accountsRepository, CustomerSnapshotCache customerSnapshotCache, LedgerHeadRepository ledgerHeadRepository, AccountWriteLanes accountWriteLanes, TransactionalOperator transactionalOperator, AccountDailyBalanceRepository accountDailyBalanceRepository, MovementEventRepository movementEventRepository,
+                            @Value("${accounts.movements.full-rebalance:false}") boolean fullRebalance,
+                            @Value("${accounts.pagination.max-page-size:500}") int maxPageSize) {
         this.movementsRepository = movementsRepository;
         this.accountsRepository = accountsRepository;
-        this.customerSnapshotRepository = customerSnapshotRepository;
+        this.customerSnapshotCache = customerSnapshotCache;
+        this.ledgerHeadRepository = ledgerHeadRepository;
+        this.accountWriteLanes = accountWriteLanes;
+        this.transactionalOperator = transactionalOperator;
+        this.accountDailyBalanceRepository = accountDailyBalanceRepository;
+        this.movementEventRepository = movementEventRepository;
+        this.fullRebalance = fullRebalance;
+        this.maxPageSize = maxPageSize;
     }
 
+    /**
+     * Reads a movement by id alone, which probes the primary key of every movement partition. The
+     * writes use this lookup once to learn the date of the movement; everything after it goes
+     * through the whole primary key and reads one partition.
+     */
     public Mono<MovementResponse> findById(Long movementId) {
         return movementsRepository.findById(movementId)
                 .switchIfEmpty(Mono.error(new BusinessException(HttpStatus.NOT_FOUND, "Movement not found")))
                 .flatMap(this::getMovementResponseFromMovement);
     }
 
-    public Flux<MovementResponse> findAll() {
-        return movementsRepository.findAll()
-                .flatMap(this::getMovementResponseFromMovement);
+    /**
+     * Reads the page of movements after the cursor, ordered by date and id. One row more than the
+     * page is read to know whether another page follows.
+     */
+    public Mono<CursorPage<MovementResponse>> findPage(String cursor, Integer limit) {
+        int pageSize = limit == null ? maxPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+        Flux<Movement> rows = cursor == null
+                ? movementsRepository.findFirstPage(pageSize + 1)
+                : Mono.fromCallable(() -> PageCursor.decode(cursor, keys -> Movement.builder()
+                        .date(LocalDate.parse(keys[0]))
+                        .id(Long.valueOf(keys[1]))
+                        .build()))
+                .flatMapMany(after -> movementsRepository.findPageAfter(after.getDate(), after.getId(), pageSize + 1));
+
+        return rows.collectList()
+                .flatMap(movements -> {
+                    boolean hasNextPage = movements.size() > pageSize;
+                    List<Movement> page = hasNextPage ? movements.subList(0, pageSize) : movements;
+                    Movement last = page.isEmpty() ? null : page.get(page.size() - 1);
+                    String nextCursor = hasNextPage ? PageCursor.encode(last.getDate(), last.getId()) : null;
+
+                    return getMovementResponsesFromMovements(Flux.fromIterable(page))
+                            .collectList()
+                            .map(items -> new CursorPage<>(items, nextCursor));
+                });
     }
 
     public Mono<Void> delete(Long movementId) {
         return movementsRepository.findById(movementId)
                 .switchIfEmpty(Mono.error(new BusinessException(HttpStatus.NOT_FOUND, "Movement not found")))
-                .flatMap(movement -> movementsRepository.deleteById(movementId));
+                .flatMap(movement -> accountWriteLanes.submit(
+                        movement.getAccountId(),
+                        ledgerHeadRepository.lockByAccountId(movement.getAccountId())
+                                .then(movementsRepository.findByIdAndDate(movementId, movement.getDate()))
+                                .flatMap(lockedMovement -> {
+                                    BigDecimal delta = delta(lockedMovement.getType(), lockedMovement.getValue()).negate().toBigDecimal();
+                                    return movementsRepository.deleteByIdAndDate(movementId, lockedMovement.getDate())
+                                            .then(movementsRepository.shiftBalancesAfter(lockedMovement.getAccountId(), lockedMovement.getSeq(), delta))
+                                            .then(ledgerHeadRepository.shift(lockedMovement.getAccountId(), delta))
+                                            .then(applyDelta(lockedMovement.getAccountId(), lockedMovement.getDate(), delta, -1));
+                                })
+                                .as(transactionalOperator::transactional)
+                ))
+                .then();
     }
 
     public Mono<MovementResponse> save(MovementRequest movementRequest) {
-        return accountsRepository.findById(movementRequest.getAccountId())
-                .switchIfEmpty(Mono.error(new BusinessException(HttpStatus.NOT_FOUND, "Account not found")))
-                .flatMap(account ->
-                                addMovement(account, movementRequest)
-//                        movementsRepository.save(Movement.fromMovementRequest(movementRequest))
-//                                .flatMap(this::getMovementResponseFromMovement));
-                );
+        return checkValue(movementRequest)
+                .then(Mono.defer(() -> accountWriteLanes.submit(
+                        movementRequest.getAccountId(),
+                        accountsRepository.findById(movementRequest.getAccountId())
+                                .switchIfEmpty(Mono.error(new BusinessException(HttpStatus.NOT_FOUND, "Account not found")))
+                                .flatMap(account -> addMovement(account, movementRequest))
+                                .as(transactionalOperator::transactional)
+                )));
     }
 
     public Flux<MovementResponse> findAllByAccount(Long accountId) {
-        return movementsRepository.findByAccountIdOrderByDateDesc(accountId)
-                .flatMap(this::getMovementResponseFromMovement);
+        return getMovementResponsesFromMovements(movementsRepository.findByAccountIdOrderByDateDesc(accountId));
     }
 
     private Mono<MovementResponse> addMovement(Account account, MovementRequest movementRequest) {
-        return movementsRepository.findByAccountIdOrderByDateDesc(account.getId())
-                .next()
-                .map(Movement::getBalance)
-                .defaultIfEmpty(account.getInitialBalance())
-                .flatMap(previousBalance ->
-                        getAndValidateBalance(movementRequest.getType(), previousBalance, movementRequest.getValue())
-                                .flatMap(actualBalance ->
-                                        movementsRepository
-                                                .save(Movement.fromMovementRequest(movementRequest, actualBalance))
-                                                .flatMap(this::getMovementResponseFromMovement)
-                                )
+        BigDecimal delta = delta(movementRequest.getType(), movementRequest.getValue()).toBigDecimal();
+
+        return ledgerHeadRepository.advance(account.getId(), account.getInitialBalance(), delta)
+                .flatMap(ledgerHead ->
+                        movementsRepository
+                                .save(Movement.fromMovementRequest(movementRequest, ledgerHead.getBalance(), ledgerHead.getLastSeq()))
+                                .flatMap(movement -> applyDelta(account.getId(), movement.getDate(), delta, 1)
+                                        .thenReturn(movement))
+                                .flatMap(this::getMovementResponseFromMovement)
                 );
 
     }
 
     public Mono<MovementResponse> updateMovement(Long movementId, MovementRequest movementRequest) {
-        return movementsRepository.findById(movementId)
+        return checkValue(movementRequest)
+                .then(Mono.defer(() -> movementsRepository.findById(movementId)))
                 .switchIfEmpty(Mono.error(
                         new BusinessException(HttpStatus.NOT_FOUND, "Movement not found")
                 ))
-                .flatMap(existingMovement ->
-                        accountsRepository.findById(existingMovement.getAccountId())
-                                .switchIfEmpty(Mono.error(
-                                        new BusinessException(HttpStatus.NOT_FOUND, "Account not found")
-                                ))
-                                .flatMap(account ->
-                                        movementsRepository
-                                                .findByAccountIdOrderByDateAsc(account.getId())
-                                                .collectList()
-                                                .flatMap(movements -> {
-                                                    List<Movement> updatedMovements = updateBalanceForAllMovements(
-                                                            account,
-                                                            movements,
-                                                            movementId,
-                                                            movementRequest
-                                                    );
-
-                                                    return Flux.fromIterable(updatedMovements)
-                                                            .concatMap(movementsRepository::save)
-                                                            .then(findById(movementId));
-                                                })
-                                )
+                .flatMap(movement -> accountWriteLanes.submit(
+                        movement.getAccountId(),
+                        ledgerHeadRepository.lockByAccountId(movement.getAccountId())
+                                .then(movementsRepository.findByIdAndDate(movementId, movement.getDate()))
+                                .flatMap(existingMovement -> fullRebalance
+                                        ? rebalance(existingMovement, movementRequest)
+                                        : rebalanceFrom(existingMovement, movementRequest))
+                                .as(transactionalOperator::transactional)
+                ));
+    }
+
+    /**
+     * Applies the edit to the movement itself and shifts the balances of the movements recorded
+     * after it with one set-based update, so the cost follows the rows after the edit.
+     */
+    private Mono<MovementResponse> rebalanceFrom(Movement existingMovement, MovementRequest movementRequest) {
+        Long accountId = existingMovement.getAccountId();
+        Money change = delta(movementRequest.getType(), movementRequest.getValue())
+                .minus(delta(existingMovement.getType(), existingMovement.getValue()));
+        BigDecimal delta = change.toBigDecimal();
+
+        return accountsRepository.findById(accountId)
+                .switchIfEmpty(Mono.error(
+                        new BusinessException(HttpStatus.NOT_FOUND, "Account not found")
+                ))
+                .flatMap(account -> {
+                    existingMovement.setValue(movementRequest.getValue());
+                    existingMovement.setType(movementRequest.getType());
+                    existingMovement.setBalance(Money.of(existingMovement.getBalance()).plus(change).toBigDecimal());
+
+                    return update(existingMovement)
+                            .then(movementsRepository.shiftBalancesAfter(accountId, existingMovement.getSeq(), delta))
+                            .then(ledgerHeadRepository.shift(accountId, delta))
+                            .then(applyDelta(accountId, existingMovement.getDate(), delta, 0))
+                            .then(findResponse(existingMovement));
+                });
+    }
+
+    private Mono<MovementResponse> rebalance(Movement existingMovement, MovementRequest movementRequest) {
+        Long movementId = existingMovement.getId();
+        return accountsRepository.findById(existingMovement.getAccountId())
+                .switchIfEmpty(Mono.error(
+                        new BusinessException(HttpStatus.NOT_FOUND, "Account not found")
+                ))
+                .flatMap(account ->
+                        movementsRepository
+                                .findByAccountIdOrderBySeqAsc(account.getId())
+                                .collectList()
+                                .flatMap(movements -> {
+                                    List<Movement> updatedMovements = updateBalanceForAllMovements(
+                                            account,
+                                            movements,
+                                            movementId,
+                                            movementRequest
+                                    );
+
+                                    BigDecimal delta = delta(movementRequest.getType(), movementRequest.getValue())
+                                            .minus(delta(existingMovement.getType(), existingMovement.getValue()))
+                                            .toBigDecimal();
+
+                                    return Flux.fromIterable(updatedMovements)
+                                            .concatMap(this::update)
+                                            .then(ledgerHeadRepository.shift(account.getId(), delta))
+                                            .then(applyDelta(account.getId(), existingMovement.getDate(), delta, 0))
+                                            .then(findResponse(existingMovement));
+                                })
                 );
     }
 
-    private List<Movement> updateBalanceForAllMovements(Account account, List<Movement> movements, Long movementId, MovementRequest movementRequest) {
-        BigDecimal runningBalance = account.getInitialBalance();
+    /**
+     * Writes the type, value and balance of a movement. Its date is part of the primary key of
+     * the partitioned table, so the update only touches the partition of its month.
+     */
+    private Mono<Integer> update(Movement movement) {
+        return movementsRepository.updateByIdAndDate(movement.getId(), movement.getDate(), movement.getType(), movement.getValue(), movement.getBalance());
+    }
+
+    private Mono<MovementResponse> findResponse(Movement movement) {
+        return movementsRepository.findByIdAndDate(movement.getId(), movement.getDate())
+                .switchIfEmpty(Mono.error(new BusinessException(HttpStatus.NOT_FOUND, "Movement not found")))
+                .flatMap(this::getMovementResponseFromMovement);
+    }
+
+    /**
+     * Rejects a value with a fraction of a cent before the account is locked.
+     */
+    private static Mono<Void> checkValue(MovementRequest movementRequest) {
+        return Mono.fromRunnable(() -> {
+            if (movementRequest.getValue() != null) {
+                Money.of(movementRequest.getValue());
+            }
+        });
+    }
+
+    /**
+     * Recomputes the running balance as a primitive count of minor units. Each movement still
+     * costs the conversion of its value and a new {@link BigDecimal} for its balance, the type of
+     * the column; {@code BalanceArithmeticBenchmark} measures this method, allocation included.
+     */
+    static List<Movement> updateBalanceForAllMovements(Account account, List<Movement> movements, Long movementId, MovementRequest movementRequest) {
+        long runningBalance = Money.of(account.getInitialBalance()).minorUnits();
 
-        List<Movement> updatedMovements = new ArrayList<>();
+        List<Movement> updatedMovements = new ArrayList<>(movements.size());
         for (Movement movement : movements) {
 
             boolean isTarget = movement.getId().equals(movementId);
@@ -121,9 +273,9 @@ public class MovementsService {
 
             MovementRequest.TypeEnum type = isTarget ? movementRequest.getType() : movement.getType();
 
-            runningBalance = calculateBalance(type, runningBalance, value);
+            runningBalance = calculateBalance(type, runningBalance, Money.of(value).minorUnits());
 
-            movement.setBalance(runningBalance);
+            movement.setBalance(new Money(runningBalance).toBigDecimal());
 
             if (isTarget) {
                 movement.setValue(value);
@@ -135,6 +287,10 @@ public class MovementsService {
         return updatedMovements;
     }
 
+    /**
+     * Streams the movements of every account of the customer within the date range. Rows come
+     * already joined with their account and customer from a single query.
+     */
     public Flux<MovementResponse> getMovementsReport(
             LocalDate startDate,
             LocalDate endDate,
@@ -157,31 +313,59 @@ public class MovementsService {
             ));
         }
 
-        return movementsRepository.findTransactionByDateRangeAndCustomerId(startDate, endDate, customerId)
-                .flatMap(this::getMovementResponseFromMovement);
+        return movementsRepository.findReportRows(customerId, startDate, endDate);
     }
 
-    private Mono<BigDecimal> getAndValidateBalance(MovementRequest.TypeEnum operationType, BigDecimal initialBalance, BigDecimal currentValue) {
-        BigDecimal actualBalance = calculateBalance(operationType, initialBalance, currentValue);
+    /**
+     * Streams one statement per account of the customer: opening and closing balance of the date
+     * range and the totals per movement type within it, all computed by one aggregate query.
+     */
+    public Flux<AccountStatementResponse> getStatement(
+            LocalDate startDate,
+            LocalDate endDate,
+            Long customerId) {
 
-        if (actualBalance.compareTo(BigDecimal.ZERO) < 0) {
-            Mono.just(new BusinessException(HttpStatus.CONFLICT, "Unavailable balance"));
+        if (startDate.isAfter(endDate)) {
+            return Flux.error(new BusinessException(
+                    HttpStatus.BAD_REQUEST,
+                    "The start date cannot be later than the end date"
+            ));
         }
 
-        return Mono.just(actualBalance);
+        return movementsRepository.findAccountStatements(customerId, startDate, endDate);
     }
 
-    private BigDecimal calculateBalance(MovementRequest.TypeEnum operationType, BigDecimal previousBalance, BigDecimal value) {
+    /**
+     * Works on minor units rather than {@link Money} so that loops carrying a running balance do
+     * not allocate one instance per step.
+     */
+    static long calculateBalance(MovementRequest.TypeEnum operationType, long previousBalance, long value) {
         return MovementRequest.TypeEnum.WITHDRAWAL.equals(operationType)
-                ? previousBalance.subtract(value)
-                : previousBalance.add(value);
+                ? Math.subtractExact(previousBalance, value)
+                : Math.addExact(previousBalance, value);
+    }
 
+    /**
+     * Records a change of the balance in the daily rollups, and in the movement events the
+     * account summary is updated from. The movement count is the number of movements added.
+     */
+    private Mono<Void> applyDelta(Long accountId, LocalDate date, BigDecimal delta, int movementCount) {
+        return accountDailyBalanceRepository.applyDelta(accountId, date, delta)
+                .then(movementEventRepository.append(accountId, date, delta, movementCount))
+                .then();
+    }
+
+    /**
+     * Change of the balance of the account caused by a movement.
+     */
+    private static Money delta(MovementRequest.TypeEnum operationType, BigDecimal value) {
+        return new Money(calculateBalance(operationType, 0, Money.of(value).minorUnits()));
     }
 
     private Mono<MovementResponse> getMovementResponseFromMovement(Movement movement) {
         return accountsRepository.findById(movement.getAccountId())
                 .flatMap(account ->
-                        customerSnapshotRepository.findById(account.getCustomerId())
+                        customerSnapshotCache.get(account.getCustomerId())
                                 .map(customerSnapshot ->
                                         Movement.fromMovement(
                                                 movement,
@@ -192,4 +376,40 @@ public class MovementsService {
                                 )
                 );
     }
+
+    private Flux<MovementResponse> getMovementResponsesFromMovements(Flux<Movement> movements) {
+        return movements
+                .buffer(ENRICHMENT_WINDOW_SIZE)
+                .concatMap(this::getMovementResponsesFromWindow);
+    }
+
+    private Flux<MovementResponse> getMovementResponsesFromWindow(List<Movement> window) {
+        Set<Long> accountIds = window.stream()
+                .map(Movement::getAccountId)
+                .collect(Collectors.toSet());
+
+        return accountsRepository.findAllById(accountIds)
+                .collectMap(Account::getId)
+                .flatMapMany(accounts -> {
+                    Set<Long> customerIds = accounts.values().stream()
+                            .map(Account::getCustomerId)
+                            .collect(Collectors.toSet());
+
+                    return customerSnapshotCache.getAll(customerIds)
+                            .flatMapMany(customerSnapshots -> Flux.fromIterable(window)
+                                    .filter(movement -> accounts.containsKey(movement.getAccountId()))
+                                    .filter(movement -> customerSnapshots.containsKey(accounts.get(movement.getAccountId()).getCustomerId()))
+                                    .map(movement -> toMovementResponse(movement, accounts, customerSnapshots)));
+                });
+    }
+
+    private MovementResponse toMovementResponse(Movement movement, Map<Long, Account> accounts, Map<Long, CustomerSnapshot> customerSnapshots) {
+        Account account = accounts.get(movement.getAccountId());
+        return Movement.fromMovement(
+                movement,
+                customerSnapshots.get(account.getCustomerId()).getCustomerName(),
+                account.getStatus(),
+                account.getInitialBalance()
+        );
+    }
 }
@@ -0,0 +1,3 @@
+-- Version of the customer event a snapshot was last written from, so that an older event
+-- delivered late does not overwrite a newer name. Existing snapshots start at 0.
+alter table customer_snapshot add column if not exists version bigint not null default 0;
@@ -0,0 +1,36 @@
+-- Numbers the movements of each account in the order their balances are computed and keeps the
+-- latest balance and number of each account in account_ledger_head, so that a new movement is
+-- written from the head instead of from the latest movement.
+--
+-- Existing movements are numbered by date, then id, the order the balances of an account were
+-- rebalanced in, and their balances are recomputed along that order from the initial balance of
+-- the account, so that every balance is the one before it plus the movement.
+alter table movement add column if not exists seq bigint;
+
+update movement m
+set seq = o.seq,
+	balance = o.balance
+from (
+	select mv.id,
+		row_number() over w as seq,
+		coalesce(a.initial_balance, 0) + sum(case when mv.movement_type = 'WITHDRAWAL' then -mv.value else mv.value end) over w as balance
+	from movement mv
+	join account a on a.id = mv.account_id
+	window w as (partition by mv.account_id order by mv.movement_date, mv.id)
+) o
+where o.id = m.id;
+
+alter table movement alter column seq set not null,
+	add unique (account_id, seq);
+
+create table if not exists account_ledger_head(
+	account_id bigint primary key,
+	balance numeric not null,
+	last_seq bigint not null,
+	FOREIGN KEY (account_id) REFERENCES account(id) ON DELETE CASCADE
+);
+
+insert into account_ledger_head (account_id, balance, last_seq)
+select distinct on (account_id) account_id, balance, seq
+from movement
+order by account_id, seq desc;
@@ -0,0 +1,14 @@
+-- End-of-day balance of each account on each day with movements. Existing days are rolled up
+-- from the balance of their last movement, numbered and rebalanced by V1_2.
+create table if not exists account_daily_balance(
+	account_id bigint not null,
+	balance_date date not null,
+	balance numeric not null,
+	primary key (account_id, balance_date),
+	FOREIGN KEY (account_id) REFERENCES account(id) ON DELETE CASCADE
+);
+
+insert into account_daily_balance (account_id, balance_date, balance)
+select distinct on (account_id, movement_date) account_id, movement_date, balance
+from movement
+order by account_id, movement_date, seq desc;
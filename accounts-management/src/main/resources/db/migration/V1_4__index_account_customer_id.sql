@@ -0,0 +1,3 @@
+-- Serves the accounts of a customer. Built concurrently so that writes on account go on during
+-- the build.
+create index concurrently if not exists account_customer_id_idx on account(customer_id);
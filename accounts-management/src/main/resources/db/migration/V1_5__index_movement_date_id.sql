@@ -0,0 +1,3 @@
+-- Serves the keyset pages of movements, ordered by date and id. Built concurrently so that
+-- writes on movement go on during the build.
+create index concurrently if not exists movement_date_id_idx on movement(movement_date, id);
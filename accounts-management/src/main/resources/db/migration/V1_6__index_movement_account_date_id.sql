@@ -0,0 +1,3 @@
+-- Serves the movements of an account over a date range, statements included, from the index
+-- alone. Built concurrently so that writes on movement go on during the build.
+create index concurrently if not exists movement_account_date_id_idx on movement(account_id, movement_date, id) include (movement_type, value, balance);
@@ -0,0 +1,5 @@
+-- Serves findLastTransactionByAccountId, which reads the latest movement of an account by id.
+-- Built concurrently so that writes on movement go on during the build; Flyway runs statements
+-- like this one outside of a transaction. A build that fails leaves an invalid index behind,
+-- which has to be dropped before the migration is repaired and run again.
+create index concurrently if not exists movement_account_id_id_idx on movement(account_id, id);
@@ -0,0 +1,4 @@
+-- Matches the (account_id, seq) index of the partitioned movement table, see V3_4. The unique
+-- constraint on those columns cannot be reused, since the index of the partitioned table is not
+-- unique. Built concurrently so that writes on movement go on during the build.
+create index concurrently if not exists movement_account_seq_idx on movement(account_id, seq);
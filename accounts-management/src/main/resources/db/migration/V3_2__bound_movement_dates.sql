@@ -0,0 +1,13 @@
+-- Bounds the dates of the existing movements to before the month after the current one, or after
+-- the latest movement when later, so that attaching the table as the partition of those dates in
+-- V3_4 is proven valid by this constraint instead of a scan. Added as not valid, which takes a
+-- brief lock only, and validated by V3_3 in a transaction of its own.
+do $$
+declare
+	bound date := greatest(
+		date_trunc('month', current_date) + interval '1 month',
+		date_trunc('month', (select max(movement_date) from movement)) + interval '1 month')::date;
+begin
+	execute format('alter table movement add constraint movement_legacy_bound check (movement_date < %L) not valid', bound);
+end;
+$$;
@@ -0,0 +1,3 @@
+-- Scans movement to validate the bound added by V3_2. Validating only takes a lock that lets
+-- reads and writes go on.
+alter table movement validate constraint movement_legacy_bound;
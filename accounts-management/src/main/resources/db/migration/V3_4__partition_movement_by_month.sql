@@ -0,0 +1,176 @@
+-- Range partitions of movement by month, named movement_yYYYYmMM. Movements of a month without a
+-- partition land in movement_default. A unique constraint on a partitioned table has to include
+-- movement_date, so the primary key becomes (id, movement_date) and (account_id, seq), kept unique
+-- by the ledger head, is indexed without a constraint.
+--
+-- The existing movements are not copied. The table becomes movement_legacy, the partition of the
+-- dates before the bound of V3_2, with the indexes built by V3 and V3_1 and the bound validated
+-- by V3_3, so attaching it only takes brief locks. Its months are moved to the archive one at a
+-- time once past the retention. On an empty database it is dropped instead.
+alter table movement rename to movement_legacy;
+alter table movement_legacy drop constraint movement_pkey,
+	add constraint movement_legacy_pkey primary key using index movement_id_date_idx;
+alter index movement_date_id_idx rename to movement_legacy_date_id_idx;
+alter index movement_account_date_id_idx rename to movement_legacy_account_date_id_idx;
+alter index movement_account_id_id_idx rename to movement_legacy_account_id_id_idx;
+alter index movement_account_seq_idx rename to movement_legacy_account_seq_idx;
+
+create table movement(
+	id bigint not null default nextval('movement_id_seq'),
+	movement_date date not null,
+	movement_type varchar(255) not null,
+	value numeric not null,
+	balance numeric not null,
+	account_id bigint not null,
+	seq bigint not null,
+	primary key (id, movement_date),
+	FOREIGN KEY (account_id) REFERENCES account(id)
+) partition by range (movement_date);
+
+alter sequence movement_id_seq owned by movement.id;
+
+create index movement_date_id_idx on movement(movement_date, id);
+
+create index movement_account_date_id_idx on movement(account_id, movement_date, id) include (movement_type, value, balance);
+
+create index movement_account_id_id_idx on movement(account_id, id);
+
+create index movement_account_seq_idx on movement(account_id, seq);
+
+do $$
+declare
+	bound date := substring(pg_get_constraintdef((select oid from pg_constraint
+		where conrelid = 'movement_legacy'::regclass and conname = 'movement_legacy_bound')) from '\d{4}-\d{2}-\d{2}')::date;
+begin
+	if exists (select 1 from movement_legacy) then
+		execute format('alter table movement attach partition movement_legacy for values from (minvalue) to (%L)', bound);
+	else
+		drop table movement_legacy;
+	end if;
+end;
+$$;
+
+create table movement_default partition of movement default;
+
+-- Upper bound of the dates held by movement_legacy, null when there is none.
+create or replace function movement_legacy_bound() returns date
+language sql stable as $$
+	select substring(pg_get_expr(c.relpartbound, c.oid) from '\d{4}-\d{2}-\d{2}')::date
+	from pg_class c
+	where c.oid = to_regclass('movement_legacy');
+$$;
+
+-- Creates the missing partitions of the months from from_date to to_date and returns how many
+-- were created. Each one is created apart and then attached, which does not block reads and
+-- writes on the other partitions; movements of its month are moved in from the default partition.
+-- The months held by movement_legacy are skipped.
+create or replace function create_movement_partitions(from_date date, to_date date) returns integer
+language plpgsql as $$
+declare
+	partition_month date := greatest(date_trunc('month', from_date)::date, movement_legacy_bound());
+	next_month date;
+	partition_name text;
+	created integer := 0;
+begin
+	perform pg_advisory_xact_lock(hashtext('movement_partitions'));
+	while partition_month <= to_date loop
+		next_month := (partition_month + interval '1 month')::date;
+		partition_name := 'movement_y' || to_char(partition_month, 'YYYY"m"MM');
+		if to_regclass(partition_name) is null then
+			execute format('create table %I (like movement including defaults)', partition_name);
+			execute format('with moved as (delete from movement_default where movement_date >= %L and movement_date < %L returning *) '
+					|| 'insert into %I select * from moved', partition_month, next_month, partition_name);
+			execute format('alter table movement attach partition %I for values from (%L) to (%L)', partition_name, partition_month, next_month);
+			created := created + 1;
+		end if;
+		partition_month := next_month;
+	end loop;
+	return created;
+end;
+$$;
+
+select create_movement_partitions(current_date, (current_date + interval '3 months')::date);
+
+-- Cold storage of the archived months: one row per account and month, holding its movements as
+-- arrays in seq order. Rows past the toast target are compressed, so a month of an active account
+-- takes a fraction of the space of its movement rows.
+create table movement_archive(
+	account_id bigint not null,
+	movement_month date not null,
+	movement_ids bigint[] not null,
+	movement_dates date[] not null,
+	movement_types varchar(255)[] not null,
+	movement_values numeric[] not null,
+	balances numeric[] not null,
+	seqs bigint[] not null,
+	primary key (account_id, movement_month),
+	FOREIGN KEY (account_id) REFERENCES account(id)
+) with (toast_tuple_target = 128);
+
+-- Moves the monthly partitions of the months before the one of before_date, and the oldest such
+-- month of movement_legacy, to movement_archive and returns how many months were archived.
+-- Archived months are closed: a later backdated movement only shifts balances in movement.
+create or replace function archive_movement_partitions(before_date date) returns integer
+language plpgsql as $$
+declare
+	archive_rows constant text := 'insert into movement_archive (account_id, movement_month, movement_ids, movement_dates, movement_types, movement_values, balances, seqs) '
+			|| 'select account_id, %L, array_agg(id order by seq), array_agg(movement_date order by seq), array_agg(movement_type order by seq), '
+			|| 'array_agg(value order by seq), array_agg(balance order by seq), array_agg(seq order by seq) '
+			|| 'from %s group by account_id '
+			|| 'on conflict (account_id, movement_month) do update set '
+			|| 'movement_ids = movement_archive.movement_ids || excluded.movement_ids, '
+			|| 'movement_dates = movement_archive.movement_dates || excluded.movement_dates, '
+			|| 'movement_types = movement_archive.movement_types || excluded.movement_types, '
+			|| 'movement_values = movement_archive.movement_values || excluded.movement_values, '
+			|| 'balances = movement_archive.balances || excluded.balances, '
+			|| 'seqs = movement_archive.seqs || excluded.seqs';
+	old_partition record;
+	legacy_month date;
+	archived integer := 0;
+begin
+	perform pg_advisory_xact_lock(hashtext('movement_partitions'));
+	for old_partition in
+		select c.relname, to_date(substring(c.relname from 11), 'YYYY"m"MM') as partition_month
+		from pg_inherits i
+		join pg_class c on c.oid = i.inhrelid
+		where i.inhparent = 'movement'::regclass
+		  and c.relname ~ '^movement_y[0-9]{4}m[0-9]{2}$'
+		order by c.relname
+	loop
+		exit when old_partition.partition_month >= date_trunc('month', before_date);
+		execute format('alter table movement detach partition %I', old_partition.relname);
+		execute format(archive_rows, old_partition.partition_month, quote_ident(old_partition.relname));
+		execute format('drop table %I', old_partition.relname);
+		archived := archived + 1;
+	end loop;
+
+	-- One month of movement_legacy per call, moved in a single statement, so that a large table
+	-- is drained over several short transactions; the caller repeats until nothing is left.
+	if to_regclass('movement_legacy') is not null then
+		select date_trunc('month', min(movement_date))::date into legacy_month from movement_legacy;
+		if legacy_month is null then
+			if movement_legacy_bound() <= date_trunc('month', before_date) then
+				alter table movement detach partition movement_legacy;
+				drop table movement_legacy;
+			end if;
+		elsif legacy_month < date_trunc('month', before_date) then
+			execute format('with moved as (delete from movement_legacy where movement_date >= %L and movement_date < %L returning *) ' || archive_rows,
+					legacy_month, (legacy_month + interval '1 month')::date, legacy_month, 'moved');
+			archived := archived + 1;
+		end if;
+	end if;
+	return archived;
+end;
+$$;
+
+-- Every movement, archived or not. Filtering on movement_month as well as on movement_date lets
+-- the archived rows be found through the primary key of movement_archive.
+create view movement_history as
+select id, movement_date, movement_type, value, balance, account_id, seq,
+	date_trunc('month', movement_date)::date as movement_month
+from movement
+union all
+select m.id, m.movement_date, m.movement_type, m.value, m.balance, a.account_id, m.seq, a.movement_month
+from movement_archive a
+cross join lateral unnest(a.movement_ids, a.movement_dates, a.movement_types, a.movement_values, a.balances, a.seqs)
+	as m(id, movement_date, movement_type, value, balance, seq);
@@ -0,0 +1,5 @@
+-- First step of the partitioning of movement by month, see V3_4. The existing table becomes a
+-- partition of the new one as it is, which needs an index matching each index of the partitioned
+-- table; this one backs its primary key (id, movement_date). Built concurrently so that writes on
+-- movement go on during the build.
+create unique index concurrently if not exists movement_id_date_idx on movement(id, movement_date);
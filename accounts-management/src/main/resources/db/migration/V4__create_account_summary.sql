@@ -0,0 +1,42 @@
+-- Changes of the balance of an account caused by movements, appended in the transaction that
+-- writes them: the delta, how many movements were added (negative when removed) and their latest
+-- date. The account summary projector consumes and deletes them in id order.
+create table movement_event(
+	id bigserial primary key,
+	account_id bigint not null,
+	movement_date date not null,
+	delta numeric not null,
+	movement_count integer not null,
+	created_at timestamp not null default now()
+);
+
+-- Read model of the accounts: what the account endpoints return, with the customer name, the
+-- current balance and the movement totals kept alongside so a read is a single row lookup.
+create table account_summary(
+	account_id bigint primary key,
+	account_number varchar(10) not null,
+	account_type varchar(20) not null,
+	initial_balance numeric,
+	status boolean,
+	customer_id bigint not null,
+	customer_name varchar(255) not null,
+	balance numeric not null default 0,
+	last_movement_date date,
+	movement_count bigint not null default 0,
+	FOREIGN KEY (account_id) REFERENCES account(id) ON DELETE CASCADE
+);
+
+create index account_summary_customer_id_idx on account_summary(customer_id, account_id);
+
+insert into account_summary (account_id, account_number, account_type, initial_balance, status, customer_id, customer_name,
+	balance, last_movement_date, movement_count)
+select a.id, a.account_number, a.account_type, a.initial_balance, a.status, a.customer_id, c.customer_name,
+	coalesce(h.balance, a.initial_balance, 0), m.last_movement_date, coalesce(m.movement_count, 0)
+from account a
+join customer_snapshot c on c.id = a.customer_id
+left join account_ledger_head h on h.account_id = a.id
+left join (
+	select account_id, max(movement_date) as last_movement_date, count(*) as movement_count
+	from movement_history
+	group by account_id
+) m on m.account_id = a.id;
@@ -0,0 +1,15 @@
+-- Write requests carrying an Idempotency-Key header, scoped by method and path. A row without a
+-- status is claimed by a request still executing; it is deleted when the request fails, is
+-- cancelled or ends with a server error, so that a retry executes again. Once the request
+-- completes with a 2xx or 4xx response, that response is stored with the hash of the request
+-- body, so that retries with the same key get it back instead of executing again.
+create table idempotency_key(
+	idempotency_key text primary key,
+	request_hash bytea,
+	status integer,
+	content_type varchar(255),
+	body bytea,
+	created_at timestamp not null
+);
+
+create index idempotency_key_created_at_idx on idempotency_key(created_at);
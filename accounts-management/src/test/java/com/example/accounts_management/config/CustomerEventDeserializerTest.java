@@ -0,0 +1,56 @@
+package com.example.accounts_management.config;
+
+import com.example.accounts_management.model.CustomerEvent;
+import com.example.accounts_management.model.CustomerEventType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CustomerEventDeserializerTest {
+
+    private static final String TOPIC = "customers";
+
+    private final CustomerEventDeserializer deserializer = new CustomerEventDeserializer();
+
+    @Test
+    void deserialize_BinaryEvent() {
+        CustomerEvent event = CustomerEvent.builder()
+                .type(CustomerEventType.CREATED)
+                .customerId(1L)
+                .customerName("Jose Lema")
+                .version(7L)
+                .eventTime(Instant.ofEpochMilli(1_700_000_000_000L))
+                .build();
+
+        assertEquals(event, deserializer.deserialize(TOPIC, CustomerEventCodec.encode(event)));
+    }
+
+    @Test
+    void deserialize_LegacyJsonEventIsAnUpdateWithVersionZero() {
+        CustomerEvent event = deserializer.deserialize(TOPIC, "{\"1\":\"Jose Lema\"}".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(CustomerEventType.UPDATED, event.getType());
+        assertEquals(1L, event.getCustomerId());
+        assertEquals("Jose Lema", event.getCustomerName());
+        assertEquals(0L, event.getVersion());
+    }
+
+    @Test
+    void deserialize_TypeOfANewerProducerIsUnknown() {
+        CustomerEvent event = deserializer.deserialize(TOPIC, new byte[]{CustomerEventCodec.FORMAT_VERSION, 0x08, 0x09, 0x10, 0x01});
+
+        assertEquals(CustomerEventType.UNKNOWN, event.getType());
+        assertEquals(1L, event.getCustomerId());
+    }
+
+    @Test
+    void deserialize_UnreadablePayloadIsSkipped() {
+        assertNull(deserializer.deserialize(TOPIC, "{\"abc\":\"Jose Lema\"}".getBytes(StandardCharsets.UTF_8)));
+        assertNull(deserializer.deserialize(TOPIC, "not json".getBytes(StandardCharsets.UTF_8)));
+        assertNull(deserializer.deserialize(TOPIC, new byte[]{CustomerEventCodec.FORMAT_VERSION, 0x10}));
+    }
+}
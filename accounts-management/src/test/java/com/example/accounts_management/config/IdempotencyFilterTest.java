@@ -0,0 +1,116 @@
+package com.example.accounts_management.config;
+
+import com.example.accounts_management.repository.IdempotencyKeyRepository;
+import com.example.accounts_management.service.IdempotencyKeyStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyFilterTest {
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+    private IdempotencyFilter idempotencyFilter;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private final WebFilterChain chain = exchange -> exchange.getRequest().getBody()
+            .doOnNext(DataBufferUtils::release)
+            .then(Mono.defer(() -> {
+                int execution = executions.incrementAndGet();
+                exchange.getResponse().setStatusCode(HttpStatus.CREATED);
+                exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                byte[] body = ("{\"id\":" + execution + "}").getBytes(StandardCharsets.UTF_8);
+                return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(body)));
+            }));
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(idempotencyKeyRepository.claim(anyString(), any())).thenReturn(Mono.just(1));
+        lenient().when(idempotencyKeyRepository.complete(anyString(), any(), anyInt(), any(), any())).thenReturn(Mono.just(1));
+        IdempotencyKeyStore idempotencyKeyStore = new IdempotencyKeyStore(idempotencyKeyRepository, new SimpleMeterRegistry(),
+                Duration.ofHours(24), 100);
+        idempotencyFilter = new IdempotencyFilter(idempotencyKeyStore, new ObjectMapper(), 1024);
+    }
+
+    @Test
+    void filter_ReplaysTheFirstResponseToARetry() {
+        MockServerWebExchange first = post("/api/v1/accounts", "abc", "{\"accountNumber\":\"1\"}");
+        MockServerWebExchange retry = post("/api/v1/accounts", "abc", "{\"accountNumber\":\"1\"}");
+
+        StepVerifier.create(idempotencyFilter.filter(first, chain)).verifyComplete();
+        StepVerifier.create(idempotencyFilter.filter(retry, chain)).verifyComplete();
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, retry.getResponse().getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, retry.getResponse().getHeaders().getContentType());
+        assertEquals("true", retry.getResponse().getHeaders().getFirst(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals("{\"id\":1}", retry.getResponse().getBodyAsString().block());
+        assertNull(first.getResponse().getHeaders().getFirst(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void filter_RejectsAKeyReusedWithAnotherBody() {
+        MockServerWebExchange retry = post("/api/v1/accounts", "abc", "{\"accountNumber\":\"2\"}");
+
+        StepVerifier.create(idempotencyFilter.filter(post("/api/v1/accounts", "abc", "{\"accountNumber\":\"1\"}"), chain)).verifyComplete();
+        StepVerifier.create(idempotencyFilter.filter(retry, chain)).verifyComplete();
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, retry.getResponse().getStatusCode());
+        assertNull(retry.getResponse().getHeaders().getFirst(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void filter_ScopesTheKeyByPath() {
+        StepVerifier.create(idempotencyFilter.filter(post("/api/v1/accounts", "abc", "{}"), chain)).verifyComplete();
+        StepVerifier.create(idempotencyFilter.filter(post("/api/v1/movements", "abc", "{}"), chain)).verifyComplete();
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void filter_IgnoresRequestsWithoutKey() {
+        StepVerifier.create(idempotencyFilter.filter(MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/accounts")), chain)).verifyComplete();
+        StepVerifier.create(idempotencyFilter.filter(MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/accounts")), chain)).verifyComplete();
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void filter_RejectsABlankKey() {
+        MockServerWebExchange exchange = post("/api/v1/accounts", " ", "{}");
+
+        StepVerifier.create(idempotencyFilter.filter(exchange, chain)).verifyComplete();
+
+        assertEquals(0, executions.get());
+        assertEquals(HttpStatus.BAD_REQUEST, exchange.getResponse().getStatusCode());
+    }
+
+    private static MockServerWebExchange post(String path, String key, String body) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post(path).header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key).body(body));
+    }
+}
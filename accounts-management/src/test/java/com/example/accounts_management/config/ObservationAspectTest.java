@@ -0,0 +1,101 @@
+package com.example.accounts_management.config;
+
+import com.example.accounts_management.exception.custom.BusinessException;
+import com.example.accounts_management.infrastructure.dto.AccountRequest;
+import com.example.accounts_management.model.AccountSummary;
+import com.example.accounts_management.repository.AccountDailyBalanceRepository;
+import com.example.accounts_management.repository.AccountSummaryRepository;
+import com.example.accounts_management.repository.AccountsRepository;
+import com.example.accounts_management.repository.MovementsRepository;
+import com.example.accounts_management.service.AccountsService;
+import com.example.accounts_management.service.CustomerSnapshotCache;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ObservationAspectTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Observation.Context> stopped = new CopyOnWriteArrayList<>();
+    private final AccountSummaryRepository accountSummaryRepository = mock(AccountSummaryRepository.class);
+    private final CustomerSnapshotCache customerSnapshotCache = mock(CustomerSnapshotCache.class);
+    private AccountsService accountsService;
+
+    @BeforeEach
+    void setUp() {
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig()
+                .observationHandler(new DefaultMeterObservationHandler(meterRegistry))
+                .observationHandler(new ObservationHandler<>() {
+                    @Override
+                    public void onStop(Observation.Context context) {
+                        stopped.add(context);
+                    }
+
+                    @Override
+                    public boolean supportsContext(Observation.Context context) {
+                        return true;
+                    }
+                });
+        ObservationAspect observationAspect = new ObservationAspect(observationRegistry);
+
+        AccountSummaryRepository observedRepository = proxy(accountSummaryRepository, observationAspect);
+        accountsService = proxy(new AccountsService(mock(AccountsRepository.class), customerSnapshotCache,
+                mock(MovementsRepository.class), mock(AccountDailyBalanceRepository.class), observedRepository, mock(TransactionalOperator.class), 500), observationAspect);
+    }
+
+    @Test
+    void service_ObservedFromSubscriptionWithOutcome() {
+        when(accountSummaryRepository.findById(1L)).thenReturn(Mono.just(AccountSummary.builder().accountId(1L).customerId(1L).accountType(AccountRequest.AccountTypeEnum.SAVINGS).initialBalance(BigDecimal.TEN).status(true).customerName("Jose Lema").build()));
+        when(accountSummaryRepository.findById(2L)).thenReturn(Mono.empty());
+
+        Mono<?> notSubscribed = accountsService.findById(1L);
+        assertNull(meterRegistry.find(ObservationAspect.SERVICE_OBSERVATION).timer());
+
+        StepVerifier.create(notSubscribed).expectNextCount(1).verifyComplete();
+        StepVerifier.create(accountsService.findById(2L)).expectError(BusinessException.class).verify();
+
+        assertEquals(1, meterRegistry.get(ObservationAspect.SERVICE_OBSERVATION)
+                .tags("class", "AccountsService", "method", "findById", "outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get(ObservationAspect.SERVICE_OBSERVATION)
+                .tags("class", "AccountsService", "method", "findById", "outcome", "error").timer().count());
+    }
+
+    @Test
+    void repository_ObservedAsChildOfTheServiceCall() {
+        when(accountSummaryRepository.findById(2L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(accountsService.findById(2L)).expectError(BusinessException.class).verify();
+
+        Observation.Context query = stopped.stream().filter(context -> context.getName().equals(ObservationAspect.REPOSITORY_OBSERVATION)).findFirst().orElseThrow();
+        Observation.Context service = stopped.stream().filter(context -> context.getName().equals(ObservationAspect.SERVICE_OBSERVATION)).findFirst().orElseThrow();
+        assertSame(service, query.getParentObservation().getContextView());
+        assertEquals("findById", query.getLowCardinalityKeyValue("method").getValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(T target, ObservationAspect observationAspect) {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(observationAspect);
+        return (T) proxyFactory.getProxy();
+    }
+}
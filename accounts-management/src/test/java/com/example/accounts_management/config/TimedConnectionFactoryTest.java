@@ -0,0 +1,50 @@
+package com.example.accounts_management.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.R2dbcTimeoutException;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TimedConnectionFactoryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConnectionFactory pool = mock(ConnectionFactory.class);
+    private final TimedConnectionFactory connectionFactory = new TimedConnectionFactory(pool, "connectionFactory", meterRegistry);
+
+    @Test
+    void create_RecordsSuccessfulAcquisitions() {
+        Connection connection = mock(Connection.class);
+        when(pool.create()).thenAnswer(invocation -> Mono.just(connection));
+
+        StepVerifier.create(connectionFactory.create())
+                .expectNext(connection)
+                .verifyComplete();
+
+        assertEquals(1, meterRegistry.get("r2dbc.pool.acquire").tag("outcome", "success").timer().count());
+        assertEquals(0, meterRegistry.get("r2dbc.pool.acquire").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void create_RecordsAcquireTimeouts() {
+        when(pool.create()).thenAnswer(invocation -> Mono.error(new R2dbcTimeoutException("Connection acquisition timed out")));
+
+        StepVerifier.create(connectionFactory.create())
+                .expectError(R2dbcTimeoutException.class)
+                .verify();
+
+        assertEquals(1, meterRegistry.get("r2dbc.pool.acquire").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void unwrap_ReturnsThePool() {
+        assertSame(pool, connectionFactory.unwrap());
+    }
+}
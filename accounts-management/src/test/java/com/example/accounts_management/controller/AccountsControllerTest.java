@@ -0,0 +1,72 @@
+package com.example.accounts_management.controller;
+
+import com.example.accounts_management.infrastructure.dto.AccountResponse;
+import com.example.accounts_management.service.AccountsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AccountsControllerTest {
+
+    private static final int PREFETCH = 2;
+
+    @Mock
+    private AccountsService accountsService;
+
+    private WebTestClient webTestClient;
+    private final List<Long> requests = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        webTestClient = WebTestClient.bindToController(new AccountsController(accountsService, PREFETCH)).build();
+        when(accountsService.findByCustomerId(1L)).thenReturn(Flux.range(1, 5)
+                .map(id -> AccountResponse.builder().id((long) id).accountNumber("000000000" + id).build())
+                .doOnRequest(requests::add));
+    }
+
+    @Test
+    void getByCustomerId_StreamsOneAccountPerLineAsNdjson() {
+        String body = webTestClient.get().uri("/api/v1/accounts/customer/1")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        List<String> lines = body.lines().toList();
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(0).startsWith("{") && lines.get(0).contains("\"accountNumber\":\"0000000001\""), lines.get(0));
+        assertEquals(PREFETCH, requests.stream().mapToLong(Long::longValue).max().orElse(0), requests::toString);
+    }
+
+    @Test
+    void getByCustomerId_StreamsOneAccountPerServerSentEvent() {
+        List<AccountResponse> accounts = webTestClient.get().uri("/api/v1/accounts/customer/1")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(AccountResponse.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), accounts.stream().map(AccountResponse::getId).toList());
+        assertEquals(PREFETCH, requests.stream().mapToLong(Long::longValue).max().orElse(0), requests::toString);
+    }
+}
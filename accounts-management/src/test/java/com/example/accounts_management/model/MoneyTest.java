@@ -0,0 +1,35 @@
+package com.example.accounts_management.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    @Test
+    void of_ConvertsToMinorUnitsAndBack() {
+        assertEquals(15_025L, Money.of(new BigDecimal("150.25")).minorUnits());
+        assertEquals(10_000L, Money.of(BigDecimal.valueOf(100.0)).minorUnits());
+        assertEquals(-5L, Money.of(new BigDecimal("-0.050")).minorUnits());
+        assertEquals(new BigDecimal("150.25"), new Money(15_025L).toBigDecimal());
+    }
+
+    @Test
+    void of_RejectsFractionsOfMinorUnitsAndOutOfRangeAmounts() {
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("10.005")));
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("1e17")));
+    }
+
+    @Test
+    void arithmetic_FailsInsteadOfOverflowing() {
+        Money balance = new Money(Long.MAX_VALUE - 1);
+
+        assertEquals(Long.MAX_VALUE, balance.plus(new Money(1)).minorUnits());
+        assertThrows(ArithmeticException.class, () -> balance.plus(new Money(2)));
+        assertThrows(ArithmeticException.class, () -> new Money(Long.MIN_VALUE).minus(new Money(1)));
+        assertThrows(ArithmeticException.class, () -> new Money(Long.MIN_VALUE).negate());
+    }
+}
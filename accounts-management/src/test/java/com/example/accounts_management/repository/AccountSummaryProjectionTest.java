@@ -0,0 +1,111 @@
+package com.example.accounts_management.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.r2dbc.repository.Query;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the account summary statements of {@link AccountSummaryRepository} and
+ * {@link MovementEventRepository} against an embedded Postgres migrated with the migrations.
+ */
+class AccountSummaryProjectionTest {
+
+    private static EmbeddedPostgres postgres;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        execute("insert into customer_snapshot (id, customer_name) values (1, 'John Doe')");
+        execute("insert into account (id, account_number, account_type, initial_balance, status, customer_id) values (1, '0000000001', 'SAVINGS', 100, true, 1)");
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        postgres.close();
+    }
+
+    @Test
+    void movementEvents_AreAppliedToTheSummary() throws Exception {
+        assertEquals(List.of("1 John Doe 100 0"), query(repositoryQuery(AccountSummaryRepository.class, "refresh").replace(":accountId", "1")
+                .replace("returning *", "returning account_id || ' ' || customer_name || ' ' || balance || ' ' || movement_count")));
+
+        addMovement("2024-06-10", 50, 1);
+        addMovement("2024-06-12", -20, 2);
+        addMovement("2024-05-01", 5, 3);
+        assertEquals(List.of("3"), applyMovementEvents());
+        assertEquals(List.of("135 3 2024-06-12"), summary());
+
+        execute("delete from movement where seq = 2");
+        execute(repositoryQuery(MovementEventRepository.class, "append")
+                .replace(":accountId", "1").replace(":date", "date '2024-06-12'").replace(":delta", "20").replace(":count", "-1"));
+        assertEquals(List.of("1"), applyMovementEvents());
+        assertEquals(List.of("155 2 2024-06-10"), summary());
+        assertEquals(List.of("0"), applyMovementEvents());
+
+        execute("update customer_snapshot set customer_name = 'John Doe Jr' where id = 1");
+        execute(repositoryQuery(AccountSummaryRepository.class, "refreshCustomerNames").replace(":ids", "array[1]::bigint[]"));
+        assertEquals(List.of("John Doe Jr"), query("select customer_name from account_summary where account_id = 1"));
+    }
+
+    private static void addMovement(String date, int delta, int seq) throws SQLException {
+        execute("insert into movement (movement_date, movement_type, value, balance, account_id, seq) values (date '" + date + "', '"
+                + (delta < 0 ? "WITHDRAWAL" : "DEPOSIT") + "', " + Math.abs(delta) + ", 0, 1, " + seq + ")");
+        execute(repositoryQuery(MovementEventRepository.class, "append")
+                .replace(":accountId", "1").replace(":date", "date '" + date + "'").replace(":delta", String.valueOf(delta)).replace(":count", "1"));
+    }
+
+    private static List<String> applyMovementEvents() throws SQLException {
+        return query(repositoryQuery(AccountSummaryRepository.class, "applyMovementEvents").replace(":limit", "100"));
+    }
+
+    private static List<String> summary() throws SQLException {
+        return query("select balance || ' ' || movement_count || ' ' || last_movement_date from account_summary where account_id = 1");
+    }
+
+    private static String repositoryQuery(Class<?> repository, String methodName) {
+        return Arrays.stream(repository.getDeclaredMethods())
+                .filter(method -> method.getName().equals(methodName))
+                .findFirst()
+                .orElseThrow()
+                .getAnnotation(Query.class)
+                .value();
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static List<String> query(String sql) throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(sql)) {
+            List<String> rows = new ArrayList<>();
+            while (result.next()) {
+                rows.add(result.getString(1));
+            }
+            return rows;
+        }
+    }
+}
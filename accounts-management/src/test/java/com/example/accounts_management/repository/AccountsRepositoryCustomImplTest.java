@@ -0,0 +1,78 @@
+package com.example.accounts_management.repository;
+
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Reads accounts joined with their customer and summary over R2DBC from an embedded Postgres.
+ */
+class AccountsRepositoryCustomImplTest {
+
+    private static EmbeddedPostgres postgres;
+    private static AccountsRepositoryCustomImpl repository;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("insert into customer_snapshot (id, customer_name) values (1, 'John Doe'), (2, 'Jane Roe')");
+            statement.execute("insert into account (id, account_number, account_type, initial_balance, status, customer_id) values "
+                    + "(1, '0000000001', 'SAVINGS', 100, true, 1), (2, '0000000002', 'CHECKING', 50, false, 2), (3, '0000000003', 'SAVINGS', null, true, 1)");
+            statement.execute("insert into account_summary (account_id, account_number, account_type, initial_balance, status, customer_id, customer_name, "
+                    + "balance, last_movement_date, movement_count) values "
+                    + "(1, '0000000001', 'SAVINGS', 100, true, 1, 'John Doe', 100, null, 0), "
+                    + "(2, '0000000002', 'CHECKING', 50, false, 2, 'Jane Roe', 80, date '2024-06-12', 3)");
+        }
+        repository = new AccountsRepositoryCustomImpl(DatabaseClient.create(new PostgresqlConnectionFactory(PostgresqlConnectionConfiguration.builder()
+                .host("localhost")
+                .port(postgres.getPort())
+                .database("postgres")
+                .username("postgres")
+                .build())));
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        postgres.close();
+    }
+
+    @Test
+    void findResponsePageAfter_JoinsTheCustomerNameAndSummary() {
+        StepVerifier.create(repository.findResponsePageAfter(1L, 10))
+                .expectNextMatches(response -> response.getId() == 2L && response.getAccountNumber().equals("0000000002")
+                        && response.getAccountType().equals("CHECKING") && response.getInitialBalance().compareTo(BigDecimal.valueOf(50)) == 0
+                        && !response.getStatus() && response.getCustomerName().equals("Jane Roe")
+                        && response.getBalance().compareTo(BigDecimal.valueOf(80)) == 0
+                        && response.getLastMovementDate().equals(LocalDate.of(2024, 6, 12)) && response.getMovementCount() == 3L)
+                .expectNextMatches(response -> response.getId() == 3L && response.getInitialBalance() == null
+                        && response.getCustomerName().equals("John Doe") && response.getBalance().signum() == 0
+                        && response.getMovementCount() == 0L)
+                .verifyComplete();
+    }
+
+    @Test
+    void findResponsePageAfter_StopsAtTheLimit() {
+        StepVerifier.create(repository.findResponsePageAfter(0L, 2))
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+}
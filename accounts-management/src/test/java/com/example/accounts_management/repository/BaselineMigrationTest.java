@@ -0,0 +1,101 @@
+package com.example.accounts_management.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Migrates a database created before the migrations existed: it holds the schema of V1 without
+ * any migration history, is baselined at that version and brought up to date, with the sequence
+ * numbers, ledger heads and daily balances backfilled from its movements.
+ */
+class BaselineMigrationTest {
+
+    private static EmbeddedPostgres postgres;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        try (InputStream schema = BaselineMigrationTest.class.getResourceAsStream("/db/migration/V1__create_accounts_schema.sql")) {
+            execute(new String(schema.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        execute("insert into customer_snapshot (id, customer_name) values (1, 'John Doe')");
+        execute("insert into account (id, account_number, account_type, initial_balance, status, customer_id) values "
+                + "(1, '0000000001', 'SAVINGS', 100, true, 1), "
+                + "(2, '0000000002', 'CHECKING', 40, true, 1)");
+        // Written in another order than their dates, with the balances that order left behind
+        execute("insert into movement (id, movement_date, movement_type, value, balance, account_id) values "
+                + "(1, date '2024-03-10', 'DEPOSIT', 50, 150, 1), "
+                + "(2, date '2024-03-01', 'WITHDRAWAL', 30, 120, 1), "
+                + "(3, date '2024-03-10', 'DEPOSIT', 5, 125, 1)");
+
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        postgres.close();
+    }
+
+    @Test
+    void migrate_NumbersAndRebalancesTheMovementsByDate() throws Exception {
+        assertEquals(List.of("1 2 70", "2 1 120", "3 3 125"),
+                query("select seq || ' ' || id || ' ' || balance from movement where account_id = 1 order by seq"));
+    }
+
+    @Test
+    void migrate_OpensTheLedgerHeadsFromTheMovements() throws Exception {
+        assertEquals(List.of("1 125 3"), query("select account_id || ' ' || balance || ' ' || last_seq from account_ledger_head order by account_id"));
+        assertEquals(List.of("1 125", "2 40"), query("select account_id || ' ' || balance from account_summary order by account_id"));
+    }
+
+    @Test
+    void migrate_RollsUpTheDailyBalancesFromTheMovements() throws Exception {
+        assertEquals(List.of("2024-03-01 70", "2024-03-10 125"),
+                query("select balance_date || ' ' || balance from account_daily_balance where account_id = 1 order by balance_date"));
+    }
+
+    @Test
+    void migrate_StartsTheExistingSnapshotsAtVersionZero() throws Exception {
+        assertEquals(List.of("0"), query("select version from customer_snapshot"));
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static List<String> query(String sql) throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(sql)) {
+            List<String> rows = new ArrayList<>();
+            while (result.next()) {
+                rows.add(result.getString(1));
+            }
+            return rows;
+        }
+    }
+}
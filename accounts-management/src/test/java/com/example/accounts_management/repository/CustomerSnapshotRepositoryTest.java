@@ -0,0 +1,70 @@
+package com.example.accounts_management.repository;
+
+import com.example.accounts_management.model.CustomerSnapshot;
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import reactor.test.StepVerifier;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Upserts customer snapshots over R2DBC into an embedded Postgres.
+ */
+class CustomerSnapshotRepositoryTest {
+
+    private static EmbeddedPostgres postgres;
+    private static CustomerSnapshotRepository repository;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("insert into customer_snapshot (id, customer_name, version) values (1, 'John Doe', 5), (2, 'Jane Roe', 1)");
+        }
+        R2dbcEntityTemplate template = new R2dbcEntityTemplate(new PostgresqlConnectionFactory(PostgresqlConnectionConfiguration.builder()
+                .host("localhost")
+                .port(postgres.getPort())
+                .database("postgres")
+                .username("postgres")
+                .build()));
+        repository = new R2dbcRepositoryFactory(template).getRepository(CustomerSnapshotRepository.class,
+                RepositoryFragments.just(new CustomerSnapshotRepositoryCustomImpl(template.getDatabaseClient())));
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        postgres.close();
+    }
+
+    @Test
+    void upsertAll_EmitsTheIdsWrittenAndSkipsStaleSnapshots() {
+        StepVerifier.create(repository.upsertAll(List.of(
+                        new CustomerSnapshot(1L, "John Doe Old", 4L),
+                        new CustomerSnapshot(2L, "Jane Roe Updated", 2L),
+                        new CustomerSnapshot(3L, "Jose Lema", 1L)))
+                        .collectList())
+                .expectNext(List.of(2L, 3L))
+                .verifyComplete();
+
+        StepVerifier.create(repository.findById(1L))
+                .expectNextMatches(snapshot -> snapshot.getCustomerName().equals("John Doe") && snapshot.getVersion() == 5L)
+                .verifyComplete();
+    }
+}
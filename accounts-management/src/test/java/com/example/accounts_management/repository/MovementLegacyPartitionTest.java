@@ -0,0 +1,97 @@
+package com.example.accounts_management.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Partitions a database that already holds movements: they stay in the movement_legacy table,
+ * attached as the partition of the dates before the partitioning, and are archived from there.
+ */
+class MovementLegacyPartitionTest {
+
+    private static final String MOVEMENT_ROWS = "select id || ' ' || movement_date || ' ' || movement_type || ' ' || value || ' ' || balance from %s "
+            + "where account_id = 1 order by seq";
+
+    private static EmbeddedPostgres postgres;
+    private static List<String> movements;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        migrateTo("2");
+        execute("insert into customer_snapshot (id, customer_name) values (1, 'John Doe')");
+        execute("insert into account (id, account_number, account_type, initial_balance, status, customer_id) values (1, '0000000001', 'SAVINGS', 100, true, 1)");
+        execute("insert into movement (movement_date, movement_type, value, balance, account_id, seq) values "
+                + "(date '2020-01-05', 'DEPOSIT', 50, 150, 1, 1), "
+                + "(date '2020-02-03', 'WITHDRAWAL', 20, 130, 1, 2), "
+                + "(date '" + LocalDate.now() + "', 'DEPOSIT', 5, 135, 1, 3)");
+        movements = query(String.format(MOVEMENT_ROWS, "movement"));
+        migrateTo("latest");
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        postgres.close();
+    }
+
+    @Test
+    void migrate_AttachesTheExistingMovementsAsAPartition() throws Exception {
+        assertEquals(List.of("movement_legacy"), query("select distinct tableoid::regclass::text from movement"));
+        assertEquals(movements, query(String.format(MOVEMENT_ROWS, "movement_history")));
+        assertEquals("0", query("select create_movement_partitions(date '2020-01-01', current_date)").get(0));
+        assertNull(query("select to_regclass('movement_y2020m01')").get(0));
+    }
+
+    @Test
+    void archivePartitionsBefore_DrainsTheLegacyMonthsOneAtATime() throws Exception {
+        assertEquals("1", query("select archive_movement_partitions(date '2020-03-15')").get(0));
+        assertEquals("1", query("select archive_movement_partitions(date '2020-03-15')").get(0));
+        assertEquals("0", query("select archive_movement_partitions(date '2020-03-15')").get(0));
+
+        assertEquals(List.of("3"), query("select seq from movement_legacy"));
+        assertEquals(movements, query(String.format(MOVEMENT_ROWS, "movement_history")));
+    }
+
+    private static void migrateTo(String target) {
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .target(target)
+                .load()
+                .migrate();
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static List<String> query(String sql) throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(sql)) {
+            List<String> rows = new ArrayList<>();
+            while (result.next()) {
+                rows.add(result.getString(1));
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.accounts_management.repository;
+
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import reactor.test.StepVerifier;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Runs the partition maintenance functions of the migrations, and the movement queries that span
+ * the archive, against an embedded Postgres.
+ */
+class MovementPartitionsTest {
+
+    private static EmbeddedPostgres postgres;
+    private static MovementsRepository movementsRepository;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        execute("insert into customer_snapshot (id, customer_name) values (1, 'John Doe')");
+        execute("insert into account (id, account_number, account_type, initial_balance, status, customer_id) values (1, '0000000001', 'SAVINGS', 100, true, 1)");
+        R2dbcEntityTemplate template = new R2dbcEntityTemplate(new PostgresqlConnectionFactory(PostgresqlConnectionConfiguration.builder()
+                .host("localhost")
+                .port(postgres.getPort())
+                .database("postgres")
+                .username("postgres")
+                .build()));
+        movementsRepository = new R2dbcRepositoryFactory(template).getRepository(MovementsRepository.class,
+                RepositoryFragments.just(new MovementsRepositoryCustomImpl(template.getDatabaseClient())));
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        postgres.close();
+    }
+
+    @Test
+    void createPartitions_MovesTheMonthOutOfTheDefaultPartition() throws Exception {
+        execute("insert into movement (movement_date, movement_type, value, balance, account_id, seq) values (date '2030-05-10', 'DEPOSIT', 10, 110, 1, 100)");
+
+        assertEquals("1", query("select create_movement_partitions(date '2030-05-01', date '2030-05-31')").get(0));
+        assertEquals("0", query("select create_movement_partitions(date '2030-05-01', date '2030-05-31')").get(0));
+
+        assertEquals(List.of("movement_y2030m05"), query("select tableoid::regclass::text from movement where seq = 100"));
+    }
+
+    @Test
+    void archivePartitionsBefore_KeepsTheArchivedMovementsQueryable() throws Exception {
+        query("select create_movement_partitions(date '2020-01-01', date '2020-02-01')");
+        execute("insert into movement (movement_date, movement_type, value, balance, account_id, seq) values "
+                + "(date '2020-01-05', 'DEPOSIT', 50, 150, 1, 1), "
+                + "(date '2020-01-20', 'WITHDRAWAL', 20, 130, 1, 2), "
+                + "(date '2020-02-03', 'DEPOSIT', 5, 135, 1, 3)");
+        List<String> january = query("select id || ' ' || movement_date || ' ' || movement_type || ' ' || value || ' ' || balance from movement "
+                + "where movement_date < date '2020-02-01' order by seq");
+
+        assertEquals("1", query("select archive_movement_partitions(date '2020-02-15')").get(0));
+
+        assertNull(query("select to_regclass('movement_y2020m01')").get(0));
+        assertEquals(List.of("2020-02-03"), query("select movement_date from movement where movement_date < date '2020-03-01'"));
+        assertEquals(january, query("select id || ' ' || movement_date || ' ' || movement_type || ' ' || value || ' ' || balance from movement_history "
+                + "where account_id = 1 and movement_month = date '2020-01-01' order by seq"));
+    }
+
+    @Test
+    void existsInHistoryByAccountId_FindsAccountsWithOnlyArchivedMovements() throws Exception {
+        execute("insert into account (id, account_number, account_type, initial_balance, status, customer_id) values "
+                + "(2, '0000000002', 'SAVINGS', 100, true, 1), (3, '0000000003', 'SAVINGS', 100, true, 1)");
+        query("select create_movement_partitions(date '2019-06-01', date '2019-06-30')");
+        execute("insert into movement (movement_date, movement_type, value, balance, account_id, seq) values (date '2019-06-10', 'DEPOSIT', 10, 110, 2, 1)");
+        query("select archive_movement_partitions(date '2019-07-15')");
+
+        assertEquals(List.of("0"), query("select count(*) from movement where account_id = 2"));
+        StepVerifier.create(movementsRepository.existsInHistoryByAccountId(2L))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(movementsRepository.existsInHistoryByAccountId(3L))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static List<String> query(String sql) throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(sql)) {
+            List<String> rows = new ArrayList<>();
+            while (result.next()) {
+                rows.add(result.getString(1));
+            }
+            return rows;
+        }
+    }
+}
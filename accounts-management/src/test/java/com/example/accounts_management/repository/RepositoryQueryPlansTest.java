@@ -0,0 +1,377 @@
+package com.example.accounts_management.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.r2dbc.spi.ConnectionFactory;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.reactivestreams.Publisher;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks through {@code EXPLAIN} that every repository query is answered from an index, against
+ * the schema built by the migrations. Sequential and bitmap scans are disabled to make the planner
+ * show the index it would pick. Each query is run once in a transaction rolled back afterwards:
+ * every table it scans must be read through an index condition, and a filter left on top of it
+ * must not discard rows, only conditions the index or the partition bounds already imply. Queries
+ * with a limit may walk an index in order without a condition, but must not sort the rows. The
+ * movements are partitioned from January to December 2024, and the queries on a date or a date
+ * range must only read the partitions of those dates; the default partition holds the months
+ * before. Derived queries are checked with the SQL Spring Data generates for them.
+ */
+class RepositoryQueryPlansTest {
+
+    private static final Pattern PARAMETER = Pattern.compile("(?<![:\\w]):(\\w+)");
+    private static final Pattern LIMIT = Pattern.compile("\\blimit\\b", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Literal values the named parameters are replaced with.
+     */
+    private static final Map<String, String> PARAMETERS = Map.ofEntries(
+            Map.entry("accountId", "1"),
+            Map.entry("accountNumber", "'0000000001'"),
+            Map.entry("afterDate", "date '2024-06-01'"),
+            Map.entry("afterId", "1"),
+            Map.entry("asOf", "date '2024-06-01'"),
+            Map.entry("balance", "150.00"),
+            Map.entry("before", "timestamp '2024-06-01 00:00:00'"),
+            Map.entry("beforeDate", "date '2023-01-01'"),
+            Map.entry("body", "decode('7b7d', 'hex')"),
+            Map.entry("contentType", "'application/json'"),
+            Map.entry("count", "1"),
+            Map.entry("createdAt", "timestamp '2024-06-01 00:00:00'"),
+            Map.entry("customerId", "1"),
+            Map.entry("date", "date '2024-06-01'"),
+            Map.entry("delta", "1.00"),
+            Map.entry("endDate", "date '2024-06-30'"),
+            Map.entry("fromDate", "date '2024-01-01'"),
+            Map.entry("id", "1"),
+            Map.entry("ids", "array[1, 2]::bigint[]"),
+            Map.entry("key", "'POST /api/v1/movements 1'"),
+            Map.entry("limit", "100"),
+            Map.entry("openingBalance", "0.00"),
+            Map.entry("requestHash", "decode('00', 'hex')"),
+            Map.entry("seq", "1"),
+            Map.entry("startDate", "date '2024-06-01'"),
+            Map.entry("status", "201"),
+            Map.entry("toDate", "date '2024-12-01'"),
+            Map.entry("type", "'DEPOSIT'"),
+            Map.entry("value", "50.00"));
+
+    /**
+     * Accounts with a movement every fifteen days from July 2023 to December 2024, analyzed so that
+     * the planner weighs the indexes with the statistics of filled tables.
+     */
+    private static final List<String> ROWS = List.of(
+            "insert into customer_snapshot (id, customer_name) select i, 'Customer ' || i from generate_series(1, 4000) i",
+            "insert into account (account_number, account_type, initial_balance, status, customer_id) "
+                    + "select lpad(i::text, 10, '0'), 'SAVINGS', 100, true, (i - 1) / 5 + 1 from generate_series(1, 20000) i",
+            "insert into movement (movement_date, movement_type, value, balance, account_id, seq) "
+                    + "select date '2023-07-01' + (i / 20000) * 15, case when i % 3 = 0 then 'WITHDRAWAL' else 'DEPOSIT' end, 10, 100, i % 20000 + 1, i / 20000 + 1 "
+                    + "from generate_series(0, 739999) i",
+            "insert into account_ledger_head (account_id, balance, last_seq) select id, 100, 37 from account",
+            "insert into account_daily_balance (account_id, balance_date, balance) "
+                    + "select a.id, d::date, 100 from account a cross join generate_series(date '2024-06-01', date '2024-06-30', interval '1 day') d",
+            "insert into account_summary (account_id, account_number, account_type, initial_balance, status, customer_id, customer_name) "
+                    + "select a.id, a.account_number, a.account_type, a.initial_balance, a.status, a.customer_id, c.customer_name "
+                    + "from account a join customer_snapshot c on c.id = a.customer_id",
+            "insert into movement_event (account_id, movement_date, delta, movement_count) "
+                    + "select i % 20000 + 1, date '2024-06-01', 10, 1 from generate_series(1, 10000) i",
+            "insert into idempotency_key (idempotency_key, status, created_at) "
+                    + "select 'POST /api/v1/movements ' || i, 201, timestamp '2024-05-01 00:00:00' + i * interval '1 minute' from generate_series(1, 10000) i");
+
+    /**
+     * Filters that compare the rows of two tables, which no index can answer, with why they are
+     * cheap.
+     */
+    private static final Map<String, String> CROSS_TABLE_FILTERS = Map.of(
+            "AccountSummaryRepository.refreshCustomerNames",
+            "skips the summaries whose name is up to date, among the ones found by the customer ids");
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final List<String> statements = new CopyOnWriteArrayList<>();
+    private static EmbeddedPostgres postgres;
+    private static AccountsRepository accountsRepository;
+    private static MovementsRepository movementsRepository;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("select create_movement_partitions(date '2024-01-01', date '2024-12-01')");
+            for (String rows : ROWS) {
+                statement.execute(rows);
+            }
+            statement.execute("analyze");
+        }
+        ConnectionFactory connectionFactory = new PostgresqlConnectionFactory(PostgresqlConnectionConfiguration.builder()
+                .host("localhost")
+                .port(postgres.getPort())
+                .database("postgres")
+                .username("postgres")
+                .build());
+        R2dbcEntityTemplate template = new R2dbcEntityTemplate(recording(connectionFactory));
+        R2dbcRepositoryFactory repositoryFactory = new R2dbcRepositoryFactory(template);
+        accountsRepository = repositoryFactory.getRepository(AccountsRepository.class,
+                RepositoryFragments.just(new AccountsRepositoryCustomImpl(template.getDatabaseClient())));
+        movementsRepository = repositoryFactory.getRepository(MovementsRepository.class,
+                RepositoryFragments.just(new MovementsRepositoryCustomImpl(template.getDatabaseClient())));
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        postgres.close();
+    }
+
+    static Stream<Arguments> queries() {
+        List<Arguments> queries = new ArrayList<>();
+        for (Class<?> repository : List.of(AccountsRepository.class, MovementsRepository.class, CustomerSnapshotRepository.class,
+                LedgerHeadRepository.class, AccountDailyBalanceRepository.class, AccountSummaryRepository.class, MovementEventRepository.class,
+                IdempotencyKeyRepository.class)) {
+            for (Method method : repository.getDeclaredMethods()) {
+                Query query = method.getAnnotation(Query.class);
+                if (query != null) {
+                    queries.add(Arguments.of(repository.getSimpleName() + "." + method.getName(), query.value()));
+                }
+            }
+        }
+
+        queries.add(Arguments.of("AccountsRepository.findByAccountNumber",
+                derived(() -> accountsRepository.findByAccountNumber("0000000001"), PARAMETERS.get("accountNumber"))));
+        queries.add(Arguments.of("MovementsRepository.findByAccountIdOrderByDateDesc",
+                derived(() -> movementsRepository.findByAccountIdOrderByDateDesc(1L), PARAMETERS.get("accountId"))));
+        queries.add(Arguments.of("MovementsRepository.findByAccountIdOrderBySeqAsc",
+                derived(() -> movementsRepository.findByAccountIdOrderBySeqAsc(1L), PARAMETERS.get("accountId"))));
+
+        queries.add(Arguments.of("AccountsRepositoryCustom.findResponsePageAfter", AccountsRepositoryCustomImpl.RESPONSE_PAGE));
+        queries.add(Arguments.of("MovementsRepositoryCustom.findReportRows", MovementsRepositoryCustomImpl.REPORT_ROWS));
+        queries.add(Arguments.of("MovementsRepositoryCustom.findAccountStatements", MovementsRepositoryCustomImpl.ACCOUNT_STATEMENTS));
+        queries.add(Arguments.of("CustomerSnapshotRepositoryCustom.deleteAllUnreferenced", CustomerSnapshotRepositoryCustomImpl.DELETE_UNREFERENCED));
+        return queries.stream();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("queries")
+    void query_UsesAnIndex(String name, String sql) throws Exception {
+        JsonNode plan = analyze(sql);
+        List<String> nodes = new ArrayList<>();
+        collectNodes(plan, nodes);
+
+        assertFalse(nodes.stream().anyMatch(node -> node.startsWith("Seq Scan")), () -> name + " scans a whole table:\n" + plan.toPrettyString());
+        List<Scan> scans = new ArrayList<>();
+        collectScans(plan, false, scans);
+        for (Scan scan : scans) {
+            String relation = scan.node().get("Relation Name").asText();
+            assertTrue(scan.node().has("Index Cond") || scan.limited(),
+                    () -> name + " reads " + relation + " without an index condition:\n" + plan.toPrettyString());
+            if (!CROSS_TABLE_FILTERS.containsKey(name)) {
+                assertEquals(0, scan.node().path("Rows Removed by Filter").asLong(),
+                        () -> name + " filters " + relation + " beyond its index condition:\n" + plan.toPrettyString());
+            }
+        }
+        if (LIMIT.matcher(sql).find()) {
+            assertFalse(nodes.contains("Sort"), () -> name + " sorts the rows it limits:\n" + plan.toPrettyString());
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("partitionedQueries")
+    void partitionedQuery_ReadsThePartitionsOfItsDatesOnly(String name, String sql, Set<String> partitions) throws Exception {
+        JsonNode plan = explain(sql);
+        List<String> nodes = new ArrayList<>();
+        collectNodes(plan, nodes);
+
+        assertEquals(partitions, partitionsRead(nodes), () -> name + " reads other partitions:\n" + plan.toPrettyString());
+    }
+
+    /**
+     * Without its date a movement can be anywhere, so the lookup by id alone probes the primary
+     * key of every partition, one index lookup each, and its cost grows with the months kept.
+     * The writes take this path once per request, to learn the date, and then use the whole key.
+     */
+    @Test
+    void findById_ProbesThePrimaryKeyOfEveryPartition() throws Exception {
+        JsonNode plan = explain("select * from movement where id = :id");
+        List<String> nodes = new ArrayList<>();
+        collectNodes(plan, nodes);
+
+        assertEquals(partitions(), partitionsRead(nodes), plan::toPrettyString);
+        assertTrue(nodes.stream()
+                .filter(node -> node.contains(" on movement_"))
+                .allMatch(node -> node.startsWith("Index Scan") || node.startsWith("Index Only Scan")), plan::toPrettyString);
+    }
+
+    private static Set<String> partitions() throws Exception {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("select inhrelid::regclass::text from pg_inherits where inhparent = 'movement'::regclass")) {
+            Set<String> partitions = new HashSet<>();
+            while (result.next()) {
+                partitions.add(result.getString(1));
+            }
+            return partitions;
+        }
+    }
+
+    private static Set<String> partitionsRead(List<String> nodes) {
+        return nodes.stream()
+                .map(node -> node.substring(node.indexOf(" on ") + 4))
+                .filter(relation -> relation.startsWith("movement_y") || relation.equals("movement_default"))
+                .collect(Collectors.toSet());
+    }
+
+    static Stream<Arguments> partitionedQueries() {
+        Set<String> june = Set.of("movement_y2024m06");
+        return Stream.of(
+                Arguments.of("MovementsRepository.findByIdAndDate", query(MovementsRepository.class, "findByIdAndDate"), june),
+                Arguments.of("MovementsRepository.updateByIdAndDate", query(MovementsRepository.class, "updateByIdAndDate"), june),
+                Arguments.of("MovementsRepository.deleteByIdAndDate", query(MovementsRepository.class, "deleteByIdAndDate"), june),
+                Arguments.of("MovementsRepositoryCustom.findReportRows", MovementsRepositoryCustomImpl.REPORT_ROWS,
+                        Set.of("movement_y2024m06")),
+                Arguments.of("MovementsRepositoryCustom.findAccountStatements", MovementsRepositoryCustomImpl.ACCOUNT_STATEMENTS,
+                        Stream.concat(Stream.of("movement_default"), IntStream.rangeClosed(1, 6).mapToObj(month -> String.format("movement_y2024m%02d", month)))
+                                .collect(Collectors.toSet())));
+    }
+
+    private static String query(Class<?> repository, String methodName) {
+        return Stream.of(repository.getDeclaredMethods())
+                .filter(method -> method.getName().equals(methodName))
+                .findFirst()
+                .orElseThrow()
+                .getAnnotation(Query.class)
+                .value();
+    }
+
+    private static JsonNode explain(String sql) throws Exception {
+        return explain("explain (format json) ", sql);
+    }
+
+    private static JsonNode analyze(String sql) throws Exception {
+        return explain("explain (analyze, format json) ", sql);
+    }
+
+    private static JsonNode explain(String explain, String sql) throws Exception {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.execute("set local enable_seqscan = off");
+            statement.execute("set local enable_bitmapscan = off");
+            try (ResultSet result = statement.executeQuery(explain + bind(sql))) {
+                result.next();
+                return objectMapper.readTree(result.getString(1)).get(0).get("Plan");
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    /**
+     * Runs a derived query of a repository and returns the SQL Spring Data sent for it, with its
+     * bind marker replaced by the given literal.
+     */
+    private static String derived(Supplier<Publisher<?>> query, String value) {
+        statements.clear();
+        Flux.from(query.get()).blockLast();
+        assertEquals(1, statements.size(), statements::toString);
+        return statements.get(0).replace("$1", value);
+    }
+
+    /**
+     * Wraps the connections of the factory to keep the SQL of the statements they create.
+     */
+    private static ConnectionFactory recording(ConnectionFactory connectionFactory) {
+        return (ConnectionFactory) Proxy.newProxyInstance(ConnectionFactory.class.getClassLoader(), new Class<?>[]{ConnectionFactory.class},
+                (proxy, method, args) -> {
+                    Object result = method.invoke(connectionFactory, args);
+                    return method.getName().equals("create") ? Mono.from((Publisher<?>) result).map(RepositoryQueryPlansTest::recordingConnection) : result;
+                });
+    }
+
+    private static io.r2dbc.spi.Connection recordingConnection(Object connection) {
+        return (io.r2dbc.spi.Connection) Proxy.newProxyInstance(ConnectionFactory.class.getClassLoader(), new Class<?>[]{io.r2dbc.spi.Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("createStatement")) {
+                        statements.add((String) args[0]);
+                    }
+                    return method.invoke(connection, args);
+                });
+    }
+
+    private static String bind(String sql) {
+        Matcher matcher = PARAMETER.matcher(sql);
+        StringBuilder bound = new StringBuilder();
+        while (matcher.find()) {
+            String value = PARAMETERS.get(matcher.group(1));
+            if (value == null) {
+                fail("No value for the parameter :" + matcher.group(1) + ", add one to PARAMETERS");
+            }
+            matcher.appendReplacement(bound, Matcher.quoteReplacement(value));
+        }
+        return matcher.appendTail(bound).toString();
+    }
+
+    /**
+     * A scan of a table, and whether a limit above it stops reading once it has enough rows.
+     */
+    private record Scan(JsonNode node, boolean limited) {
+    }
+
+    private static void collectScans(JsonNode plan, boolean limited, List<Scan> scans) {
+        boolean underLimit = limited || plan.path("Node Type").asText().equals("Limit");
+        if (plan.has("Relation Name") && plan.path("Node Type").asText().endsWith("Scan")) {
+            scans.add(new Scan(plan, underLimit));
+        }
+        for (JsonNode child : plan.path("Plans")) {
+            collectScans(child, underLimit, scans);
+        }
+    }
+
+    private static void collectNodes(JsonNode plan, List<String> nodes) {
+        nodes.add(plan.path("Node Type").asText() + (plan.has("Relation Name") ? " on " + plan.get("Relation Name").asText() : ""));
+        for (JsonNode child : plan.path("Plans")) {
+            collectNodes(child, nodes);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.accounts_management.service;
+
+import com.example.accounts_management.repository.AccountSummaryRepository;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AccountSummaryProjectorTest {
+
+    private final AccountSummaryRepository accountSummaryRepository = mock(AccountSummaryRepository.class);
+
+    @Test
+    void drain_AppliesBatchesUntilOneIsNotFull() {
+        when(accountSummaryRepository.applyMovementEvents(10)).thenReturn(Mono.just(10)).thenReturn(Mono.just(10)).thenReturn(Mono.just(3));
+        AccountSummaryProjector projector = new AccountSummaryProjector(accountSummaryRepository, 10);
+
+        StepVerifier.create(projector.drain())
+                .expectNext(23)
+                .verifyComplete();
+
+        verify(accountSummaryRepository, times(3)).applyMovementEvents(10);
+    }
+
+    @Test
+    void drain_NothingPending() {
+        when(accountSummaryRepository.applyMovementEvents(10)).thenReturn(Mono.just(0));
+        AccountSummaryProjector projector = new AccountSummaryProjector(accountSummaryRepository, 10);
+
+        StepVerifier.create(projector.drain())
+                .expectNext(0)
+                .verifyComplete();
+
+        verify(accountSummaryRepository, times(1)).applyMovementEvents(10);
+    }
+}
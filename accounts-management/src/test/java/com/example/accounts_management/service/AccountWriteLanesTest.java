@@ -0,0 +1,92 @@
+package com.example.accounts_management.service;
+
+import com.example.accounts_management.exception.custom.BusinessException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AccountWriteLanesTest {
+
+    private final AccountWriteLanes accountWriteLanes = new AccountWriteLanes(4);
+
+    @AfterEach
+    void tearDown() {
+        accountWriteLanes.shutdown();
+    }
+
+    @Test
+    void submit_ConcurrentMovementsOnHotAccountsKeepExactBalances() {
+        int accounts = 5;
+        int movementsPerAccount = 2_000;
+        Map<Long, BigDecimal> balances = new ConcurrentHashMap<>();
+
+        // Read the previous balance, hop to another thread and write the new one: without the
+        // lanes two movements on the same account would read the same previous balance.
+        Flux.range(0, accounts * movementsPerAccount)
+                .parallel()
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> {
+                    Long accountId = (long) (i % accounts);
+                    return accountWriteLanes.submit(accountId, Mono.fromCallable(() -> balances.getOrDefault(accountId, BigDecimal.ZERO))
+                            .publishOn(Schedulers.boundedElastic())
+                            .map(previous -> previous.add(BigDecimal.ONE))
+                            .doOnNext(current -> balances.put(accountId, current)));
+                })
+                .sequential()
+                .blockLast(Duration.ofSeconds(30));
+
+        for (long accountId = 0; accountId < accounts; accountId++) {
+            assertEquals(BigDecimal.valueOf(movementsPerAccount), balances.get(accountId));
+        }
+    }
+
+    @Test
+    void submit_OtherAccountsAreNotBlockedByABusyLane() {
+        Sinks.Empty<Void> release = Sinks.empty();
+
+        Mono<String> blocked = accountWriteLanes.submit(1L, release.asMono().thenReturn("first"));
+        blocked.subscribe();
+
+        StepVerifier.create(accountWriteLanes.submit(2L, Mono.just("second")))
+                .expectNext("second")
+                .verifyComplete();
+
+        release.tryEmitEmpty();
+    }
+
+    @Test
+    void submit_SameAccountWaitsForPreviousWork() {
+        Sinks.Empty<Void> release = Sinks.empty();
+        accountWriteLanes.submit(1L, release.asMono()).subscribe();
+
+        StepVerifier.create(accountWriteLanes.submit(1L, Mono.just("second")))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(100))
+                .then(release::tryEmitEmpty)
+                .expectNext("second")
+                .verifyComplete();
+    }
+
+    @Test
+    void submit_ErrorIsRelayedAndLaneKeepsWorking() {
+        StepVerifier.create(accountWriteLanes.submit(1L, Mono.error(new BusinessException(HttpStatus.NOT_FOUND, "Account not found"))))
+                .expectError(BusinessException.class)
+                .verify();
+
+        StepVerifier.create(accountWriteLanes.submit(1L, Mono.just("next")))
+                .expectNext("next")
+                .verifyComplete();
+    }
+}
@@ -2,27 +2,39 @@ package com.example.accounts_management.service;
 
 import com.example.accounts_management.exception.custom.BusinessException;
 import com.example.accounts_management.infrastructure.dto.AccountRequest;
+import com.example.accounts_management.infrastructure.dto.AccountResponse;
 import com.example.accounts_management.model.Account;
+import com.example.accounts_management.model.AccountSummary;
+import com.example.accounts_management.model.CursorPage;
 import com.example.accounts_management.model.CustomerSnapshot;
+import com.example.accounts_management.model.PageCursor;
+import com.example.accounts_management.repository.AccountDailyBalanceRepository;
+import com.example.accounts_management.repository.AccountSummaryRepository;
 import com.example.accounts_management.repository.AccountsRepository;
-import com.example.accounts_management.repository.CustomerSnapshotRepository;
 import com.example.accounts_management.repository.MovementsRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,20 +44,31 @@ class AccountsServiceTest {
     private AccountsRepository accountsRepository;
 
     @Mock
-    private CustomerSnapshotRepository customerSnapshotRepository;
+    private CustomerSnapshotCache customerSnapshotCache;
 
     @Mock
     private MovementsRepository movementsRepository;
 
-    @InjectMocks
+    @Mock
+    private AccountDailyBalanceRepository accountDailyBalanceRepository;
+
+    @Mock
+    private AccountSummaryRepository accountSummaryRepository;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
     private AccountsService accountsService;
 
     private Account account;
     private CustomerSnapshot customerSnapshot;
+    private AccountSummary accountSummary;
     private AccountRequest accountRequest;
 
     @BeforeEach
     void setUp() {
+        lenient().when(transactionalOperator.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(invocation -> invocation.getArgument(0));
+
         account = new Account();
         account.setId(1L);
         account.setCustomerId(1L);
@@ -58,27 +81,43 @@ class AccountsServiceTest {
         customerSnapshot.setId(1L);
         customerSnapshot.setCustomerName("Jose Lema");
 
+        accountSummary = AccountSummary.builder()
+                .accountId(1L)
+                .accountNumber("123456")
+                .accountType(AccountRequest.AccountTypeEnum.SAVINGS)
+                .initialBalance(BigDecimal.valueOf(100.0))
+                .status(true)
+                .customerId(1L)
+                .customerName("Jose Lema")
+                .balance(BigDecimal.valueOf(150.0))
+                .lastMovementDate(LocalDate.of(2024, 6, 30))
+                .movementCount(2L)
+                .build();
+
         accountRequest = new AccountRequest();
         accountRequest.setCustomerId(1L);
         accountRequest.setAccountNumber("123456");
         accountRequest.setAccountType(AccountRequest.AccountTypeEnum.SAVINGS);
         accountRequest.setInitialBalance(BigDecimal.valueOf(100.0));
         accountRequest.setStatus(true);
+
+        accountsService = new AccountsService(accountsRepository, customerSnapshotCache, movementsRepository, accountDailyBalanceRepository,
+                accountSummaryRepository, transactionalOperator, 2);
     }
 
     @Test
     void findById_Success() {
-        when(accountsRepository.findById(1L)).thenReturn(Mono.just(account));
-        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(customerSnapshot));
+        when(accountSummaryRepository.findById(1L)).thenReturn(Mono.just(accountSummary));
 
         StepVerifier.create(accountsService.findById(1L))
-                .expectNextMatches(response -> response.getId().equals(1L) && response.getCustomerName().equals("Jose Lema"))
+                .expectNextMatches(response -> response.getId().equals(1L) && response.getCustomerName().equals("Jose Lema")
+                        && response.getBalance().equals(BigDecimal.valueOf(150.0)) && response.getMovementCount() == 2L)
                 .verifyComplete();
     }
 
     @Test
     void findById_NotFound() {
-        when(accountsRepository.findById(anyLong())).thenReturn(Mono.empty());
+        when(accountSummaryRepository.findById(anyLong())).thenReturn(Mono.empty());
 
         StepVerifier.create(accountsService.findById(1L))
                 .expectError(BusinessException.class)
@@ -86,28 +125,89 @@ class AccountsServiceTest {
     }
 
     @Test
-    void findAll_Success() {
-        when(accountsRepository.findAll()).thenReturn(Flux.just(account));
-        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(customerSnapshot));
+    void findPage_Success() {
+        when(accountsRepository.findResponsePageAfter(0L, 3)).thenReturn(Flux.just(accountResponse(1L)));
 
-        StepVerifier.create(accountsService.findAll())
-                .expectNextCount(1)
+        StepVerifier.create(accountsService.findPage(null, null))
+                .expectNextMatches(page -> page.getItems().size() == 1 && page.getNextCursor() == null
+                        && page.getItems().get(0).getBalance().equals(BigDecimal.valueOf(150.0))
+                        && page.getItems().get(0).getMovementCount() == 2L)
                 .verifyComplete();
     }
 
+    @Test
+    void findPage_LimitIsCappedAndNextPageStartsAfterLastId() {
+        when(accountsRepository.findResponsePageAfter(0L, 3)).thenReturn(Flux.just(accountResponse(1L), accountResponse(2L), accountResponse(3L)));
+        when(accountsRepository.findResponsePageAfter(2L, 3)).thenReturn(Flux.just(accountResponse(3L)));
+
+        CursorPage<AccountResponse> firstPage = accountsService.findPage(null, 50).block();
+
+        assertEquals(List.of(1L, 2L), firstPage.getItems().stream().map(AccountResponse::getId).toList());
+        StepVerifier.create(accountsService.findPage(firstPage.getNextCursor(), 50))
+                .expectNextMatches(page -> page.getItems().get(0).getId().equals(3L) && page.getNextCursor() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    void findPage_InvalidCursor() {
+        StepVerifier.create(accountsService.findPage(PageCursor.encode("abc"), null))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
+    @Test
+    void getBalance_ReadsClosestRollup() {
+        LocalDate asOf = LocalDate.of(2024, 6, 30);
+        when(accountsRepository.findById(1L)).thenReturn(Mono.just(account));
+        when(accountDailyBalanceRepository.findBalanceAsOf(1L, asOf)).thenReturn(Mono.just(BigDecimal.valueOf(250.0)));
+
+        StepVerifier.create(accountsService.getBalance(1L, asOf))
+                .expectNextMatches(response -> response.getBalance().equals(BigDecimal.valueOf(250.0)) && response.getAsOf().equals(asOf))
+                .verifyComplete();
+    }
+
+    @Test
+    void getBalance_BeforeFirstMovementIsInitialBalance() {
+        when(accountsRepository.findById(1L)).thenReturn(Mono.just(account));
+        when(accountDailyBalanceRepository.findBalanceAsOf(anyLong(), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(accountsService.getBalance(1L, null))
+                .expectNextMatches(response -> response.getBalance().equals(BigDecimal.valueOf(100.0)) && response.getAsOf().equals(LocalDate.now()))
+                .verifyComplete();
+    }
+
+    @Test
+    void getBalance_AccountNotFound() {
+        when(accountsRepository.findById(anyLong())).thenReturn(Mono.empty());
+
+        StepVerifier.create(accountsService.getBalance(1L, null))
+                .expectErrorMatches(throwable -> throwable instanceof BusinessException &&
+                        ((BusinessException) throwable).getStatus() == HttpStatus.NOT_FOUND)
+                .verify();
+    }
+
     @Test
     void findByCustomerId_Success() {
-        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(customerSnapshot));
-        when(accountsRepository.findByCustomerId(1L)).thenReturn(Flux.just(account));
+        when(accountSummaryRepository.findByCustomerId(1L)).thenReturn(Flux.just(accountSummary));
 
         StepVerifier.create(accountsService.findByCustomerId(1L))
                 .expectNextCount(1)
                 .verifyComplete();
     }
 
+    @Test
+    void findByCustomerId_NoAccounts() {
+        when(accountSummaryRepository.findByCustomerId(1L)).thenReturn(Flux.empty());
+        when(customerSnapshotCache.get(1L)).thenReturn(Mono.just(customerSnapshot));
+
+        StepVerifier.create(accountsService.findByCustomerId(1L))
+                .verifyComplete();
+    }
+
     @Test
     void findByCustomerId_NotFound() {
-        when(customerSnapshotRepository.findById(anyLong())).thenReturn(Mono.empty());
+        when(accountSummaryRepository.findByCustomerId(anyLong())).thenReturn(Flux.empty());
+        when(customerSnapshotCache.get(anyLong())).thenReturn(Mono.empty());
 
         StepVerifier.create(accountsService.findByCustomerId(1L))
                 .expectError(BusinessException.class)
@@ -116,9 +216,10 @@ class AccountsServiceTest {
 
     @Test
     void save_Success() {
-        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(customerSnapshot));
+        when(customerSnapshotCache.get(1L)).thenReturn(Mono.just(customerSnapshot));
         when(accountsRepository.findByAccountNumber(anyString())).thenReturn(Mono.empty());
         when(accountsRepository.save(any(Account.class))).thenReturn(Mono.just(account));
+        when(accountSummaryRepository.refresh(1L)).thenReturn(Mono.just(accountSummary));
 
         StepVerifier.create(accountsService.save(accountRequest))
                 .expectNextMatches(response -> response.getId().equals(1L))
@@ -127,7 +228,7 @@ class AccountsServiceTest {
 
     @Test
     void save_CustomerNotFound() {
-        when(customerSnapshotRepository.findById(anyLong())).thenReturn(Mono.empty());
+        when(customerSnapshotCache.get(anyLong())).thenReturn(Mono.empty());
 
         StepVerifier.create(accountsService.save(accountRequest))
                 .expectError(BusinessException.class)
@@ -136,7 +237,7 @@ class AccountsServiceTest {
 
     @Test
     void save_AccountAlreadyExists() {
-        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(customerSnapshot));
+        when(customerSnapshotCache.get(1L)).thenReturn(Mono.just(customerSnapshot));
         when(accountsRepository.findByAccountNumber(anyString())).thenReturn(Mono.just(account));
 
         StepVerifier.create(accountsService.save(accountRequest))
@@ -145,11 +246,26 @@ class AccountsServiceTest {
                 .verify();
     }
 
+    @Test
+    void save_InitialBalanceWithAFractionOfACentIsRejected() {
+        accountRequest.setInitialBalance(new BigDecimal("100.001"));
+
+        StepVerifier.create(accountsService.save(accountRequest))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        StepVerifier.create(accountsService.update(1L, accountRequest))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verify(customerSnapshotCache, never()).get(anyLong());
+        verify(accountsRepository, never()).save(any(Account.class));
+    }
+
     @Test
     void update_Success() {
-        when(accountsRepository.findById(1L)).thenReturn(Mono.just(account));
-        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(customerSnapshot));
+        when(accountSummaryRepository.findById(1L)).thenReturn(Mono.just(accountSummary));
         when(accountsRepository.save(any(Account.class))).thenReturn(Mono.just(account));
+        when(accountSummaryRepository.refresh(1L)).thenReturn(Mono.just(accountSummary));
 
         StepVerifier.create(accountsService.update(1L, accountRequest))
                 .expectNextMatches(response -> response.getId().equals(1L))
@@ -158,18 +274,29 @@ class AccountsServiceTest {
 
     @Test
     void update_NotFound() {
-        when(accountsRepository.findById(anyLong())).thenReturn(Mono.empty());
+        when(accountSummaryRepository.findById(anyLong())).thenReturn(Mono.empty());
 
         StepVerifier.create(accountsService.update(1L, accountRequest))
                 .expectError(BusinessException.class)
                 .verify();
     }
 
+    @Test
+    void update_CustomerNotFound() {
+        when(accountSummaryRepository.findById(1L)).thenReturn(Mono.just(accountSummary));
+        when(accountsRepository.save(any(Account.class))).thenReturn(Mono.just(account));
+        when(accountSummaryRepository.refresh(1L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(accountsService.update(1L, accountRequest))
+                .expectErrorMatches(throwable -> throwable instanceof BusinessException &&
+                        ((BusinessException) throwable).getStatus() == HttpStatus.NOT_FOUND)
+                .verify();
+    }
+
     @Test
     void deleteById_Success() {
-        when(accountsRepository.findById(1L)).thenReturn(Mono.just(account));
-        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(customerSnapshot));
-        when(movementsRepository.findByAccountIdOrderByDateDesc(1L)).thenReturn(Flux.empty());
+        when(accountSummaryRepository.findById(1L)).thenReturn(Mono.just(accountSummary));
+        when(movementsRepository.existsInHistoryByAccountId(1L)).thenReturn(Mono.just(false));
         when(accountsRepository.deleteById(1L)).thenReturn(Mono.empty());
 
         StepVerifier.create(accountsService.deleteById(1L))
@@ -178,7 +305,7 @@ class AccountsServiceTest {
 
     @Test
     void deleteById_NotFound() {
-        when(accountsRepository.findById(anyLong())).thenReturn(Mono.empty());
+        when(accountSummaryRepository.findById(anyLong())).thenReturn(Mono.empty());
 
         StepVerifier.create(accountsService.deleteById(1L))
                 .expectError(BusinessException.class)
@@ -187,13 +314,20 @@ class AccountsServiceTest {
 
     @Test
     void deleteById_HasMovements() {
-        when(accountsRepository.findById(1L)).thenReturn(Mono.just(account));
-        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(customerSnapshot));
-        when(movementsRepository.findByAccountIdOrderByDateDesc(1L)).thenReturn(Flux.just(new com.example.accounts_management.model.Movement()));
+        when(accountSummaryRepository.findById(1L)).thenReturn(Mono.just(accountSummary));
+        when(movementsRepository.existsInHistoryByAccountId(1L)).thenReturn(Mono.just(true));
 
         StepVerifier.create(accountsService.deleteById(1L))
                 .expectErrorMatches(throwable -> throwable instanceof BusinessException &&
                         ((BusinessException) throwable).getStatus() == HttpStatus.CONFLICT)
                 .verify();
     }
+
+    private AccountSummary summary(Long id) {
+        return accountSummary.toBuilder().accountId(id).build();
+    }
+
+    private AccountResponse accountResponse(Long id) {
+        return summary(id).toAccountResponse();
+    }
 }
@@ -0,0 +1,257 @@
+package com.example.accounts_management.service;
+
+import com.example.accounts_management.infrastructure.dto.BulkMovementRequest;
+import com.example.accounts_management.infrastructure.dto.BulkMovementResult;
+import com.example.accounts_management.model.Account;
+import com.example.accounts_management.model.LedgerHead;
+import com.example.accounts_management.model.Movement;
+import com.example.accounts_management.repository.AccountDailyBalanceRepository;
+import com.example.accounts_management.repository.AccountsRepository;
+import com.example.accounts_management.repository.LedgerHeadRepository;
+import com.example.accounts_management.repository.MovementEventRepository;
+import com.example.accounts_management.repository.MovementsRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BulkMovementsServiceTest {
+
+    @Mock
+    private AccountsRepository accountsRepository;
+
+    @Mock
+    private MovementsRepository movementsRepository;
+
+    @Mock
+    private LedgerHeadRepository ledgerHeadRepository;
+
+    @Mock
+    private AccountDailyBalanceRepository accountDailyBalanceRepository;
+
+    @Mock
+    private MovementEventRepository movementEventRepository;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    @Spy
+    private AccountWriteLanes accountWriteLanes = new AccountWriteLanes(4);
+
+    @Spy
+    private ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    private BulkMovementsService bulkMovementsService;
+
+    private final Map<Long, LedgerHead> ledgerHeads = new HashMap<>();
+    private final AtomicLong movementIds = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionalOperator.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(accountDailyBalanceRepository.applyDelta(anyLong(), any(), any())).thenReturn(Mono.just(1));
+        lenient().when(movementEventRepository.append(anyLong(), any(), any(), anyInt())).thenReturn(Mono.just(1));
+        lenient().when(accountsRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return Flux.fromIterable(ids)
+                    .filter(id -> id <= 10)
+                    .map(id -> Account.builder().id(id).initialBalance(BigDecimal.valueOf(100)).build());
+        });
+        lenient().when(ledgerHeadRepository.advanceBy(anyLong(), any(), any(), anyLong())).thenAnswer(invocation -> {
+            Long accountId = invocation.getArgument(0);
+            BigDecimal openingBalance = invocation.getArgument(1);
+            BigDecimal delta = invocation.getArgument(2);
+            long count = invocation.getArgument(3);
+            LedgerHead head = ledgerHeads.getOrDefault(accountId, new LedgerHead(accountId, openingBalance, 0L));
+            LedgerHead advanced = new LedgerHead(accountId, head.getBalance().add(delta), head.getLastSeq() + count);
+            ledgerHeads.put(accountId, advanced);
+            return Mono.just(advanced);
+        });
+        lenient().when(movementsRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Movement> movements = invocation.getArgument(0);
+            movements.forEach(movement -> movement.setId(movementIds.incrementAndGet()));
+            return Flux.fromIterable(movements);
+        });
+
+        bulkMovementsService = new BulkMovementsService(accountsRepository, movementsRepository, ledgerHeadRepository, accountDailyBalanceRepository,
+                movementEventRepository, accountWriteLanes, transactionalOperator, objectMapper, 1000, 20);
+    }
+
+    @Test
+    void ingest_RunningBalancesAndSequencesFollowTheLedgerHead() {
+        ledgerHeads.put(1L, new LedgerHead(1L, BigDecimal.valueOf(500), 7L));
+
+        List<BulkMovementResult> results = bulkMovementsService.ingest(Flux.just(
+                        request(1L, BulkMovementRequest.TypeEnum.DEPOSIT, 50),
+                        request(1L, BulkMovementRequest.TypeEnum.WITHDRAWAL, 20),
+                        request(1L, BulkMovementRequest.TypeEnum.DEPOSIT, 5)))
+                .collectList()
+                .block();
+
+        assertEquals(List.of(1L, 2L, 3L), results.stream().map(BulkMovementResult::getLine).toList());
+        assertEquals(List.of(new BigDecimal("550.00"), new BigDecimal("530.00"), new BigDecimal("535.00")),
+                results.stream().map(BulkMovementResult::getBalance).toList());
+        assertEquals(10L, ledgerHeads.get(1L).getLastSeq());
+        verify(movementsRepository).insertAll(argThat(movements ->
+                movements.stream().map(Movement::getSeq).toList().equals(List.of(8L, 9L, 10L))));
+    }
+
+    @Test
+    void ingest_RoundTripsFollowAccountsNotLines() {
+        int lines = 3_000;
+        int accounts = 5;
+        Flux<String> requests = Flux.fromStream(IntStream.range(0, lines)
+                .mapToObj(i -> request((long) (i % accounts) + 1, BulkMovementRequest.TypeEnum.DEPOSIT, 1)));
+
+        StepVerifier.create(bulkMovementsService.ingest(requests))
+                .expectNextCount(lines)
+                .verifyComplete();
+
+        // Three chunks of 1000 lines, each written as one group per account.
+        verify(accountsRepository, times(3)).findAllById(anyIterable());
+        verify(ledgerHeadRepository, times(3 * accounts)).advanceBy(anyLong(), any(), any(), eq(200L));
+        verify(movementsRepository, times(3 * accounts)).insertAll(anyList());
+        verify(accountDailyBalanceRepository, times(3 * accounts)).applyDelta(anyLong(), any(), any());
+        verify(movementEventRepository, times(3 * accounts)).append(anyLong(), any(), any(), eq(200));
+        assertEquals(0, BigDecimal.valueOf(100 + lines / accounts).compareTo(ledgerHeads.get(1L).getBalance()));
+    }
+
+    @Test
+    void ingest_AccountGroupsWrittenAtOnceAreBoundedByTheConcurrency() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(transactionalOperator.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(invocation -> {
+            Mono<Object> work = invocation.getArgument(0);
+            return Mono.delay(Duration.ofMillis(50))
+                    .doOnSubscribe(subscription -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                    .then(work)
+                    .doOnTerminate(inFlight::decrementAndGet);
+        });
+        BulkMovementsService boundedService = new BulkMovementsService(accountsRepository, movementsRepository, ledgerHeadRepository, accountDailyBalanceRepository,
+                movementEventRepository, accountWriteLanes, transactionalOperator, objectMapper, 1000, 2);
+
+        // Eight accounts over the four lanes could have four groups in flight.
+        StepVerifier.create(boundedService.ingest(Flux.range(1, 8)
+                        .map(accountId -> request((long) accountId, BulkMovementRequest.TypeEnum.DEPOSIT, 10))))
+                .expectNextCount(8)
+                .verifyComplete();
+
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    void ingest_InvalidLinesAndUnknownAccountsAreRejected() {
+        StepVerifier.create(bulkMovementsService.ingest(Flux.just(
+                        request(1L, null, 10),
+                        request(99L, BulkMovementRequest.TypeEnum.DEPOSIT, 10),
+                        request(1L, BulkMovementRequest.TypeEnum.DEPOSIT, 10))))
+                .expectNextMatches(result -> result.getLine() == 1L
+                        && result.getStatus() == BulkMovementResult.StatusEnum.REJECTED
+                        && result.getMessage().equals("type is required"))
+                .expectNextMatches(result -> result.getLine() == 2L
+                        && result.getStatus() == BulkMovementResult.StatusEnum.REJECTED
+                        && result.getMessage().equals("Account not found"))
+                .expectNextMatches(result -> result.getLine() == 3L
+                        && result.getStatus() == BulkMovementResult.StatusEnum.CREATED
+                        && result.getBalance().equals(new BigDecimal("110.00")))
+                .verifyComplete();
+
+        verify(ledgerHeadRepository, never()).advanceBy(eq(99L), any(), any(), anyLong());
+    }
+
+    @Test
+    void ingest_ValueBeyondTheCurrencyScaleIsRejected() {
+        String fractionOfCent = "{\"accountId\":1,\"type\":\"DEPOSIT\",\"value\":10.005}";
+
+        StepVerifier.create(bulkMovementsService.ingest(Flux.just(fractionOfCent, request(1L, BulkMovementRequest.TypeEnum.DEPOSIT, 10))))
+                .expectNextMatches(result -> result.getLine() == 1L && result.getStatus() == BulkMovementResult.StatusEnum.REJECTED)
+                .expectNextMatches(result -> result.getLine() == 2L && result.getBalance().equals(new BigDecimal("110.00")))
+                .verifyComplete();
+    }
+
+    @Test
+    void ingest_FailedGroupRejectsItsLinesOnly() {
+        when(movementsRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Movement> movements = invocation.getArgument(0);
+            return movements.get(0).getAccountId() == 2L
+                    ? Flux.error(new IllegalStateException("insert failed"))
+                    : Flux.fromIterable(movements);
+        });
+
+        StepVerifier.create(bulkMovementsService.ingest(Flux.just(
+                        request(1L, BulkMovementRequest.TypeEnum.DEPOSIT, 10),
+                        request(2L, BulkMovementRequest.TypeEnum.DEPOSIT, 10),
+                        request(2L, BulkMovementRequest.TypeEnum.DEPOSIT, 10))))
+                .expectNextMatches(result -> result.getStatus() == BulkMovementResult.StatusEnum.CREATED)
+                .expectNextMatches(result -> result.getStatus() == BulkMovementResult.StatusEnum.REJECTED
+                        && result.getMessage().equals("Movements of the account could not be written"))
+                .expectNextMatches(result -> result.getStatus() == BulkMovementResult.StatusEnum.REJECTED && result.getLine() == 3L)
+                .verifyComplete();
+    }
+
+    @Test
+    void ingest_MalformedLinesAreRejectedOnTheirOwn() {
+        StepVerifier.create(bulkMovementsService.ingest(Flux.just(
+                        request(1L, BulkMovementRequest.TypeEnum.DEPOSIT, 10),
+                        "{\"accountId\":1,\"type\":\"DEPOSIT\",",
+                        "",
+                        "{\"accountId\":1,\"type\":\"REFUND\",\"value\":10}",
+                        "[1, 2]",
+                        request(1L, BulkMovementRequest.TypeEnum.DEPOSIT, 10))))
+                .expectNextMatches(result -> result.getLine() == 2L && result.getMessage().equals("Line is not valid JSON"))
+                .expectNextMatches(result -> result.getLine() == 4L && result.getMessage().equals("type has an invalid value"))
+                .expectNextMatches(result -> result.getLine() == 5L && result.getMessage().equals("Line is not a movement object"))
+                .expectNextMatches(result -> result.getLine() == 1L && result.getBalance().equals(new BigDecimal("110.00")))
+                .expectNextMatches(result -> result.getLine() == 6L && result.getBalance().equals(new BigDecimal("120.00")))
+                .verifyComplete();
+    }
+
+    private String request(Long accountId, BulkMovementRequest.TypeEnum type, int value) {
+        BulkMovementRequest request = new BulkMovementRequest();
+        request.setAccountId(accountId);
+        request.setType(type);
+        request.setValue(BigDecimal.valueOf(value));
+        request.setDate(LocalDate.of(2024, 6, 1));
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
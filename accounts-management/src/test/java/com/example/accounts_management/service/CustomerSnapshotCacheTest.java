@@ -0,0 +1,104 @@
+package com.example.accounts_management.service;
+
+import com.example.accounts_management.model.CustomerSnapshot;
+import com.example.accounts_management.repository.CustomerSnapshotRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerSnapshotCacheTest {
+
+    @Mock
+    private CustomerSnapshotRepository customerSnapshotRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CustomerSnapshotCache customerSnapshotCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        customerSnapshotCache = new CustomerSnapshotCache(customerSnapshotRepository, meterRegistry, 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void get_LoadsOnceAndServesHits() {
+        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(new CustomerSnapshot(1L, "Jose Lema", 0L)));
+
+        StepVerifier.create(customerSnapshotCache.get(1L))
+                .expectNextMatches(snapshot -> snapshot.getCustomerName().equals("Jose Lema"))
+                .verifyComplete();
+        StepVerifier.create(customerSnapshotCache.get(1L))
+                .expectNextMatches(snapshot -> snapshot.getCustomerName().equals("Jose Lema"))
+                .verifyComplete();
+
+        verify(customerSnapshotRepository, times(1)).findById(1L);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "customer-snapshots").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "customer-snapshots").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void get_UnknownCustomerIsEmptyAndNotCached() {
+        when(customerSnapshotRepository.findById(2L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(customerSnapshotCache.get(2L)).verifyComplete();
+        StepVerifier.create(customerSnapshotCache.get(2L)).verifyComplete();
+
+        verify(customerSnapshotRepository, times(2)).findById(2L);
+    }
+
+    @Test
+    void getAll_LoadsOnlyMissingIdsInOneQuery() {
+        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(new CustomerSnapshot(1L, "Jose Lema", 0L)));
+        when(customerSnapshotRepository.findAllById(anyIterable())).thenReturn(Flux.just(new CustomerSnapshot(2L, "Marianela Montalvo", 0L)));
+
+        customerSnapshotCache.get(1L).block();
+
+        StepVerifier.create(customerSnapshotCache.getAll(Set.of(1L, 2L, 3L)))
+                .expectNextMatches(snapshots -> snapshots.size() == 2
+                        && snapshots.get(1L).getCustomerName().equals("Jose Lema")
+                        && snapshots.get(2L).getCustomerName().equals("Marianela Montalvo"))
+                .verifyComplete();
+
+        verify(customerSnapshotRepository, times(1)).findAllById(anyIterable());
+    }
+
+    @Test
+    void put_ReplacesCachedSnapshot() {
+        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(new CustomerSnapshot(1L, "Jose Lema", 0L)));
+        customerSnapshotCache.get(1L).block();
+
+        customerSnapshotCache.put(new CustomerSnapshot(1L, "Jose Lema Updated", 0L));
+
+        StepVerifier.create(customerSnapshotCache.get(1L))
+                .expectNextMatches(snapshot -> snapshot.getCustomerName().equals("Jose Lema Updated"))
+                .verifyComplete();
+        verify(customerSnapshotRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void invalidate_ForcesReload() {
+        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(new CustomerSnapshot(1L, "Jose Lema", 0L)));
+        customerSnapshotCache.get(1L).block();
+
+        customerSnapshotCache.invalidate(1L);
+        customerSnapshotCache.get(1L).block();
+
+        verify(customerSnapshotRepository, times(2)).findById(1L);
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.accounts_management.service;
+
+import com.example.accounts_management.config.CustomerEventTracing;
+import com.example.accounts_management.model.CustomerEvent;
+import com.example.accounts_management.model.CustomerEventType;
+import com.example.accounts_management.model.CustomerSnapshot;
+import com.example.accounts_management.repository.AccountSummaryRepository;
+import com.example.accounts_management.repository.CustomerSnapshotRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.otel.bridge.OtelPropagator;
+import io.micrometer.tracing.propagation.Propagator;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerSnapshotServiceTest {
+
+    @Mock
+    private CustomerSnapshotRepository customerSnapshotRepository;
+
+    @Mock
+    private AccountSummaryRepository accountSummaryRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CustomerSnapshotCache customerSnapshotCache;
+    private CustomerSnapshotService customerSnapshotService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(accountSummaryRepository.refreshCustomerNames(any())).thenReturn(Mono.just(0));
+        meterRegistry = new SimpleMeterRegistry();
+        customerSnapshotCache = new CustomerSnapshotCache(customerSnapshotRepository, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+        customerSnapshotService = new CustomerSnapshotService(customerSnapshotRepository, customerSnapshotCache, accountSummaryRepository, new CustomerEventTracing(Propagator.NOOP), meterRegistry);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void listen_DeduplicatesBatchKeepingLastEvent() {
+        when(customerSnapshotRepository.upsertAll(anyCollection())).thenReturn(Flux.just(1L, 2L));
+
+        customerSnapshotService.listen(records(
+                event(CustomerEventType.CREATED, 1L, "Jose Lema", 1L),
+                event(CustomerEventType.CREATED, 2L, "Marianela Montalvo", 2L),
+                event(CustomerEventType.UPDATED, 1L, "Jose Lema Updated", 3L)
+        ));
+
+        ArgumentCaptor<Collection<CustomerSnapshot>> written = ArgumentCaptor.forClass(Collection.class);
+        verify(customerSnapshotRepository, times(1)).upsertAll(written.capture());
+        List<CustomerSnapshot> snapshots = List.copyOf(written.getValue());
+        assertEquals(2, snapshots.size());
+        assertEquals(2L, snapshots.get(0).getId());
+        assertEquals("Jose Lema Updated", snapshots.get(1).getCustomerName());
+        assertEquals(3L, snapshots.get(1).getVersion());
+        ArgumentCaptor<Long[]> refreshed = ArgumentCaptor.forClass(Long[].class);
+        verify(accountSummaryRepository).refreshCustomerNames(refreshed.capture());
+        assertArrayEquals(new Long[]{2L, 1L}, refreshed.getValue());
+    }
+
+    @Test
+    void listen_SkipsUnreadableMessages() {
+        customerSnapshotService.listen(records(null, CustomerEvent.builder().customerName("Jose Lema").build()));
+
+        verify(customerSnapshotRepository, never()).upsertAll(anyCollection());
+        assertEquals(2, meterRegistry.counter("customer.events.skipped", "reason", "unreadable").count());
+    }
+
+    @Test
+    void listen_SkipsAndCountsEventsOfUnknownType() {
+        customerSnapshotService.listen(records(event(CustomerEventType.UNKNOWN, 1L, "Jose Lema", 1L)));
+
+        verify(customerSnapshotRepository, never()).upsertAll(anyCollection());
+        verify(customerSnapshotRepository, never()).deleteAllUnreferenced(anyCollection());
+        assertEquals(1, meterRegistry.counter("customer.events.skipped", "reason", "unknown-type").count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void listen_DeletedCustomerRemovesUnreferencedSnapshot() {
+        when(customerSnapshotRepository.upsertAll(anyCollection())).thenReturn(Flux.just(2L));
+        when(customerSnapshotRepository.deleteAllUnreferenced(anyCollection())).thenReturn(Mono.just(1L));
+
+        customerSnapshotService.listen(records(
+                event(CustomerEventType.CREATED, 1L, "Jose Lema", 1L),
+                event(CustomerEventType.CREATED, 2L, "Marianela Montalvo", 2L),
+                event(CustomerEventType.DELETED, 1L, "Jose Lema", 3L)
+        ));
+
+        ArgumentCaptor<Collection<CustomerSnapshot>> written = ArgumentCaptor.forClass(Collection.class);
+        verify(customerSnapshotRepository).upsertAll(written.capture());
+        assertEquals(List.of(2L), written.getValue().stream().map(CustomerSnapshot::getId).toList());
+        verify(customerSnapshotRepository).deleteAllUnreferenced(List.of(1L));
+    }
+
+    @Test
+    void listen_StaleEventDoesNotReplaceNewerCachedName() {
+        when(customerSnapshotRepository.upsertAll(anyCollection())).thenReturn(Flux.just(1L)).thenReturn(Flux.empty());
+
+        customerSnapshotService.listen(records(event(CustomerEventType.UPDATED, 1L, "Jose Lema Updated", 5L)));
+        customerSnapshotService.listen(records(event(CustomerEventType.UPDATED, 1L, "Jose Lema", 4L)));
+
+        StepVerifier.create(customerSnapshotCache.get(1L))
+                .expectNextMatches(snapshot -> snapshot.getCustomerName().equals("Jose Lema Updated"))
+                .verifyComplete();
+        verify(customerSnapshotRepository, never()).findById(1L);
+    }
+
+    @Test
+    void listen_StaleEventIsNotCachedWhenNothingIsCached() {
+        when(customerSnapshotRepository.upsertAll(anyCollection())).thenReturn(Flux.empty());
+        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(new CustomerSnapshot(1L, "Jose Lema Updated", 5L)));
+
+        customerSnapshotService.listen(records(event(CustomerEventType.UPDATED, 1L, "Jose Lema", 4L)));
+
+        StepVerifier.create(customerSnapshotCache.get(1L))
+                .expectNextMatches(snapshot -> snapshot.getCustomerName().equals("Jose Lema Updated"))
+                .verifyComplete();
+        verify(customerSnapshotRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void listen_UpdatedSnapshotReplacesCachedName() {
+        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(new CustomerSnapshot(1L, "Jose Lema", 0L)));
+        when(customerSnapshotRepository.upsertAll(anyCollection())).thenReturn(Flux.just(1L));
+
+        StepVerifier.create(customerSnapshotCache.get(1L))
+                .expectNextMatches(snapshot -> snapshot.getCustomerName().equals("Jose Lema"))
+                .verifyComplete();
+
+        customerSnapshotService.listen(records(event(CustomerEventType.UPDATED, 1L, "Jose Lema Updated", 1L)));
+
+        StepVerifier.create(customerSnapshotCache.get(1L))
+                .expectNextMatches(snapshot -> snapshot.getCustomerName().equals("Jose Lema Updated"))
+                .verifyComplete();
+        verify(customerSnapshotRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void listen_FailedWriteIsRethrownAndInvalidatesCachedSnapshot() {
+        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(new CustomerSnapshot(1L, "Jose Lema", 0L)));
+        when(customerSnapshotRepository.upsertAll(anyCollection())).thenReturn(Flux.error(new IllegalStateException("connection lost")));
+
+        customerSnapshotCache.get(1L).block();
+        assertThrows(IllegalStateException.class, () -> customerSnapshotService.listen(records(event(CustomerEventType.UPDATED, 1L, "Jose Lema Updated", 1L))));
+        customerSnapshotCache.get(1L).block();
+
+        verify(customerSnapshotRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void listen_ContinuesTheTraceOfEachEvent() {
+        InMemorySpanExporter spanExporter = InMemorySpanExporter.create();
+        io.opentelemetry.api.trace.Tracer otelTracer = SdkTracerProvider.builder()
+                .setSampler(Sampler.alwaysOn())
+                .addSpanProcessor(SimpleSpanProcessor.create(spanExporter))
+                .build()
+                .get("test");
+        Propagator propagator = new OtelPropagator(ContextPropagators.create(W3CTraceContextPropagator.getInstance()), otelTracer);
+        customerSnapshotService = new CustomerSnapshotService(customerSnapshotRepository, customerSnapshotCache, accountSummaryRepository, new CustomerEventTracing(propagator), new SimpleMeterRegistry());
+        when(customerSnapshotRepository.upsertAll(anyCollection())).thenReturn(Flux.just(1L, 2L));
+
+        List<ConsumerRecord<String, CustomerEvent>> records = records(
+                event(CustomerEventType.CREATED, 1L, "Jose Lema", 1L),
+                event(CustomerEventType.CREATED, 2L, "Marianela Montalvo", 2L));
+        records.get(0).headers().add("traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01".getBytes(StandardCharsets.UTF_8));
+        customerSnapshotService.listen(records);
+
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        assertEquals(1, spans.size());
+        assertEquals("0af7651916cd43dd8448eb211c80319c", spans.get(0).getTraceId());
+        assertEquals("b7ad6b7169203331", spans.get(0).getParentSpanId());
+        assertEquals(SpanKind.CONSUMER, spans.get(0).getKind());
+    }
+
+    private List<ConsumerRecord<String, CustomerEvent>> records(CustomerEvent... events) {
+        return IntStream.range(0, events.length)
+                .mapToObj(i -> new ConsumerRecord<>("customers", 0, i, events[i] == null ? null : String.valueOf(events[i].getCustomerId()), events[i]))
+                .toList();
+    }
+
+    private CustomerEvent event(CustomerEventType type, Long customerId, String customerName, Long version) {
+        return CustomerEvent.builder()
+                .type(type)
+                .customerId(customerId)
+                .customerName(customerName)
+                .version(version)
+                .build();
+    }
+}
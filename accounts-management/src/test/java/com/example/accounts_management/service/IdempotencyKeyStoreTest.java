@@ -0,0 +1,196 @@
+package com.example.accounts_management.service;
+
+import com.example.accounts_management.exception.custom.BusinessException;
+import com.example.accounts_management.model.IdempotencyKey;
+import com.example.accounts_management.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyKeyStoreTest {
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyKeyStore idempotencyKeyStore;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(idempotencyKeyRepository.claim(anyString(), any())).thenReturn(Mono.just(1));
+        lenient().when(idempotencyKeyRepository.complete(anyString(), any(), anyInt(), any(), any())).thenReturn(Mono.just(1));
+        lenient().when(idempotencyKeyRepository.deleteById(anyString())).thenReturn(Mono.empty());
+        meterRegistry = new SimpleMeterRegistry();
+        idempotencyKeyStore = new IdempotencyKeyStore(idempotencyKeyRepository, meterRegistry, Duration.ofHours(24), 100);
+    }
+
+    @Test
+    void execute_ReplaysTheResponseOfTheFirstExecution() {
+        AtomicInteger executions = new AtomicInteger();
+        Mono<IdempotencyKey> request = Mono.fromSupplier(() -> response(201, "#" + executions.incrementAndGet()));
+
+        StepVerifier.create(idempotencyKeyStore.execute("key", request))
+                .expectNextMatches(execution -> !execution.replayed() && new String(execution.response().getBody()).equals("#1"))
+                .verifyComplete();
+        StepVerifier.create(idempotencyKeyStore.execute("key", request))
+                .expectNextMatches(execution -> execution.replayed() && new String(execution.response().getBody()).equals("#1"))
+                .verifyComplete();
+
+        assertEquals(1, executions.get());
+        verify(idempotencyKeyRepository, times(1)).claim(anyString(), any());
+        verify(idempotencyKeyRepository).complete(eq("key"), any(), eq(201), eq("application/json"), eq("#1".getBytes()));
+    }
+
+    @Test
+    void execute_ConcurrentDuplicatesWaitForTheFirstExecution() {
+        AtomicInteger executions = new AtomicInteger();
+        Sinks.One<IdempotencyKey> result = Sinks.one();
+        Mono<IdempotencyKey> request = Mono.defer(() -> {
+            executions.incrementAndGet();
+            return result.asMono();
+        });
+
+        Mono<IdempotencyKeyStore.Execution> first = idempotencyKeyStore.execute("key", request).cache();
+        Mono<IdempotencyKeyStore.Execution> duplicate = idempotencyKeyStore.execute("key", request).cache();
+        first.subscribe();
+        duplicate.subscribe();
+        result.tryEmitValue(response(201, "created"));
+
+        StepVerifier.create(first).expectNextMatches(execution -> !execution.replayed()).verifyComplete();
+        StepVerifier.create(duplicate).expectNextMatches(execution -> execution.replayed() && execution.response().getStatus() == 201).verifyComplete();
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_ReplaysAKeyCompletedOnAnotherInstance() {
+        when(idempotencyKeyRepository.claim(anyString(), any())).thenReturn(Mono.just(0));
+        when(idempotencyKeyRepository.findById("key")).thenReturn(Mono.just(response(201, "created")));
+
+        StepVerifier.create(idempotencyKeyStore.execute("key", Mono.error(new IllegalStateException("executed"))))
+                .expectNextMatches(execution -> execution.replayed() && new String(execution.response().getBody()).equals("created"))
+                .verifyComplete();
+    }
+
+    @Test
+    void execute_StaleClaimIsNotExecutedAgain() {
+        AtomicInteger executions = new AtomicInteger();
+        when(idempotencyKeyRepository.claim(anyString(), any())).thenReturn(Mono.just(0));
+        when(idempotencyKeyRepository.findById("key")).thenReturn(Mono.just(IdempotencyKey.builder()
+                .idempotencyKey("key")
+                .createdAt(LocalDateTime.now().minusHours(12))
+                .build()));
+
+        StepVerifier.create(idempotencyKeyStore.execute("key", Mono.fromSupplier(() -> response(201, "#" + executions.incrementAndGet()))))
+                .expectErrorMatches(IdempotencyKeyStoreTest::isConflict)
+                .verify();
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void execute_CancelledRequestReleasesTheKey() {
+        AtomicInteger executions = new AtomicInteger();
+        Mono<IdempotencyKey> hanging = Mono.defer(() -> {
+            executions.incrementAndGet();
+            return Mono.never();
+        });
+        Mono<IdempotencyKeyStore.Execution> duplicate = idempotencyKeyStore.execute("key", hanging);
+
+        Disposable first = idempotencyKeyStore.execute("key", hanging).subscribe();
+        StepVerifier.create(duplicate)
+                .then(first::dispose)
+                .expectErrorMatches(IdempotencyKeyStoreTest::isConflict)
+                .verify(Duration.ofSeconds(5));
+
+        verify(idempotencyKeyRepository).deleteById("key");
+        verify(idempotencyKeyRepository, never()).complete(anyString(), any(), anyInt(), any(), any());
+        assertEquals(1, meterRegistry.counter("idempotency.keys.released").count());
+
+        StepVerifier.create(idempotencyKeyStore.execute("key", Mono.fromSupplier(() -> response(201, "#" + executions.incrementAndGet()))))
+                .expectNextMatches(execution -> !execution.replayed() && new String(execution.response().getBody()).equals("#2"))
+                .verifyComplete();
+    }
+
+    @Test
+    void execute_FailedRequestReleasesTheKey() {
+        StepVerifier.create(idempotencyKeyStore.execute("key", Mono.error(new IllegalStateException("connection reset"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        verify(idempotencyKeyRepository).deleteById("key");
+        assertEquals(1, meterRegistry.counter("idempotency.keys.released").count());
+
+        StepVerifier.create(idempotencyKeyStore.execute("key", Mono.fromSupplier(() -> response(201, "created"))))
+                .expectNextMatches(execution -> !execution.replayed() && execution.response().getStatus() == 201)
+                .verifyComplete();
+    }
+
+    @Test
+    void execute_ServerErrorsReleaseTheKey() {
+        AtomicInteger executions = new AtomicInteger();
+        Mono<IdempotencyKey> request = Mono.fromSupplier(() -> response(executions.incrementAndGet() == 1 ? 503 : 201, "#" + executions.get()));
+
+        StepVerifier.create(idempotencyKeyStore.execute("key", request))
+                .expectNextMatches(execution -> !execution.replayed() && execution.response().getStatus() == 503)
+                .verifyComplete();
+        StepVerifier.create(idempotencyKeyStore.execute("key", request))
+                .expectNextMatches(execution -> !execution.replayed() && execution.response().getStatus() == 201)
+                .verifyComplete();
+
+        assertEquals(2, executions.get());
+        verify(idempotencyKeyRepository).deleteById("key");
+        verify(idempotencyKeyRepository, never()).complete(anyString(), any(), eq(503), any(), any());
+        verify(idempotencyKeyRepository).complete(eq("key"), any(), eq(201), any(), any());
+    }
+
+    @Test
+    void execute_ClientErrorsAreKept() {
+        AtomicInteger executions = new AtomicInteger();
+        Mono<IdempotencyKey> request = Mono.fromSupplier(() -> response(409, "#" + executions.incrementAndGet()));
+
+        StepVerifier.create(idempotencyKeyStore.execute("key", request))
+                .expectNextMatches(execution -> !execution.replayed() && execution.response().getStatus() == 409)
+                .verifyComplete();
+        StepVerifier.create(idempotencyKeyStore.execute("key", request))
+                .expectNextMatches(execution -> execution.replayed() && execution.response().getStatus() == 409)
+                .verifyComplete();
+
+        assertEquals(1, executions.get());
+        verify(idempotencyKeyRepository, never()).deleteById(anyString());
+    }
+
+    private static boolean isConflict(Throwable error) {
+        return error instanceof BusinessException && ((BusinessException) error).getStatus() == HttpStatus.CONFLICT;
+    }
+
+    private static IdempotencyKey response(int status, String body) {
+        return IdempotencyKey.builder()
+                .idempotencyKey("key")
+                .status(status)
+                .contentType("application/json")
+                .body(body.getBytes())
+                .build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.accounts_management.service;
+
+import com.example.accounts_management.repository.MovementsRepository;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MovementPartitionMaintenanceTest {
+
+    private final MovementsRepository movementsRepository = mock(MovementsRepository.class);
+
+    @Test
+    void maintain_CreatesTheMonthsAheadAndArchivesThePastRetention() {
+        when(movementsRepository.createPartitions(any(), any())).thenReturn(Mono.just(1));
+        when(movementsRepository.archivePartitionsBefore(any())).thenReturn(Mono.just(2)).thenReturn(Mono.just(1)).thenReturn(Mono.just(0));
+        MovementPartitionMaintenance maintenance = new MovementPartitionMaintenance(movementsRepository, 3, 24);
+
+        StepVerifier.create(maintenance.maintain(LocalDate.of(2024, 6, 15)))
+                .verifyComplete();
+
+        verify(movementsRepository).createPartitions(LocalDate.of(2024, 6, 15), LocalDate.of(2024, 9, 15));
+        verify(movementsRepository, times(3)).archivePartitionsBefore(LocalDate.of(2022, 6, 1));
+    }
+
+    @Test
+    void maintain_NoRetentionKeepsEveryMonth() {
+        when(movementsRepository.createPartitions(any(), any())).thenReturn(Mono.just(0));
+        MovementPartitionMaintenance maintenance = new MovementPartitionMaintenance(movementsRepository, 3, 0);
+
+        StepVerifier.create(maintenance.maintain(LocalDate.of(2024, 6, 15)))
+                .verifyComplete();
+
+        verify(movementsRepository, never()).archivePartitionsBefore(any());
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.accounts_management.service;
+
+import com.example.accounts_management.infrastructure.dto.MovementRequest;
+import com.example.accounts_management.infrastructure.dto.MovementResponse;
+import com.example.accounts_management.repository.AccountDailyBalanceRepository;
+import com.example.accounts_management.repository.AccountsRepository;
+import com.example.accounts_management.repository.AccountsRepositoryCustomImpl;
+import com.example.accounts_management.repository.CustomerSnapshotRepository;
+import com.example.accounts_management.repository.CustomerSnapshotRepositoryCustomImpl;
+import com.example.accounts_management.repository.LedgerHeadRepository;
+import com.example.accounts_management.repository.MovementEventRepository;
+import com.example.accounts_management.repository.MovementsRepository;
+import com.example.accounts_management.repository.MovementsRepositoryCustomImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Fires concurrent movements at a few accounts through two {@link MovementsService} instances
+ * over an embedded Postgres. Each instance has its own write lanes, as separate instances of the
+ * service do, so only the row lock of the ledger head, taken by its upsert on a save and by
+ * {@code lockByAccountId} on an edit, keeps the writes of an account in order.
+ */
+class MovementsServiceConcurrencyTest {
+
+    private static final int ACCOUNTS = 3;
+    private static final int WRITES = 3000;
+
+    private static EmbeddedPostgres postgres;
+    private static ConnectionPool connectionPool;
+    private static final List<AccountWriteLanes> accountWriteLanes = new ArrayList<>();
+    private static final List<MovementsService> instances = new ArrayList<>();
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        execute("insert into customer_snapshot (id, customer_name) values (1, 'John Doe')");
+        for (int accountId = 1; accountId <= ACCOUNTS; accountId++) {
+            execute("insert into account (id, account_number, account_type, initial_balance, status, customer_id) values ("
+                    + accountId + ", '000000000" + accountId + "', 'SAVINGS', 100, true, 1)");
+        }
+
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(new PostgresqlConnectionFactory(PostgresqlConnectionConfiguration.builder()
+                        .host("localhost")
+                        .port(postgres.getPort())
+                        .database("postgres")
+                        .username("postgres")
+                        .build()))
+                .maxSize(20)
+                .build());
+        R2dbcEntityTemplate template = new R2dbcEntityTemplate(connectionPool);
+        R2dbcRepositoryFactory repositoryFactory = new R2dbcRepositoryFactory(template);
+        MovementsRepository movementsRepository = repositoryFactory.getRepository(MovementsRepository.class,
+                RepositoryFragments.just(new MovementsRepositoryCustomImpl(template.getDatabaseClient())));
+        AccountsRepository accountsRepository = repositoryFactory.getRepository(AccountsRepository.class,
+                RepositoryFragments.just(new AccountsRepositoryCustomImpl(template.getDatabaseClient())));
+        CustomerSnapshotRepository customerSnapshotRepository = repositoryFactory.getRepository(CustomerSnapshotRepository.class,
+                RepositoryFragments.just(new CustomerSnapshotRepositoryCustomImpl(template.getDatabaseClient())));
+        TransactionalOperator transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(connectionPool));
+
+        for (int instance = 0; instance < 2; instance++) {
+            AccountWriteLanes lanes = new AccountWriteLanes(4);
+            accountWriteLanes.add(lanes);
+            instances.add(new MovementsService(movementsRepository, accountsRepository,
+                    new CustomerSnapshotCache(customerSnapshotRepository, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10)),
+                    repositoryFactory.getRepository(LedgerHeadRepository.class), lanes, transactionalOperator,
+                    repositoryFactory.getRepository(AccountDailyBalanceRepository.class), repositoryFactory.getRepository(MovementEventRepository.class),
+                    false, 500));
+        }
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        accountWriteLanes.forEach(AccountWriteLanes::shutdown);
+        connectionPool.dispose();
+        postgres.close();
+    }
+
+    @Test
+    void saveAndUpdate_ConcurrentWritesOnHotAccountsKeepTheLedgerAndBalancesExact() throws Exception {
+        List<Long> editedMovements = Flux.range(1, ACCOUNTS)
+                .concatMap(accountId -> instances.get(0).save(request(accountId, MovementRequest.TypeEnum.DEPOSIT, 10)))
+                .map(MovementResponse::getId)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        // Every tenth write edits the first movement of the account, which shifts the balance of
+        // all the movements after it while the saves keep appending new ones.
+        Flux.range(0, WRITES)
+                .flatMap(i -> {
+                    MovementsService instance = instances.get(i % 2);
+                    int accountId = i % ACCOUNTS + 1;
+                    if (i % 10 == 0) {
+                        return instance.updateMovement(editedMovements.get(accountId - 1), request(accountId, MovementRequest.TypeEnum.DEPOSIT, 10 + i));
+                    }
+                    return instance.save(request(accountId, i % 4 == 0 ? MovementRequest.TypeEnum.WITHDRAWAL : MovementRequest.TypeEnum.DEPOSIT, i % 7 + 1));
+                }, 32)
+                .blockLast(Duration.ofMinutes(5));
+
+        int movementsPerAccount = 1 + (WRITES - WRITES / 10) / ACCOUNTS;
+        BigDecimal[] savedPerAccount = new BigDecimal[ACCOUNTS];
+        Arrays.fill(savedPerAccount, BigDecimal.ZERO);
+        for (int i = 0; i < WRITES; i++) {
+            if (i % 10 != 0) {
+                int value = i % 7 + 1;
+                savedPerAccount[i % ACCOUNTS] = savedPerAccount[i % ACCOUNTS].add(BigDecimal.valueOf(i % 4 == 0 ? -value : value));
+            }
+        }
+        for (int accountId = 1; accountId <= ACCOUNTS; accountId++) {
+            List<String> movements = query("select seq || ' ' || balance || ' ' || "
+                    + "(100 + sum(case when movement_type = 'WITHDRAWAL' then -value else value end) over (order by seq)) "
+                    + "from movement where account_id = " + accountId + " order by seq");
+            assertEquals(movementsPerAccount, movements.size());
+            for (int seq = 1; seq <= movements.size(); seq++) {
+                String[] movement = movements.get(seq - 1).split(" ");
+                assertEquals(String.valueOf(seq), movement[0]);
+                assertEquals(0, new BigDecimal(movement[2]).compareTo(new BigDecimal(movement[1])), "Running balance of movement " + seq + " of account " + accountId);
+            }
+            String closingBalance = movements.get(movements.size() - 1).split(" ")[2];
+
+            String[] ledgerHead = query("select balance || ' ' || last_seq from account_ledger_head where account_id = " + accountId).get(0).split(" ");
+            assertEquals(0, new BigDecimal(closingBalance).compareTo(new BigDecimal(ledgerHead[0])), "Ledger head of account " + accountId);
+            assertEquals(String.valueOf(movementsPerAccount), ledgerHead[1]);
+            // The edits race, so whichever ran last left its value on the edited movement
+            BigDecimal editedValue = new BigDecimal(query("select value from movement where id = " + editedMovements.get(accountId - 1)).get(0));
+            assertEquals(0, BigDecimal.valueOf(100).add(editedValue).add(savedPerAccount[accountId - 1]).compareTo(new BigDecimal(ledgerHead[0])),
+                    "Ledger head of account " + accountId + " against the movements written");
+            assertEquals(0, new BigDecimal(closingBalance).compareTo(new BigDecimal(query("select balance from account_daily_balance where account_id = "
+                    + accountId + " and balance_date = date '" + LocalDate.now() + "'").get(0))), "Daily balance of account " + accountId);
+            assertEquals(0, new BigDecimal(closingBalance).subtract(BigDecimal.valueOf(100)).compareTo(new BigDecimal(query(
+                    "select sum(delta) from movement_event where account_id = " + accountId).get(0))), "Movement events of account " + accountId);
+        }
+    }
+
+    private static MovementRequest request(long accountId, MovementRequest.TypeEnum type, int value) {
+        MovementRequest request = new MovementRequest();
+        request.setAccountId(accountId);
+        request.setDate(LocalDate.now());
+        request.setType(type);
+        request.setValue(BigDecimal.valueOf(value));
+        return request;
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static List<String> query(String sql) throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(sql)) {
+            List<String> rows = new ArrayList<>();
+            while (result.next()) {
+                rows.add(result.getString(1));
+            }
+            return rows;
+        }
+    }
+}
@@ -1,30 +1,48 @@
 package com.example.accounts_management.service;
 
 import com.example.accounts_management.exception.custom.BusinessException;
+import com.example.accounts_management.infrastructure.dto.AccountStatementResponse;
 import com.example.accounts_management.infrastructure.dto.MovementRequest;
 import com.example.accounts_management.infrastructure.dto.MovementResponse;
 import com.example.accounts_management.model.Account;
+import com.example.accounts_management.model.CursorPage;
 import com.example.accounts_management.model.CustomerSnapshot;
+import com.example.accounts_management.model.LedgerHead;
 import com.example.accounts_management.model.Movement;
+import com.example.accounts_management.repository.AccountDailyBalanceRepository;
 import com.example.accounts_management.repository.AccountsRepository;
-import com.example.accounts_management.repository.CustomerSnapshotRepository;
+import com.example.accounts_management.repository.LedgerHeadRepository;
+import com.example.accounts_management.repository.MovementEventRepository;
 import com.example.accounts_management.repository.MovementsRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,9 +55,23 @@ class MovementsServiceTest {
     private AccountsRepository accountsRepository;
 
     @Mock
-    private CustomerSnapshotRepository customerSnapshotRepository;
+    private CustomerSnapshotCache customerSnapshotCache;
+
+    @Mock
+    private LedgerHeadRepository ledgerHeadRepository;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    @Mock
+    private AccountDailyBalanceRepository accountDailyBalanceRepository;
+
+    @Mock
+    private MovementEventRepository movementEventRepository;
+
+    @Spy
+    private AccountWriteLanes accountWriteLanes = new AccountWriteLanes(4);
 
-    @InjectMocks
     private MovementsService movementsService;
 
     private Movement movement;
@@ -49,6 +81,10 @@ class MovementsServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(transactionalOperator.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(accountDailyBalanceRepository.applyDelta(anyLong(), any(), any())).thenReturn(Mono.just(1));
+        lenient().when(movementEventRepository.append(anyLong(), any(), any(), anyInt())).thenReturn(Mono.just(1));
+
         account = new Account();
         account.setId(1L);
         account.setCustomerId(1L);
@@ -66,18 +102,26 @@ class MovementsServiceTest {
         movement.setType(MovementRequest.TypeEnum.DEPOSIT);
         movement.setValue(BigDecimal.valueOf(50.0));
         movement.setBalance(BigDecimal.valueOf(150.0));
+        movement.setSeq(1L);
 
         movementRequest = new MovementRequest();
         movementRequest.setAccountId(1L);
         movementRequest.setType(MovementRequest.TypeEnum.DEPOSIT);
         movementRequest.setValue(BigDecimal.valueOf(50.0));
+
+        movementsService = movementsService(false);
+    }
+
+    private MovementsService movementsService(boolean fullRebalance) {
+        return new MovementsService(movementsRepository, accountsRepository, customerSnapshotCache, ledgerHeadRepository, accountWriteLanes,
+                transactionalOperator, accountDailyBalanceRepository, movementEventRepository, fullRebalance, 2);
     }
 
     @Test
     void findById_Success() {
         when(movementsRepository.findById(1L)).thenReturn(Mono.just(movement));
         when(accountsRepository.findById(1L)).thenReturn(Mono.just(account));
-        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(customerSnapshot));
+        when(customerSnapshotCache.get(1L)).thenReturn(Mono.just(customerSnapshot));
 
         StepVerifier.create(movementsService.findById(1L))
                 .expectNextMatches(response -> response.getId().equals(1L))
@@ -94,23 +138,106 @@ class MovementsServiceTest {
     }
 
     @Test
-    void findAll_Success() {
-        when(movementsRepository.findAll()).thenReturn(Flux.just(movement));
-        when(accountsRepository.findById(1L)).thenReturn(Mono.just(account));
-        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(customerSnapshot));
+    void findPage_LastPageHasNoCursor() {
+        when(movementsRepository.findFirstPage(3)).thenReturn(Flux.just(movement));
+        when(accountsRepository.findAllById(anyIterable())).thenReturn(Flux.just(account));
+        when(customerSnapshotCache.getAll(anySet())).thenReturn(Mono.just(Map.of(1L, customerSnapshot)));
 
-        StepVerifier.create(movementsService.findAll())
-                .expectNextCount(1)
+        StepVerifier.create(movementsService.findPage(null, null))
+                .expectNextMatches(page -> page.getItems().size() == 1 && page.getNextCursor() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    void findPage_NextPageStartsAfterLastDateAndId() {
+        LocalDate date = LocalDate.of(2024, 3, 1);
+        Movement second = movement.toBuilder().id(2L).date(date).build();
+        Movement third = movement.toBuilder().id(3L).date(date).build();
+        when(movementsRepository.findFirstPage(2)).thenReturn(Flux.just(movement, second));
+        when(movementsRepository.findPageAfter(movement.getDate(), 1L, 2)).thenReturn(Flux.just(third));
+        when(accountsRepository.findAllById(anyIterable())).thenReturn(Flux.just(account));
+        when(customerSnapshotCache.getAll(anySet())).thenReturn(Mono.just(Map.of(1L, customerSnapshot)));
+
+        CursorPage<MovementResponse> firstPage = movementsService.findPage(null, 1).block();
+
+        assertEquals(1, firstPage.getItems().size());
+        StepVerifier.create(movementsService.findPage(firstPage.getNextCursor(), 1))
+                .expectNextMatches(page -> page.getItems().get(0).getId().equals(3L) && page.getNextCursor() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    void findPage_InvalidCursor() {
+        StepVerifier.create(movementsService.findPage("not-a-cursor", null))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        verify(movementsRepository, never()).findPageAfter(any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void findAllByAccount_RoundTripsGrowWithWindowsNotRows() {
+        int rows = 10_000;
+        AtomicInteger roundTrips = new AtomicInteger();
+
+        Flux<Movement> movements = Flux.range(0, rows).map(i -> {
+            Movement row = new Movement();
+            row.setId((long) i);
+            row.setAccountId(1L + i % 10);
+            row.setDate(LocalDate.now());
+            row.setType(MovementRequest.TypeEnum.DEPOSIT);
+            row.setValue(BigDecimal.ONE);
+            row.setBalance(BigDecimal.ONE);
+            return row;
+        });
+        when(movementsRepository.findByAccountIdOrderByDateDesc(1L)).thenReturn(movements);
+        when(accountsRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            roundTrips.incrementAndGet();
+            Iterable<Long> ids = invocation.getArgument(0);
+            return Flux.fromIterable(ids).map(id -> account.toBuilder().id(id).build());
+        });
+        when(customerSnapshotCache.getAll(anySet())).thenAnswer(invocation -> {
+            roundTrips.incrementAndGet();
+            return Mono.just(Map.of(1L, customerSnapshot));
+        });
+
+        StepVerifier.create(movementsService.findAllByAccount(1L))
+                .expectNextCount(rows)
+                .verifyComplete();
+
+        // One account query and one snapshot query per window, instead of two lookups per row.
+        int windows = (rows + 255) / 256;
+        int perRowRoundTrips = rows * 2;
+        assertEquals(windows * 2, roundTrips.get());
+        assertTrue(roundTrips.get() * 100 < perRowRoundTrips);
+    }
+
+    @Test
+    void findPage_SkipsMovementsWithoutAccount() {
+        Movement orphan = movement.toBuilder().id(2L).accountId(2L).build();
+        when(movementsRepository.findFirstPage(3)).thenReturn(Flux.just(movement, orphan));
+        when(accountsRepository.findAllById(anyIterable())).thenReturn(Flux.just(account));
+        when(customerSnapshotCache.getAll(anySet())).thenReturn(Mono.just(Map.of(1L, customerSnapshot)));
+
+        StepVerifier.create(movementsService.findPage(null, null))
+                .expectNextMatches(page -> page.getItems().size() == 1 && page.getItems().get(0).getId().equals(1L))
                 .verifyComplete();
     }
 
     @Test
     void delete_Success() {
         when(movementsRepository.findById(1L)).thenReturn(Mono.just(movement));
-        when(movementsRepository.deleteById(1L)).thenReturn(Mono.empty());
+        when(movementsRepository.findByIdAndDate(1L, movement.getDate())).thenReturn(Mono.just(movement));
+        when(movementsRepository.deleteByIdAndDate(1L, movement.getDate())).thenReturn(Mono.just(1));
+        when(ledgerHeadRepository.lockByAccountId(1L)).thenReturn(Mono.empty());
+        when(movementsRepository.shiftBalancesAfter(1L, 1L, new BigDecimal("-50.00"))).thenReturn(Mono.just(3));
+        when(ledgerHeadRepository.shift(1L, new BigDecimal("-50.00"))).thenReturn(Mono.just(1));
 
         StepVerifier.create(movementsService.delete(1L))
                 .verifyComplete();
+
+        verify(accountDailyBalanceRepository).applyDelta(1L, movement.getDate(), new BigDecimal("-50.00"));
+        verify(movementEventRepository).append(1L, movement.getDate(), new BigDecimal("-50.00"), -1);
+        verify(movementsRepository, never()).deleteById(anyLong());
     }
 
     @Test
@@ -124,14 +251,110 @@ class MovementsServiceTest {
 
     @Test
     void save_Success() {
+        LedgerHead ledgerHead = LedgerHead.builder().accountId(1L).balance(BigDecimal.valueOf(150.0)).lastSeq(2L).build();
         when(accountsRepository.findById(1L)).thenReturn(Mono.just(account));
-        when(movementsRepository.findByAccountIdOrderByDateDesc(1L)).thenReturn(Flux.just(movement));
+        when(ledgerHeadRepository.advance(1L, BigDecimal.valueOf(100.0), new BigDecimal("50.00"))).thenReturn(Mono.just(ledgerHead));
         when(movementsRepository.save(any(Movement.class))).thenReturn(Mono.just(movement));
-        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(customerSnapshot));
+        when(customerSnapshotCache.get(1L)).thenReturn(Mono.just(customerSnapshot));
 
         StepVerifier.create(movementsService.save(movementRequest))
                 .expectNextMatches(response -> response.getId().equals(1L))
                 .verifyComplete();
+
+        ArgumentCaptor<Movement> saved = ArgumentCaptor.forClass(Movement.class);
+        verify(movementsRepository).save(saved.capture());
+        assertEquals(BigDecimal.valueOf(150.0), saved.getValue().getBalance());
+        assertEquals(2L, saved.getValue().getSeq());
+        verify(accountDailyBalanceRepository).applyDelta(1L, movement.getDate(), new BigDecimal("50.00"));
+        verify(movementEventRepository).append(1L, movement.getDate(), new BigDecimal("50.00"), 1);
+    }
+
+    @Test
+    void save_WithdrawalAppliesNegativeDelta() {
+        movementRequest.setType(MovementRequest.TypeEnum.WITHDRAWAL);
+        LedgerHead ledgerHead = LedgerHead.builder().accountId(1L).balance(BigDecimal.valueOf(50.0)).lastSeq(1L).build();
+        when(accountsRepository.findById(1L)).thenReturn(Mono.just(account));
+        when(ledgerHeadRepository.advance(1L, BigDecimal.valueOf(100.0), new BigDecimal("-50.00"))).thenReturn(Mono.just(ledgerHead));
+        when(movementsRepository.save(any(Movement.class))).thenReturn(Mono.just(movement));
+        when(customerSnapshotCache.get(1L)).thenReturn(Mono.just(customerSnapshot));
+
+        StepVerifier.create(movementsService.save(movementRequest))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(movementsRepository, never()).findByAccountIdOrderByDateDesc(anyLong());
+    }
+
+    @Test
+    void updateMovement_ShiftsOnlyMovementsAfterTheEditedOne() {
+        movementRequest.setValue(BigDecimal.valueOf(80.0));
+        when(movementsRepository.findById(1L)).thenReturn(Mono.just(movement));
+        when(movementsRepository.findByIdAndDate(1L, movement.getDate())).thenReturn(Mono.just(movement));
+        when(ledgerHeadRepository.lockByAccountId(1L)).thenReturn(Mono.just(new LedgerHead(1L, BigDecimal.valueOf(200.0), 2L)));
+        when(accountsRepository.findById(1L)).thenReturn(Mono.just(account));
+        when(movementsRepository.updateByIdAndDate(1L, movement.getDate(), MovementRequest.TypeEnum.DEPOSIT, BigDecimal.valueOf(80.0), new BigDecimal("180.00")))
+                .thenReturn(Mono.just(1));
+        when(movementsRepository.shiftBalancesAfter(1L, 1L, new BigDecimal("30.00"))).thenReturn(Mono.just(1));
+        when(ledgerHeadRepository.shift(1L, new BigDecimal("30.00"))).thenReturn(Mono.just(1));
+        when(customerSnapshotCache.get(1L)).thenReturn(Mono.just(customerSnapshot));
+
+        StepVerifier.create(movementsService.updateMovement(1L, movementRequest))
+                .expectNextMatches(response -> response.getBalance().equals(new BigDecimal("180.00")))
+                .verifyComplete();
+
+        verify(movementsRepository).shiftBalancesAfter(1L, 1L, new BigDecimal("30.00"));
+        verify(movementsRepository, never()).findByAccountIdOrderBySeqAsc(anyLong());
+        verify(movementsRepository, never()).save(any(Movement.class));
+        verify(accountDailyBalanceRepository).applyDelta(1L, movement.getDate(), new BigDecimal("30.00"));
+        verify(movementEventRepository).append(1L, movement.getDate(), new BigDecimal("30.00"), 0);
+    }
+
+    @Test
+    void updateMovement_FullRebalanceRecomputesHistory() {
+        movementsService = movementsService(true);
+        Movement later = movement.toBuilder().id(2L).seq(2L).balance(BigDecimal.valueOf(200.0)).build();
+        movementRequest.setValue(BigDecimal.valueOf(80.0));
+        when(movementsRepository.findById(1L)).thenReturn(Mono.just(movement));
+        when(movementsRepository.findByIdAndDate(1L, movement.getDate())).thenReturn(Mono.just(movement));
+        when(ledgerHeadRepository.lockByAccountId(1L)).thenReturn(Mono.just(new LedgerHead(1L, BigDecimal.valueOf(200.0), 2L)));
+        when(accountsRepository.findById(1L)).thenReturn(Mono.just(account));
+        when(movementsRepository.findByAccountIdOrderBySeqAsc(1L)).thenReturn(Flux.just(movement.toBuilder().build(), later));
+        when(movementsRepository.updateByIdAndDate(anyLong(), any(), any(), any(), any())).thenReturn(Mono.just(1));
+        when(ledgerHeadRepository.shift(1L, new BigDecimal("30.00"))).thenReturn(Mono.just(1));
+        when(customerSnapshotCache.get(1L)).thenReturn(Mono.just(customerSnapshot));
+
+        StepVerifier.create(movementsService.updateMovement(1L, movementRequest))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(new BigDecimal("230.00"), later.getBalance());
+        verify(movementsRepository).updateByIdAndDate(2L, later.getDate(), MovementRequest.TypeEnum.DEPOSIT, BigDecimal.valueOf(50.0), new BigDecimal("230.00"));
+        verify(ledgerHeadRepository).shift(1L, new BigDecimal("30.00"));
+        verify(accountDailyBalanceRepository).applyDelta(1L, movement.getDate(), new BigDecimal("30.00"));
+    }
+
+    @Test
+    void updateMovement_NotFound() {
+        when(movementsRepository.findById(anyLong())).thenReturn(Mono.empty());
+
+        StepVerifier.create(movementsService.updateMovement(1L, movementRequest))
+                .expectError(BusinessException.class)
+                .verify();
+    }
+
+    @Test
+    void save_ValueWithAFractionOfACentIsRejectedBeforeTheAccountIsRead() {
+        movementRequest.setValue(new BigDecimal("10.005"));
+
+        StepVerifier.create(movementsService.save(movementRequest))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        StepVerifier.create(movementsService.updateMovement(1L, movementRequest))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verify(accountsRepository, never()).findById(anyLong());
+        verify(movementsRepository, never()).findById(anyLong());
     }
 
     @Test
@@ -146,8 +369,8 @@ class MovementsServiceTest {
     @Test
     void findAllByAccount_Success() {
         when(movementsRepository.findByAccountIdOrderByDateDesc(1L)).thenReturn(Flux.just(movement));
-        when(accountsRepository.findById(1L)).thenReturn(Mono.just(account));
-        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(customerSnapshot));
+        when(accountsRepository.findAllById(anyIterable())).thenReturn(Flux.just(account));
+        when(customerSnapshotCache.getAll(anySet())).thenReturn(Mono.just(Map.of(1L, customerSnapshot)));
 
         StepVerifier.create(movementsService.findAllByAccount(1L))
                 .expectNextCount(1)
@@ -158,13 +381,42 @@ class MovementsServiceTest {
     void getMovementsReport_Success() {
         LocalDate startDate = LocalDate.now().minusDays(1);
         LocalDate endDate = LocalDate.now();
-        when(movementsRepository.findTransactionByDateRangeAndCustomerId(startDate, endDate, 1L)).thenReturn(Flux.just(movement));
-        when(accountsRepository.findById(1L)).thenReturn(Mono.just(account));
-        when(customerSnapshotRepository.findById(1L)).thenReturn(Mono.just(customerSnapshot));
+        when(movementsRepository.findReportRows(1L, startDate, endDate))
+                .thenReturn(Flux.just(Movement.fromMovement(movement, "Jose Lema", true, BigDecimal.valueOf(100.0))));
 
         StepVerifier.create(movementsService.getMovementsReport(startDate, endDate, 1L))
-                .expectNextCount(1)
+                .expectNextMatches(response -> response.getCustomer().equals("Jose Lema"))
                 .verifyComplete();
+        verify(accountsRepository, never()).findAllById(anyIterable());
+        verify(customerSnapshotCache, never()).getAll(anySet());
+    }
+
+    @Test
+    void getStatement_Success() {
+        LocalDate startDate = LocalDate.now().minusYears(3);
+        LocalDate endDate = LocalDate.now();
+        AccountStatementResponse statement = AccountStatementResponse.builder()
+                .accountId(1L)
+                .openingBalance(BigDecimal.valueOf(100.0))
+                .closingBalance(BigDecimal.valueOf(150.0))
+                .totalDeposits(BigDecimal.valueOf(50.0))
+                .totalWithdrawals(BigDecimal.ZERO)
+                .movementCount(1L)
+                .build();
+        when(movementsRepository.findAccountStatements(1L, startDate, endDate)).thenReturn(Flux.just(statement));
+
+        StepVerifier.create(movementsService.getStatement(startDate, endDate, 1L))
+                .expectNext(statement)
+                .verifyComplete();
+    }
+
+    @Test
+    void getStatement_InvalidDates() {
+        StepVerifier.create(movementsService.getStatement(LocalDate.now(), LocalDate.now().minusDays(1), 1L))
+                .expectErrorMatches(throwable -> throwable instanceof BusinessException &&
+                        ((BusinessException) throwable).getStatus() == HttpStatus.BAD_REQUEST)
+                .verify();
+        verify(movementsRepository, never()).findAccountStatements(any(), any(), any());
     }
 
     @Test
@@ -0,0 +1,72 @@
+package com.example.accounts_management.benchmark;
+
+import com.example.accounts_management.infrastructure.dto.AccountRequest;
+import com.example.accounts_management.infrastructure.dto.MovementRequest;
+import com.example.accounts_management.model.Account;
+import com.example.accounts_management.model.CustomerSnapshot;
+import com.example.accounts_management.model.Movement;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Data shared by the benchmarks, shaped like the rows the services read.
+ */
+final class Fixtures {
+
+    static final String CUSTOMER_NAME = "Marianela Montalvo";
+
+    private Fixtures() {
+    }
+
+    static Account account() {
+        return Account.builder()
+                .id(42L)
+                .accountNumber("478758")
+                .accountType(AccountRequest.AccountTypeEnum.SAVINGS)
+                .initialBalance(new BigDecimal("2000.00"))
+                .status(true)
+                .customerId(7L)
+                .build();
+    }
+
+    static Movement movement() {
+        return Movement.builder()
+                .id(1_234L)
+                .date(LocalDate.of(2024, 6, 1))
+                .type(MovementRequest.TypeEnum.WITHDRAWAL)
+                .value(new BigDecimal("575.50"))
+                .balance(new BigDecimal("1424.50"))
+                .accountId(42L)
+                .seq(18L)
+                .build();
+    }
+
+    static CustomerSnapshot customerSnapshot() {
+        return new CustomerSnapshot(7L, CUSTOMER_NAME, 1L);
+    }
+
+    /**
+     * Implements a repository interface with the given methods only, by name. The calls go
+     * through a dynamic proxy, which costs far less than a database round trip but is part of
+     * what the pipeline benchmarks measure.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T stub(Class<T> repositoryType, Map<String, Function<Object[], Object>> methods) {
+        return (T) Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType}, (proxy, method, args) -> {
+            Function<Object[], Object> answer = methods.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args);
+            }
+            return switch (method.getName()) {
+                case "toString" -> repositoryType.getSimpleName() + " stub";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(method.getName() + " is not stubbed");
+            };
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.accounts_management.benchmark;
+
+import com.example.accounts_management.infrastructure.dto.AccountResponse;
+import com.example.accounts_management.infrastructure.dto.MovementResponse;
+import com.example.accounts_management.model.Account;
+import com.example.accounts_management.model.Movement;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Serialization of the responses with an object mapper configured as Spring Boot configures the
+ * one of the codecs, for a single response and for a listing page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    /**
+     * The default largest page of the listings.
+     */
+    @Param({"500"})
+    private int pageSize;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private AccountResponse accountResponse;
+    private MovementResponse movementResponse;
+    private List<MovementResponse> movementPage;
+
+    @Setup
+    public void setUp() {
+        Account account = Fixtures.account();
+        Movement movement = Fixtures.movement();
+        accountResponse = Account.fromAccount(account, Fixtures.CUSTOMER_NAME);
+        movementResponse = Movement.fromMovement(movement, Fixtures.CUSTOMER_NAME, account.getStatus(), account.getInitialBalance());
+        movementPage = LongStream.range(0, pageSize)
+                .mapToObj(id -> Movement.fromMovement(movement.toBuilder().id(id).build(), Fixtures.CUSTOMER_NAME, account.getStatus(), account.getInitialBalance()))
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] accountResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(accountResponse);
+    }
+
+    @Benchmark
+    public byte[] movementResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(movementResponse);
+    }
+
+    @Benchmark
+    public byte[] movementPage() throws Exception {
+        return objectMapper.writeValueAsBytes(movementPage);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.accounts_management.benchmark;
+
+import com.example.accounts_management.infrastructure.dto.AccountRequest;
+import com.example.accounts_management.infrastructure.dto.AccountResponse;
+import com.example.accounts_management.infrastructure.dto.MovementRequest;
+import com.example.accounts_management.infrastructure.dto.MovementResponse;
+import com.example.accounts_management.model.Account;
+import com.example.accounts_management.model.Movement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of the entities to their responses, done once per row of every listing, and the
+ * Lombok builders the mappings and the services create the entities with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    private Account account;
+    private Movement movement;
+    private MovementRequest movementRequest;
+
+    @Setup
+    public void setUp() {
+        account = Fixtures.account();
+        movement = Fixtures.movement();
+        movementRequest = new MovementRequest();
+        movementRequest.setDate(LocalDate.of(2024, 6, 1));
+        movementRequest.setType(MovementRequest.TypeEnum.DEPOSIT);
+        movementRequest.setValue(new BigDecimal("150.25"));
+        movementRequest.setAccountId(account.getId());
+    }
+
+    @Benchmark
+    public AccountResponse fromAccount() {
+        return Account.fromAccount(account, Fixtures.CUSTOMER_NAME);
+    }
+
+    @Benchmark
+    public MovementResponse fromMovement() {
+        return Movement.fromMovement(movement, Fixtures.CUSTOMER_NAME, account.getStatus(), account.getInitialBalance());
+    }
+
+    @Benchmark
+    public Movement fromMovementRequest() {
+        return Movement.fromMovementRequest(movementRequest, movement.getBalance(), movement.getSeq());
+    }
+
+    @Benchmark
+    public Account accountBuilder() {
+        return Account.builder()
+                .id(account.getId())
+                .accountNumber(account.getAccountNumber())
+                .accountType(AccountRequest.AccountTypeEnum.SAVINGS)
+                .initialBalance(account.getInitialBalance())
+                .status(account.getStatus())
+                .customerId(account.getCustomerId())
+                .build();
+    }
+
+    @Benchmark
+    public Movement movementToBuilder() {
+        return movement.toBuilder()
+                .balance(movement.getBalance())
+                .build();
+    }
+}
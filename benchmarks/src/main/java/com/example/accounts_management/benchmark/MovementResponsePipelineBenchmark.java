@@ -0,0 +1,68 @@
+package com.example.accounts_management.benchmark;
+
+import com.example.accounts_management.infrastructure.dto.MovementResponse;
+import com.example.accounts_management.model.Account;
+import com.example.accounts_management.model.CustomerSnapshot;
+import com.example.accounts_management.model.Movement;
+import com.example.accounts_management.repository.AccountsRepository;
+import com.example.accounts_management.repository.CustomerSnapshotRepository;
+import com.example.accounts_management.repository.MovementsRepository;
+import com.example.accounts_management.service.CustomerSnapshotCache;
+import com.example.accounts_management.service.MovementsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The reactive pipeline of {@code MovementsService.getMovementResponseFromMovement}, reached
+ * through {@link MovementsService#findById}, against repositories answering from memory. What is
+ * left is the cost of the operators, the customer snapshot cache and the mapping around each
+ * lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovementResponsePipelineBenchmark {
+
+    private MovementsService movementsService;
+    private Long movementId;
+
+    @Setup
+    public void setUp() {
+        Movement movement = Fixtures.movement();
+        Account account = Fixtures.account();
+        CustomerSnapshot customerSnapshot = Fixtures.customerSnapshot();
+        movementId = movement.getId();
+
+        MovementsRepository movementsRepository = Fixtures.stub(MovementsRepository.class,
+                Map.of("findById", args -> Mono.just(movement)));
+        AccountsRepository accountsRepository = Fixtures.stub(AccountsRepository.class,
+                Map.of("findById", args -> Mono.just(account)));
+        CustomerSnapshotRepository customerSnapshotRepository = Fixtures.stub(CustomerSnapshotRepository.class,
+                Map.of("findById", args -> Mono.just(customerSnapshot)));
+        CustomerSnapshotCache customerSnapshotCache = new CustomerSnapshotCache(customerSnapshotRepository, new SimpleMeterRegistry(), 10_000, Duration.ofMinutes(10));
+
+        movementsService = new MovementsService(movementsRepository, accountsRepository, customerSnapshotCache, null, null, null, null, null, false, 500);
+    }
+
+    @Benchmark
+    public MovementResponse findById() {
+        return movementsService.findById(movementId).block();
+    }
+}
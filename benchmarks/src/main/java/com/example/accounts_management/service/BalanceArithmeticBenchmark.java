@@ -0,0 +1,127 @@
+package com.example.accounts_management.service;
+
+import com.example.accounts_management.infrastructure.dto.MovementRequest;
+import com.example.accounts_management.model.Account;
+import com.example.accounts_management.model.Money;
+import com.example.accounts_management.model.Movement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balance arithmetic of {@link MovementsService}: a single step, the running balance over a
+ * history in minor units and, as a baseline, with {@link BigDecimal}, and the full rebalance of
+ * an account as the service runs it, conversions from and to the movement columns included. Run
+ * with {@code -prof gc} to see the allocation per operation. Lives in the package of the service
+ * to reach its package-private methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BalanceArithmeticBenchmark {
+
+    @Param({"1000"})
+    private int movements;
+
+    private long balance;
+    private long value;
+    private MovementRequest.TypeEnum[] types;
+    private long[] values;
+    private BigDecimal[] decimalValues;
+    private Account account;
+    private List<Movement> history;
+    private MovementRequest edit;
+
+    @Setup
+    public void setUp() {
+        balance = Money.of(new BigDecimal("2000.00")).minorUnits();
+        value = Money.of(new BigDecimal("575.50")).minorUnits();
+
+        Random random = new Random(42);
+        types = new MovementRequest.TypeEnum[movements];
+        values = new long[movements];
+        decimalValues = new BigDecimal[movements];
+        for (int i = 0; i < movements; i++) {
+            types[i] = random.nextBoolean() ? MovementRequest.TypeEnum.DEPOSIT : MovementRequest.TypeEnum.WITHDRAWAL;
+            decimalValues[i] = BigDecimal.valueOf(random.nextInt(1_000_000), 2);
+            values[i] = Money.of(decimalValues[i]).minorUnits();
+        }
+
+        account = Account.builder().id(1L).initialBalance(new Money(balance).toBigDecimal()).build();
+        history = new ArrayList<>(movements);
+        for (int i = 0; i < movements; i++) {
+            history.add(Movement.builder()
+                    .id((long) i + 1)
+                    .date(LocalDate.of(2024, 1, 1).plusDays(i))
+                    .type(types[i])
+                    .value(decimalValues[i])
+                    .accountId(1L)
+                    .seq((long) i + 1)
+                    .build());
+        }
+        edit = new MovementRequest();
+        edit.setType(MovementRequest.TypeEnum.DEPOSIT);
+        edit.setValue(new BigDecimal("575.50"));
+    }
+
+    @Benchmark
+    public long calculateBalance() {
+        return MovementsService.calculateBalance(MovementRequest.TypeEnum.WITHDRAWAL, balance, value);
+    }
+
+    @Benchmark
+    public long runningBalance() {
+        long runningBalance = balance;
+        for (int i = 0; i < movements; i++) {
+            runningBalance = MovementsService.calculateBalance(types[i], runningBalance, values[i]);
+        }
+        return runningBalance;
+    }
+
+    @Benchmark
+    public BigDecimal runningBalanceBigDecimal() {
+        BigDecimal runningBalance = new Money(balance).toBigDecimal();
+        for (int i = 0; i < movements; i++) {
+            runningBalance = MovementRequest.TypeEnum.WITHDRAWAL.equals(types[i])
+                    ? runningBalance.subtract(decimalValues[i])
+                    : runningBalance.add(decimalValues[i]);
+        }
+        return runningBalance;
+    }
+
+    /**
+     * The rebalance of an account with its first movement edited, as done by
+     * {@code MovementsService.updateMovement} when {@code accounts.movements.full-rebalance} is
+     * on. Unlike {@link #runningBalance} it converts each value and writes a new balance.
+     */
+    @Benchmark
+    public List<Movement> updateBalanceForAllMovements() {
+        return MovementsService.updateBalanceForAllMovements(account, history, 1L, edit);
+    }
+
+    /**
+     * Cost of the conversions done where an amount is read from and written to a column.
+     */
+    @Benchmark
+    public BigDecimal convert() {
+        return Money.of(decimalValues[0]).toBigDecimal();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.customers_management.configuration.kafka;
+
+import com.example.customers_management.model.CustomerEvent;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka serializer for {@link CustomerEvent}, see {@link CustomerEventCodec} for the format.
+ */
+public class CustomerEventSerializer implements Serializer<CustomerEvent> {
+
+    @Override
+    public byte[] serialize(String topic, CustomerEvent event) {
+        return event == null ? null : CustomerEventCodec.encode(event);
+    }
+}
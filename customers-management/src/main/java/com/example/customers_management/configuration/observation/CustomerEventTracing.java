@@ -0,0 +1,86 @@
+package com.example.customers_management.configuration.observation;
+
+import com.example.customers_management.model.CustomerOutboxEvent;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.handler.TracingObservationHandler;
+import io.micrometer.tracing.propagation.Propagator;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Carries the trace of a customer change over the outbox. The trace parent of the request is
+ * stored with the outbox event and restored when the relay publishes it, so the publication, and
+ * the consumption in accounts-management after it, join the trace of the request.
+ */
+@Component
+public class CustomerEventTracing {
+
+    static final String TRACE_PARENT = "traceparent";
+
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    public CustomerEventTracing(Tracer tracer, Propagator propagator) {
+        this.tracer = tracer;
+        this.propagator = propagator;
+    }
+
+    /**
+     * Sets the trace parent of the subscriber on the event.
+     */
+    public Mono<CustomerOutboxEvent> traced(CustomerOutboxEvent event) {
+        return Mono.deferContextual(context -> {
+            event.setTraceParent(traceParent(context));
+            return Mono.just(event);
+        });
+    }
+
+    /**
+     * Returns the W3C traceparent of the observation in the subscriber context, or of the current
+     * span when there is none, or {@code null} outside a trace.
+     */
+    public String traceParent(ContextView context) {
+        Observation observation = context.getOrDefault(ObservationThreadLocalAccessor.KEY, null);
+        TracingObservationHandler.TracingContext tracingContext = observation == null
+                ? null
+                : observation.getContext().get(TracingObservationHandler.TracingContext.class);
+        Span span = tracingContext == null ? tracer.currentSpan() : tracingContext.getSpan();
+        if (span == null || span.isNoop()) {
+            return null;
+        }
+
+        Map<String, String> carrier = new HashMap<>();
+        propagator.inject(span.context(), carrier, Map::put);
+        return carrier.get(TRACE_PARENT);
+    }
+
+    /**
+     * Starts the span publishing an event, as a child of the trace the change was made in, and
+     * writes its context to the headers of the record. Events recorded outside a trace are
+     * published without a span.
+     */
+    public Span startPublishSpan(String traceParent, ProducerRecord<String, ?> record) {
+        if (traceParent == null) {
+            return Span.NOOP;
+        }
+
+        Span span = propagator.extract(Map.of(TRACE_PARENT, traceParent), Map::get)
+                .name("customer-events publish")
+                .kind(Span.Kind.PRODUCER)
+                .remoteServiceName("kafka")
+                .tag("messaging.destination.name", record.topic())
+                .start();
+        propagator.inject(span.context(), record, (carrier, key, value) ->
+                carrier.headers().add(key, value.getBytes(StandardCharsets.UTF_8)));
+        return span;
+    }
+}
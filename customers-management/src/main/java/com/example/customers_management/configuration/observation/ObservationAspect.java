@@ -0,0 +1,117 @@
+package com.example.customers_management.configuration.observation;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.ContextView;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Observes every public method of the services and every repository query, which yields a
+ * timer (service.method, repository.query) and a span for each call. A method returning a
+ * {@link Mono} or a {@link Flux} is observed from subscription to termination, which is when the
+ * work actually happens, as a child of the observation found in the subscriber context, so the
+ * queries of a request nest under its service call and under the HTTP request.
+ */
+@Aspect
+@Component
+public class ObservationAspect {
+
+    static final String SERVICE_OBSERVATION = "service.method";
+    static final String REPOSITORY_OBSERVATION = "repository.query";
+
+    private final ObservationRegistry observationRegistry;
+
+    public ObservationAspect(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Around("within(com.example.customers_management.service..*) && @within(org.springframework.stereotype.Service) && execution(public * *(..))")
+    public Object observeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return observe(joinPoint, SERVICE_OBSERVATION);
+    }
+
+    @Around("execution(public * org.springframework.data.repository.Repository+.*(..))")
+    public Object observeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return observe(joinPoint, REPOSITORY_OBSERVATION);
+    }
+
+    private Object observe(ProceedingJoinPoint joinPoint, String name) throws Throwable {
+        Class<?> type = observedType(joinPoint.getTarget());
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Class<?> returnType = method.getReturnType();
+
+        if (Mono.class.isAssignableFrom(returnType)) {
+            Mono<?> mono = (Mono<?>) joinPoint.proceed();
+            return Mono.deferContextual(contextView -> {
+                Observation observation = start(name, type, method, contextView);
+                return mono.doOnError(observation::error)
+                        .doFinally(signal -> stop(observation, signal))
+                        .contextWrite(context -> context.put(ObservationThreadLocalAccessor.KEY, observation));
+            });
+        }
+        if (Flux.class.isAssignableFrom(returnType)) {
+            Flux<?> flux = (Flux<?>) joinPoint.proceed();
+            return Flux.deferContextual(contextView -> {
+                Observation observation = start(name, type, method, contextView);
+                return flux.doOnError(observation::error)
+                        .doFinally(signal -> stop(observation, signal))
+                        .contextWrite(context -> context.put(ObservationThreadLocalAccessor.KEY, observation));
+            });
+        }
+
+        Observation observation = start(name, type, method, null);
+        try (Observation.Scope ignored = observation.openScope()) {
+            Object result = joinPoint.proceed();
+            stop(observation, SignalType.ON_COMPLETE);
+            return result;
+        } catch (Throwable e) {
+            observation.error(e);
+            stop(observation, SignalType.ON_ERROR);
+            throw e;
+        }
+    }
+
+    /**
+     * Without an observation in the subscriber context the one of the current thread, if any,
+     * becomes the parent.
+     */
+    private Observation start(String name, Class<?> type, Method method, ContextView contextView) {
+        Observation parent = contextView == null ? null : contextView.getOrDefault(ObservationThreadLocalAccessor.KEY, null);
+        return Observation.createNotStarted(name, observationRegistry)
+                .contextualName(type.getSimpleName() + "." + method.getName())
+                .lowCardinalityKeyValue("class", type.getSimpleName())
+                .lowCardinalityKeyValue("method", method.getName())
+                .parentObservation(parent)
+                .start();
+    }
+
+    private void stop(Observation observation, SignalType signal) {
+        observation.lowCardinalityKeyValue("outcome", switch (signal) {
+            case ON_ERROR -> "error";
+            case CANCEL -> "cancelled";
+            default -> "success";
+        });
+        observation.stop();
+    }
+
+    /**
+     * Repositories are proxies, so they are named after the repository interface they implement.
+     */
+    private Class<?> observedType(Object target) {
+        return Proxy.isProxyClass(target.getClass())
+                ? AopProxyUtils.proxiedUserInterfaces(target)[0]
+                : AopProxyUtils.ultimateTargetClass(target);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.customers_management.configuration.observation;
+
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Spring Boot hands every span exporter bean to the tracer. Spans go to an OTLP collector when
+ * {@code management.otlp.tracing.endpoint} is set, and to the log with
+ * {@code customers.tracing.log-spans}, which needs no collector at all.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "customers.tracing.log-spans", havingValue = "true")
+    LoggingSpanExporter loggingSpanExporter() {
+        return LoggingSpanExporter.create();
+    }
+}
@@ -1,9 +1,16 @@
 package com.example.customers_management.controller;
 
 import com.example.customers_management.infrastructure.api.DefaultApi;
+import com.example.customers_management.infrastructure.dto.BulkCustomerRequest;
+import com.example.customers_management.infrastructure.dto.BulkCustomerResult;
 import com.example.customers_management.infrastructure.dto.CustomerRequest;
 import com.example.customers_management.infrastructure.dto.CustomerResponse;
+import com.example.customers_management.model.CursorPage;
+import com.example.customers_management.service.BulkCustomersService;
 import com.example.customers_management.service.CustomerService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ServerWebExchange;
@@ -13,10 +20,16 @@ import reactor.core.publisher.Mono;
 @RestController
 public class CustomerController implements DefaultApi {
 
+    private static final StringDecoder LINES = StringDecoder.allMimeTypes();
+
     private final CustomerService customerService;
+    private final BulkCustomersService bulkCustomersService;
+    private final int listingPrefetch;
 
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService, BulkCustomersService bulkCustomersService, @Value("${customers.listings.prefetch:256}") int listingPrefetch) {
         this.customerService = customerService;
+        this.bulkCustomersService = bulkCustomersService;
+        this.listingPrefetch = listingPrefetch;
     }
 
     @Override
@@ -25,6 +38,15 @@ public class CustomerController implements DefaultApi {
                 .map(ResponseEntity::ok);
     }
 
+    @Override
+    public Mono<ResponseEntity<Flux<BulkCustomerResult>>> importCustomers(Flux<BulkCustomerRequest> bulkCustomerRequest, ServerWebExchange exchange) {
+        // The body is split into lines and each one is parsed by the service, instead of decoding
+        // bulkCustomerRequest, which fails as a whole on the first malformed line.
+        Flux<String> lines = LINES.decode(exchange.getRequest().getBody(), ResolvableType.forClass(String.class),
+                exchange.getRequest().getHeaders().getContentType(), null);
+        return Mono.just(ResponseEntity.ok(bulkCustomersService.importCustomers(lines)));
+    }
+
     @Override
     public Mono<ResponseEntity<Void>> deleteCustomerById(Long id, ServerWebExchange exchange) {
         return customerService.deleteById(id)
@@ -32,9 +54,9 @@ public class CustomerController implements DefaultApi {
     }
 
     @Override
-    public Mono<ResponseEntity<Flux<CustomerResponse>>> getAllCustomers(ServerWebExchange exchange) {
-        Flux<CustomerResponse> customerResponseFlux = customerService.findAll();
-        return Mono.just(ResponseEntity.ok(customerResponseFlux));
+    public Mono<ResponseEntity<Flux<CustomerResponse>>> getAllCustomers(String cursor, Integer limit, ServerWebExchange exchange) {
+        return customerService.findPage(cursor, limit)
+                .map(page -> CursorPage.toResponseEntity(page, listingPrefetch));
     }
 
     @Override
@@ -3,8 +3,13 @@ package com.example.customers_management.exception.handler;
 
 import com.example.customers_management.exception.custom.BusinessException;
 import com.example.customers_management.infrastructure.dto.ErrorResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.R2dbcTimeoutException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.bind.support.WebExchangeBindException;
@@ -14,8 +19,15 @@ import java.util.stream.Collectors;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private final MeterRegistry meterRegistry;
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @ExceptionHandler(BusinessException.class)
     public ResponseEntity<ErrorResponse> handleBusinessException(BusinessException ex) {
+        meterRegistry.counter("business.exceptions", "status", String.valueOf(ex.getStatus().value())).increment();
         ErrorResponse error = ErrorResponse.builder()
                 .code(String.valueOf(ex.getStatus().value()))
                 .message(ex.getMessage())
@@ -23,6 +35,23 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, ex.getStatus());
     }
 
+    /**
+     * No database connection could be obtained within the acquire timeout of the pool, which
+     * means it is exhausted or the database is down. Answering 503 right away lets clients back
+     * off instead of piling more requests on the pool.
+     */
+    @ExceptionHandler({DataAccessResourceFailureException.class, CannotCreateTransactionException.class, R2dbcTimeoutException.class})
+    public ResponseEntity<ErrorResponse> handleConnectionUnavailable(Exception ex) {
+        ErrorResponse error = ErrorResponse.builder()
+                .code(String.valueOf(HttpStatus.SERVICE_UNAVAILABLE.value()))
+                .message("Database connection unavailable, retry later")
+                .build();
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ErrorResponse> handleValidationException(IllegalArgumentException ex) {
 
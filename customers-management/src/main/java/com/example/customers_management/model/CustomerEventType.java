@@ -0,0 +1,30 @@
+package com.example.customers_management.model;
+
+import java.util.Arrays;
+
+/**
+ * Kind of customer change. The code is what travels on the wire, so it must never be reused
+ * for a different type.
+ */
+public enum CustomerEventType {
+    CREATED(1),
+    UPDATED(2),
+    DELETED(3);
+
+    private final int code;
+
+    CustomerEventType(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public static CustomerEventType fromCode(int code) {
+        return Arrays.stream(values())
+                .filter(type -> type.code == code)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown customer event type " + code));
+    }
+}
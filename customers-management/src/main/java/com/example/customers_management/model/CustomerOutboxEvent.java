@@ -0,0 +1,58 @@
+package com.example.customers_management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Customer change waiting to be published to Kafka. It is written in the same transaction as
+ * the customer row and removed once the broker has acknowledged it.
+ */
+@Table(name = "customer_outbox")
+@Getter
+@Setter
+@SuperBuilder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerOutboxEvent {
+
+    @Id
+    private Long id;
+    private Long customerId;
+    private String customerName;
+    private CustomerEventType eventType;
+    private LocalDateTime createdAt;
+    /**
+     * W3C traceparent of the request that made the change, so its publication joins that trace.
+     */
+    private String traceParent;
+
+    public static CustomerOutboxEvent fromCustomer(Customer customer, CustomerEventType eventType) {
+        return CustomerOutboxEvent.builder()
+                .customerId(customer.getId())
+                .customerName(customer.getName())
+                .eventType(eventType)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * The outbox id comes from a sequence, so it doubles as the version of the event.
+     */
+    public CustomerEvent toCustomerEvent() {
+        return CustomerEvent.builder()
+                .type(eventType)
+                .customerId(customerId)
+                .customerName(customerName)
+                .version(id)
+                .eventTime(createdAt.atZone(ZoneId.systemDefault()).toInstant())
+                .build();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.customers_management.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Opaque token pointing after the last element of a page. It carries the sort key of that
+ * element, so the next page is read with a keyset condition on an index instead of an offset,
+ * and costs the same whatever its position.
+ */
+public final class PageCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private PageCursor() {
+    }
+
+    public static String encode(Object... keys) {
+        String joined = Arrays.stream(keys)
+                .map(String::valueOf)
+                .collect(Collectors.joining(SEPARATOR));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the keys of the cursor with the given parser. Any cursor that was not produced by
+     * {@link #encode(Object...)} for the same keys is rejected with an
+     * {@link IllegalArgumentException}.
+     */
+    public static <T> T decode(String cursor, Function<String[], T> keys) {
+        try {
+            String joined = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            return keys.apply(joined.split(Pattern.quote(SEPARATOR), -1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
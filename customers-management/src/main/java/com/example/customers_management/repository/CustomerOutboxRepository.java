@@ -0,0 +1,19 @@
+package com.example.customers_management.repository;
+
+import com.example.customers_management.model.CustomerOutboxEvent;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface CustomerOutboxRepository extends ReactiveCrudRepository<CustomerOutboxEvent, Long> {
+
+    /**
+     * Locks the oldest pending events. Rows locked by another relay are skipped, so several
+     * instances can drain the outbox without publishing the same event twice.
+     */
+    @Query("select * from customer_outbox order by id limit :limit for update skip locked")
+    Flux<CustomerOutboxEvent> findNextBatch(@Param("limit") int limit);
+}
@@ -1,12 +1,25 @@
 package com.example.customers_management.repository;
 
 import com.example.customers_management.model.Customer;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Repository
-public interface CustomerRepository extends ReactiveCrudRepository<Customer, Long> {
+public interface CustomerRepository extends ReactiveCrudRepository<Customer, Long>, CustomerRepositoryCustom {
 
     Mono<Customer> findByIdentification(String identification);
+
+    /**
+     * Returns which of the identifications are already taken, with one array parameter whatever
+     * the number of identifications.
+     */
+    @Query("select identification from customer where identification = any(:identifications)")
+    Flux<String> findExistingIdentifications(@Param("identifications") String[] identifications);
+
+    @Query("select * from customer where id > :afterId order by id limit :limit")
+    Flux<Customer> findPageAfter(@Param("afterId") Long afterId, @Param("limit") int limit);
 }
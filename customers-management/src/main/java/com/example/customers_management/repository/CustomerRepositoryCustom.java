@@ -0,0 +1,16 @@
+package com.example.customers_management.repository;
+
+import com.example.customers_management.model.Customer;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface CustomerRepositoryCustom {
+
+    /**
+     * Inserts the customers with multi-row statements and records a CREATED outbox event for
+     * each of them in the same statement, carrying the given trace parent, which may be
+     * {@code null}. Emits the customers with their generated id.
+     */
+    Flux<Customer> insertAllWithCreatedEvents(List<Customer> customers, String traceParent);
+}
@@ -0,0 +1,80 @@
+package com.example.customers_management.repository;
+
+import com.example.customers_management.model.Customer;
+import com.example.customers_management.model.CustomerEventType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CustomerRepositoryCustomImpl implements CustomerRepositoryCustom {
+
+    /**
+     * Keeps each statement well below the bind parameter limit of PostgreSQL.
+     */
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private final DatabaseClient databaseClient;
+
+    public CustomerRepositoryCustomImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Flux<Customer> insertAllWithCreatedEvents(List<Customer> customers, String traceParent) {
+        List<List<Customer>> chunks = new ArrayList<>();
+        for (int from = 0; from < customers.size(); from += MAX_ROWS_PER_STATEMENT) {
+            chunks.add(customers.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, customers.size())));
+        }
+
+        return Flux.fromIterable(chunks)
+                .concatMap(chunk -> insertChunk(chunk, traceParent));
+    }
+
+    private Flux<Customer> insertChunk(List<Customer> chunk, String traceParent) {
+        StringBuilder sql = new StringBuilder("with inserted as (insert into customer (name, gender, identification, address, phone, password, status) values ");
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "" : ", ")
+                    .append("(:name").append(i)
+                    .append(", :gender").append(i)
+                    .append(", :identification").append(i)
+                    .append(", :address").append(i)
+                    .append(", :phone").append(i)
+                    .append(", :password").append(i)
+                    .append(", :status").append(i).append(")");
+        }
+        sql.append(" returning id, name, identification), events as (")
+                .append("insert into customer_outbox (customer_id, customer_name, event_type, trace_parent) ")
+                .append("select id, name, '").append(CustomerEventType.CREATED.name()).append("', cast(:traceParent as varchar) from inserted order by id) ")
+                .append("select id, identification from inserted");
+
+        DatabaseClient.GenericExecuteSpec statement = traceParent == null
+                ? databaseClient.sql(sql.toString()).bindNull("traceParent", String.class)
+                : databaseClient.sql(sql.toString()).bind("traceParent", traceParent);
+        Map<String, Customer> byIdentification = new HashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Customer customer = chunk.get(i);
+            byIdentification.put(customer.getIdentification(), customer);
+            statement = statement
+                    .bind("name" + i, customer.getName())
+                    .bind("gender" + i, customer.getGender().name())
+                    .bind("identification" + i, customer.getIdentification())
+                    .bind("address" + i, customer.getAddress())
+                    .bind("phone" + i, customer.getPhone())
+                    .bind("password" + i, customer.getPassword())
+                    .bind("status" + i, customer.getStatus());
+        }
+
+        // Identifications are unique, so rows are matched back by them and not by returning order.
+        return statement
+                .map((row, metadata) -> {
+                    Customer customer = byIdentification.get(row.get("identification", String.class));
+                    customer.setId(row.get("id", Long.class));
+                    return customer;
+                })
+                .all();
+    }
+}
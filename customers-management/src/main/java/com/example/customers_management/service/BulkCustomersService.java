@@ -0,0 +1,229 @@
+package com.example.customers_management.service;
+
+import com.example.customers_management.configuration.observation.CustomerEventTracing;
+import com.example.customers_management.infrastructure.dto.BulkCustomerRequest;
+import com.example.customers_management.infrastructure.dto.BulkCustomerResult;
+import com.example.customers_management.infrastructure.dto.CustomerRequest;
+import com.example.customers_management.model.Customer;
+import com.example.customers_management.repository.CustomerRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.spi.R2dbcTimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Imports a stream of customers in chunks. Each chunk costs one query to find the
+ * identifications already taken and one multi-row insert, which also records the CREATED
+ * events in the outbox; {@link CustomerOutboxRelay} then publishes them in batches.
+ */
+@Service
+@Slf4j
+public class BulkCustomersService {
+
+    private final CustomerRepository customerRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final CustomerEventTracing customerEventTracing;
+    private final ObjectMapper objectMapper;
+    /**
+     * Lines read from the request before they are written. Bounds the memory held per request
+     * and the size of each insert.
+     */
+    private final int chunkSize;
+
+    public BulkCustomersService(CustomerRepository customerRepository, TransactionalOperator transactionalOperator, CustomerEventTracing customerEventTracing, ObjectMapper objectMapper,
+                                @Value("${customers.bulk.chunk-size:1000}") int chunkSize) {
+        this.customerRepository = customerRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.customerEventTracing = customerEventTracing;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Emits one result per line of JSON; blank lines are skipped. Results of rejected lines come
+     * first within their chunk, then the results of the created customers once the chunk is
+     * committed. Each line is parsed on its own, so a malformed one is rejected without failing
+     * the others.
+     */
+    public Flux<BulkCustomerResult> importCustomers(Flux<String> lines) {
+        return lines
+                .index((index, text) -> parse(index + 1, text))
+                .filter(line -> line.request() != null || line.violation() != null)
+                .buffer(chunkSize)
+                .concatMap(this::importChunk);
+    }
+
+    private Flux<BulkCustomerResult> importChunk(List<Line> chunk) {
+        List<BulkCustomerResult> rejected = new ArrayList<>();
+        List<Line> candidates = new ArrayList<>();
+        Set<String> identifications = new HashSet<>();
+        for (Line line : chunk) {
+            String violation = line.violation() == null ? validate(line.request()) : line.violation();
+            if (violation != null) {
+                rejected.add(rejected(line, violation));
+            } else if (!identifications.add(line.request().getIdentification())) {
+                rejected.add(rejected(line, "Customer with identification " + line.request().getIdentification() + " is repeated in the request"));
+            } else {
+                candidates.add(line);
+            }
+        }
+
+        if (candidates.isEmpty()) {
+            return Flux.fromIterable(rejected);
+        }
+
+        Flux<BulkCustomerResult> created = customerRepository.findExistingIdentifications(identifications.toArray(String[]::new))
+                .collectList()
+                .flatMapMany(existing -> {
+                    Set<String> taken = new HashSet<>(existing);
+                    List<BulkCustomerResult> duplicates = new ArrayList<>();
+                    List<Line> lines = new ArrayList<>();
+                    for (Line line : candidates) {
+                        if (taken.contains(line.request().getIdentification())) {
+                            duplicates.add(rejected(line, "Customer with identification " + line.request().getIdentification() + " already exists"));
+                        } else {
+                            lines.add(line);
+                        }
+                    }
+
+                    return Flux.fromIterable(duplicates).concatWith(insert(lines));
+                });
+
+        return Flux.fromIterable(rejected).concatWith(created);
+    }
+
+    /**
+     * Writes the new customers of a chunk in one transaction. A failure, such as an
+     * identification taken since it was checked, rolls back the chunk and rejects all of its lines.
+     */
+    private Flux<BulkCustomerResult> insert(List<Line> lines) {
+        if (lines.isEmpty()) {
+            return Flux.empty();
+        }
+
+        List<Customer> customers = lines.stream()
+                .map(line -> toCustomer(line.request()))
+                .toList();
+
+        return Flux.deferContextual(context -> customerRepository.insertAllWithCreatedEvents(customers, customerEventTracing.traceParent(context)))
+                .then()
+                .as(transactionalOperator::transactional)
+                .thenMany(Flux.range(0, lines.size())
+                        .map(i -> created(lines.get(i), customers.get(i))))
+                .onErrorResume(error -> {
+                    log.error("Error importing {} customers", lines.size(), error);
+                    return Flux.fromIterable(lines).map(line -> rejected(line, failure(error)));
+                });
+    }
+
+    /**
+     * Message of a failed chunk. The cause is logged, not returned, since driver errors carry
+     * SQL and schema details.
+     */
+    private static String failure(Throwable error) {
+        if (error instanceof DataAccessResourceFailureException || error instanceof CannotCreateTransactionException || error instanceof R2dbcTimeoutException) {
+            return "Database connection unavailable, retry later";
+        }
+        return error instanceof DataIntegrityViolationException
+                ? "An identification of the chunk was taken meanwhile, retry its lines"
+                : "Customers of the chunk could not be written";
+    }
+
+    private Line parse(long number, String text) {
+        if (text.isBlank()) {
+            return new Line(number, null, null);
+        }
+        try {
+            return new Line(number, objectMapper.readValue(text, BulkCustomerRequest.class), null);
+        } catch (JsonMappingException e) {
+            String field = e.getPath().isEmpty() ? null : e.getPath().get(e.getPath().size() - 1).getFieldName();
+            return new Line(number, null, field == null ? "Line is not a customer object" : field + " has an invalid value");
+        } catch (JsonProcessingException e) {
+            return new Line(number, null, "Line is not valid JSON");
+        }
+    }
+
+    /**
+     * Applies the constraints of {@link CustomerRequest} to a line. The password is required as
+     * well, since the customer table does not accept customers without one.
+     */
+    private String validate(BulkCustomerRequest request) {
+        if (request.getGender() == null) {
+            return "gender is required";
+        }
+        if (request.getStatus() == null) {
+            return "status is required";
+        }
+        String violation = validateLength("name", request.getName(), 3, 100);
+        if (violation == null) {
+            violation = validateLength("identification", request.getIdentification(), 5, 20);
+        }
+        if (violation == null) {
+            violation = validateLength("address", request.getAddress(), 5, 50);
+        }
+        if (violation == null) {
+            violation = validateLength("phone", request.getPhone(), 5, 20);
+        }
+        if (violation == null) {
+            violation = validateLength("password", request.getPassword(), 4, 16);
+        }
+        return violation;
+    }
+
+    private String validateLength(String field, String value, int min, int max) {
+        if (value == null) {
+            return field + " is required";
+        }
+        if (value.length() < min || value.length() > max) {
+            return field + " size must be between " + min + " and " + max;
+        }
+        return null;
+    }
+
+    private Customer toCustomer(BulkCustomerRequest request) {
+        return Customer.builder()
+                .name(request.getName())
+                .gender(CustomerRequest.GenderEnum.fromValue(request.getGender().getValue()))
+                .identification(request.getIdentification())
+                .address(request.getAddress())
+                .phone(request.getPhone())
+                .password(request.getPassword())
+                .status(request.getStatus())
+                .build();
+    }
+
+    private BulkCustomerResult created(Line line, Customer customer) {
+        return new BulkCustomerResult()
+                .line(line.number())
+                .status(BulkCustomerResult.StatusEnum.CREATED)
+                .customerId(customer.getId())
+                .identification(customer.getIdentification());
+    }
+
+    private BulkCustomerResult rejected(Line line, String message) {
+        return new BulkCustomerResult()
+                .line(line.number())
+                .status(BulkCustomerResult.StatusEnum.REJECTED)
+                .identification(line.request() == null ? null : line.request().getIdentification())
+                .message(message);
+    }
+
+    /**
+     * A line of the request, with its customer or, when it could not be parsed, the reason.
+     */
+    private record Line(long number, BulkCustomerRequest request, String violation) {
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.customers_management.service;
+
+import com.example.customers_management.configuration.observation.CustomerEventTracing;
+import com.example.customers_management.model.CustomerEvent;
+import com.example.customers_management.model.CustomerOutboxEvent;
+import com.example.customers_management.repository.CustomerOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publishes the customer outbox to the customer topic. Each run drains the outbox in batches:
+ * a batch is locked, sent to Kafka as a whole and deleted once every record has been
+ * acknowledged. If a send fails the transaction is rolled back and the batch is sent again on
+ * the next run. Each send is traced as a child of the request that changed the customer, whose
+ * trace parent was stored with the event.
+ */
+@Component
+@Slf4j
+public class CustomerOutboxRelay {
+
+    static final String EVENT_TYPE_HEADER = "event-type";
+
+    private final CustomerOutboxRepository customerOutboxRepository;
+    private final KafkaTemplate<String, CustomerEvent> kafkaTemplate;
+    private final TransactionalOperator transactionalOperator;
+    private final CustomerEventTracing customerEventTracing;
+    private final String topicName;
+    private final int batchSize;
+    /**
+     * Time from the change of the customer to the broker acknowledgement of its event. The send
+     * itself is timed by the template as spring.kafka.template.
+     */
+    private final Timer publishDelay;
+
+    public CustomerOutboxRelay(CustomerOutboxRepository customerOutboxRepository,
+                               KafkaTemplate<String, CustomerEvent> kafkaTemplate,
+                               TransactionalOperator transactionalOperator,
+                               CustomerEventTracing customerEventTracing,
+                               MeterRegistry meterRegistry,
+                               @Value("${spring.kafka.topic}") String topicName,
+                               @Value("${customers.outbox.batch-size:500}") int batchSize) {
+        this.customerOutboxRepository = customerOutboxRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionalOperator = transactionalOperator;
+        this.customerEventTracing = customerEventTracing;
+        this.topicName = topicName;
+        this.batchSize = batchSize;
+        this.publishDelay = Timer.builder("customer.outbox.delay")
+                .description("Time from the customer change to the acknowledgement of its event")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${customers.outbox.poll-interval-ms:200}")
+    public void relay() {
+        try {
+            Integer published = drain().block();
+            if (published != null && published > 0) {
+                log.info("Published {} customer events", published);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error to publish customer events: ", e);
+        }
+    }
+
+    public Mono<Integer> drain() {
+        return relayBatch()
+                .expand(published -> published < batchSize ? Mono.empty() : relayBatch())
+                .reduce(0, Integer::sum);
+    }
+
+    private Mono<Integer> relayBatch() {
+        return customerOutboxRepository.findNextBatch(batchSize)
+                .collectList()
+                .flatMap(events -> events.isEmpty()
+                        ? Mono.just(0)
+                        : sendKafkaEvents(events)
+                        .then(Mono.defer(() -> customerOutboxRepository.deleteAllById(events.stream().map(CustomerOutboxEvent::getId).toList())))
+                        .thenReturn(events.size()))
+                .as(transactionalOperator::transactional);
+    }
+
+    private Mono<Void> sendKafkaEvents(List<CustomerOutboxEvent> events) {
+        return Mono.defer(() -> {
+            CompletableFuture<?>[] sends = events.stream()
+                    .map(this::sendKafkaEvent)
+                    .toArray(CompletableFuture[]::new);
+            return Mono.fromFuture(CompletableFuture.allOf(sends));
+        });
+    }
+
+    private CompletableFuture<SendResult<String, CustomerEvent>> sendKafkaEvent(CustomerOutboxEvent event) {
+        ProducerRecord<String, CustomerEvent> record = new ProducerRecord<>(topicName, event.getCustomerId().toString(), event.toCustomerEvent());
+        record.headers().add(EVENT_TYPE_HEADER, event.getEventType().name().getBytes(StandardCharsets.UTF_8));
+        Span span = customerEventTracing.startPublishSpan(event.getTraceParent(), record);
+        return kafkaTemplate.send(record)
+                .whenComplete((result, error) -> {
+                    if (error == null) {
+                        publishDelay.record(Duration.between(event.getCreatedAt(), LocalDateTime.now()));
+                    } else {
+                        span.error(error);
+                    }
+                    span.end();
+                });
+    }
+}
@@ -1,36 +1,44 @@
 package com.example.customers_management.service;
 
+import com.example.customers_management.configuration.observation.CustomerEventTracing;
 import com.example.customers_management.exception.custom.BusinessException;
 import com.example.customers_management.infrastructure.dto.CustomerRequest;
 import com.example.customers_management.infrastructure.dto.CustomerResponse;
+import com.example.customers_management.model.CursorPage;
 import com.example.customers_management.model.Customer;
+import com.example.customers_management.model.CustomerEventType;
+import com.example.customers_management.model.CustomerOutboxEvent;
+import com.example.customers_management.model.PageCursor;
+import com.example.customers_management.repository.CustomerOutboxRepository;
 import com.example.customers_management.repository.CustomerRepository;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.Map;
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 @Slf4j
 public class CustomerService {
 
     private final CustomerRepository customerRepository;
-    private final KafkaTemplate<String, String> kafkaTemplate;
-    private final ObjectMapper objectMapper;
-    @Value("${spring.kafka.topic}")
-    private String topicName;
+    private final CustomerOutboxRepository customerOutboxRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final CustomerEventTracing customerEventTracing;
+    private final int maxPageSize;
 
-    public CustomerService(CustomerRepository customerRepository, KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper) {
+    public CustomerService(CustomerRepository customerRepository, CustomerOutboxRepository customerOutboxRepository, TransactionalOperator transactionalOperator, CustomerEventTracing customerEventTracing,
+                           @Value("${customers.pagination.max-page-size:500}") int maxPageSize) {
         this.customerRepository = customerRepository;
-        this.kafkaTemplate = kafkaTemplate;
-        this.objectMapper = objectMapper;
+        this.customerOutboxRepository = customerOutboxRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.customerEventTracing = customerEventTracing;
+        this.maxPageSize = maxPageSize;
     }
 
     public Mono<CustomerResponse> findById(Long customerId) {
@@ -39,9 +47,23 @@ public class CustomerService {
                 .switchIfEmpty(Mono.error(new BusinessException(HttpStatus.NOT_FOUND, "Customer not found")));
     }
 
-    public Flux<CustomerResponse> findAll() {
-        return customerRepository.findAll()
-                .map(Customer::toCustomerResponse);
+    /**
+     * Reads the page of customers after the cursor, ordered by id. One row more than the page is
+     * read to know whether another page follows.
+     */
+    public Mono<CursorPage<CustomerResponse>> findPage(String cursor, Integer limit) {
+        int pageSize = limit == null ? maxPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+        return Mono.fromCallable(() -> cursor == null ? 0L : PageCursor.decode(cursor, keys -> Long.valueOf(keys[0])))
+                .flatMapMany(afterId -> customerRepository.findPageAfter(afterId, pageSize + 1))
+                .collectList()
+                .map(customers -> {
+                    boolean hasNextPage = customers.size() > pageSize;
+                    List<Customer> page = hasNextPage ? customers.subList(0, pageSize) : customers;
+                    String nextCursor = hasNextPage ? PageCursor.encode(page.get(page.size() - 1).getId()) : null;
+
+                    return new CursorPage<>(page.stream().map(Customer::toCustomerResponse).toList(), nextCursor);
+                });
     }
 
     public Mono<CustomerResponse> save(CustomerRequest customerRequest) {
@@ -58,14 +80,9 @@ public class CustomerService {
                         Mono.defer(() -> {
                             Customer customer = Customer.fromCustomerRequest(customerRequest);
                             return customerRepository.save(customer)
-                                    .map(savedCustomer -> {
-                                        try {
-                                            sendKafkaEvent(savedCustomer.getId().toString(), savedCustomer.getName());
-                                        } catch (JsonProcessingException e) {
-                                            Mono.error(new BusinessException(HttpStatus.INTERNAL_SERVER_ERROR, "Error to send event"));
-                                        }
-                                        return Customer.toCustomerResponse(savedCustomer);
-                                    });
+                                    .flatMap(savedCustomer -> publishEvent(savedCustomer, CustomerEventType.CREATED))
+                                    .map(Customer::toCustomerResponse)
+                                    .as(transactionalOperator::transactional);
                         })
                 );
     }
@@ -76,7 +93,9 @@ public class CustomerService {
                     Customer customer = Customer.fromCustomerRequest(customerRequest);
                     customer.setId(id);
                     return customerRepository.save(customer)
-                            .map(Customer::toCustomerResponse);
+                            .flatMap(savedCustomer -> publishEvent(savedCustomer, CustomerEventType.UPDATED))
+                            .map(Customer::toCustomerResponse)
+                            .as(transactionalOperator::transactional);
                 })
                 .switchIfEmpty(Mono.error(new BusinessException(HttpStatus.NOT_FOUND, "Customer not found")));
     }
@@ -84,22 +103,26 @@ public class CustomerService {
     public Mono<Void> deleteById(Long customerId) {
         return findById(customerId)
                 .switchIfEmpty(Mono.error(new BusinessException(HttpStatus.NOT_FOUND, "Customer not found")))
-                .flatMap(customerResponse -> customerRepository.deleteById(customerId));
+                .flatMap(customerResponse -> customerRepository.deleteById(customerId)
+                        .then(customerEventTracing.traced(CustomerOutboxEvent.builder()
+                                .customerId(customerId)
+                                .customerName(customerResponse.getName())
+                                .eventType(CustomerEventType.DELETED)
+                                .createdAt(LocalDateTime.now())
+                                .build()))
+                        .flatMap(customerOutboxRepository::save)
+                        .then()
+                        .as(transactionalOperator::transactional));
     }
 
-    public void sendKafkaEvent(String customerId, String customerName) throws JsonProcessingException {
-        Map<String, String> purchaseEvent = Map.of(customerId, customerName);
-
-        var value = objectMapper.writeValueAsString(purchaseEvent);
-
-        var completableFuture = kafkaTemplate.send(topicName, customerId, value);
-
-        completableFuture.whenComplete((result, ex) -> {
-            if (ex != null) {
-                log.error("Error to send event: ", ex);
-            } else {
-                log.info("Message sent successfully: {} - {}, returned value (partition value): {}", customerId, value, result.getRecordMetadata().partition());
-            }
-        });
+    /**
+     * Records the change in the outbox, in the transaction of the caller. The event is published
+     * to Kafka afterwards by {@link CustomerOutboxRelay}, off the request path, so the event
+     * keeps the trace of the request to continue it.
+     */
+    private Mono<Customer> publishEvent(Customer customer, CustomerEventType eventType) {
+        return customerEventTracing.traced(CustomerOutboxEvent.fromCustomer(customer, eventType))
+                .flatMap(customerOutboxRepository::save)
+                .thenReturn(customer);
     }
 }
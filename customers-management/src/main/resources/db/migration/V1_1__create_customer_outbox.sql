@@ -0,0 +1,10 @@
+-- Customer events written in the transaction of the change they describe, with the trace they
+-- were written in, and published to Kafka by the outbox relay.
+create table if not exists customer_outbox(
+	id BIGSERIAL primary key,
+	customer_id bigint not null,
+	customer_name varchar(100),
+	event_type varchar(10) not null,
+	created_at timestamp not null default now(),
+	trace_parent varchar(55)
+);
@@ -0,0 +1,89 @@
+package com.example.customers_management.benchmark;
+
+import com.example.customers_management.configuration.kafka.CustomerEventCodec;
+import com.example.customers_management.model.CustomerEvent;
+import com.example.customers_management.model.CustomerEventType;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the binary customer event codec with the JSON map the events used to be sent as,
+ * including the string to bytes step the Kafka string serializers add. Run the main method from
+ * the IDE or with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.customers_management.benchmark.CustomerEventCodecBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerEventCodecBenchmark {
+
+    private static final TypeReference<Map<String, String>> LEGACY_EVENT = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private CustomerEvent event;
+    private byte[] binary;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws Exception {
+        event = CustomerEvent.builder()
+                .type(CustomerEventType.UPDATED)
+                .customerId(123_456L)
+                .customerName("Marianela Montalvo")
+                .version(9_876_543L)
+                .eventTime(Instant.now())
+                .build();
+        binary = CustomerEventCodec.encode(event);
+        json = encodeJson();
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return CustomerEventCodec.encode(event);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws Exception {
+        return objectMapper.writeValueAsString(Map.of(event.getCustomerId().toString(), event.getCustomerName()))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public CustomerEvent decodeBinary() {
+        return CustomerEventCodec.decode(binary);
+    }
+
+    @Benchmark
+    public Map<String, String> decodeJson() throws Exception {
+        return objectMapper.readValue(new String(json, StandardCharsets.UTF_8), LEGACY_EVENT);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CustomerEventCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.customers_management.configuration.kafka;
+
+import com.example.customers_management.model.CustomerEvent;
+import com.example.customers_management.model.CustomerEventType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CustomerEventCodecTest {
+
+    private final CustomerEvent event = CustomerEvent.builder()
+            .type(CustomerEventType.UPDATED)
+            .customerId(42L)
+            .customerName("José Lema")
+            .version(1_234_567L)
+            .eventTime(Instant.ofEpochMilli(1_700_000_000_123L))
+            .build();
+
+    @Test
+    void encode_RoundTrip() {
+        assertEquals(event, CustomerEventCodec.decode(CustomerEventCodec.encode(event)));
+    }
+
+    @Test
+    void encode_MissingNameIsOmitted() {
+        CustomerEvent deleted = event.toBuilder().type(CustomerEventType.DELETED).customerName(null).build();
+
+        CustomerEvent decoded = CustomerEventCodec.decode(CustomerEventCodec.encode(deleted));
+
+        assertEquals(CustomerEventType.DELETED, decoded.getType());
+        assertNull(decoded.getCustomerName());
+    }
+
+    @Test
+    void encode_SmallerThanJson() throws Exception {
+        byte[] json = new ObjectMapper().writeValueAsBytes(Map.of(
+                "type", "UPDATED",
+                "customerId", 42L,
+                "customerName", "José Lema",
+                "version", 1_234_567L,
+                "eventTime", 1_700_000_000_123L));
+
+        assertTrue(CustomerEventCodec.encode(event).length < json.length);
+    }
+
+    @Test
+    void decode_SkipsFieldsAddedLater() {
+        byte[] encoded = CustomerEventCodec.encode(event);
+        // Field 15 as a varint (tag 0x78) and field 16 as bytes (tag 0x82 0x01), both unknown.
+        byte[] extra = {0x78, 0x05, (byte) 0x82, 0x01, 0x02, 'o', 'k'};
+        byte[] evolved = Arrays.copyOf(encoded, encoded.length + extra.length);
+        System.arraycopy(extra, 0, evolved, encoded.length, extra.length);
+
+        assertEquals(event, CustomerEventCodec.decode(evolved));
+    }
+
+    @Test
+    void decode_RejectsTruncatedPayload() {
+        byte[] encoded = CustomerEventCodec.encode(event);
+
+        assertThrows(SerializationException.class, () -> CustomerEventCodec.decode(Arrays.copyOf(encoded, encoded.length - 3)));
+    }
+
+    @Test
+    void decode_RejectsUnknownFormat() {
+        assertThrows(SerializationException.class, () -> CustomerEventCodec.decode(new byte[]{'{', '}'}));
+    }
+}
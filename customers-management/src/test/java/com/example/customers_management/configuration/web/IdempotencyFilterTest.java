@@ -0,0 +1,206 @@
+package com.example.customers_management.configuration.web;
+
+import com.example.customers_management.repository.IdempotencyKeyRepository;
+import com.example.customers_management.service.IdempotencyKeyStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the filter over the idempotency_key table of an embedded Postgres. Each store stands for
+ * an instance of the service, so a new one sees only what the first one wrote to the table.
+ */
+class IdempotencyFilterTest {
+
+    private static EmbeddedPostgres postgres;
+    private static IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private final WebFilterChain chain = exchange -> exchange.getRequest().getBody()
+            .doOnNext(DataBufferUtils::release)
+            .then(Mono.defer(() -> {
+                int execution = executions.incrementAndGet();
+                exchange.getResponse().setStatusCode(HttpStatus.CREATED);
+                exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                byte[] body = ("{\"id\":" + execution + "}").getBytes(StandardCharsets.UTF_8);
+                return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(body)));
+            }));
+
+    private final WebFilterChain hangingChain = exchange -> exchange.getRequest().getBody()
+            .doOnNext(DataBufferUtils::release)
+            .then(Mono.defer(() -> {
+                executions.incrementAndGet();
+                started.countDown();
+                return Mono.never();
+            }));
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        PostgresqlConnectionFactory connectionFactory = new PostgresqlConnectionFactory(PostgresqlConnectionConfiguration.builder()
+                .host("localhost")
+                .port(postgres.getPort())
+                .database("postgres")
+                .username("postgres")
+                .build());
+        idempotencyKeyRepository = new R2dbcRepositoryFactory(new R2dbcEntityTemplate(connectionFactory))
+                .getRepository(IdempotencyKeyRepository.class);
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void clear() throws Exception {
+        execute("delete from idempotency_key");
+    }
+
+    @Test
+    void filter_ReplaysTheStoredResponseOnAnotherInstance() {
+        StepVerifier.create(instance().filter(post("abc", "{\"name\":\"John\"}"), chain)).verifyComplete();
+
+        MockServerWebExchange retry = post("abc", "{\"name\":\"John\"}");
+        StepVerifier.create(instance().filter(retry, chain)).verifyComplete();
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, retry.getResponse().getStatusCode());
+        assertEquals("true", retry.getResponse().getHeaders().getFirst(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals("{\"id\":1}", retry.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void filter_RejectsAKeyReusedWithAnotherBodyOnAnotherInstance() {
+        StepVerifier.create(instance().filter(post("abc", "{\"name\":\"John\"}"), chain)).verifyComplete();
+
+        MockServerWebExchange retry = post("abc", "{\"name\":\"Jane\"}");
+        StepVerifier.create(instance().filter(retry, chain)).verifyComplete();
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, retry.getResponse().getStatusCode());
+    }
+
+    @Test
+    void filter_StaleClaimIsNotExecutedAgain() throws Exception {
+        execute("insert into idempotency_key (idempotency_key, created_at) values ('POST /api/v1/customers abc', now() - interval '12 hours')");
+
+        MockServerWebExchange retry = post("abc", "{\"name\":\"John\"}");
+        StepVerifier.create(instance().filter(retry, chain)).verifyComplete();
+
+        assertEquals(0, executions.get());
+        assertEquals(HttpStatus.CONFLICT, retry.getResponse().getStatusCode());
+    }
+
+    @Test
+    void filter_CancelledRequestIsExecutedAgain() throws Exception {
+        IdempotencyFilter instance = instance();
+        Disposable cancelled = instance.filter(post("abc", "{\"name\":\"John\"}"), hangingChain).subscribe();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        cancelled.dispose();
+        awaitReleased();
+
+        MockServerWebExchange retry = post("abc", "{\"name\":\"John\"}");
+        StepVerifier.create(instance().filter(retry, chain)).verifyComplete();
+
+        assertEquals(2, executions.get());
+        assertEquals(HttpStatus.CREATED, retry.getResponse().getStatusCode());
+        assertNull(retry.getResponse().getHeaders().getFirst(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void filter_ServerErrorIsExecutedAgain() throws Exception {
+        WebFilterChain unavailableChain = exchange -> exchange.getRequest().getBody()
+                .doOnNext(DataBufferUtils::release)
+                .then(Mono.defer(() -> {
+                    executions.incrementAndGet();
+                    exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                    return exchange.getResponse().setComplete();
+                }));
+        IdempotencyFilter instance = instance();
+        MockServerWebExchange failed = post("abc", "{\"name\":\"John\"}");
+        StepVerifier.create(instance.filter(failed, unavailableChain)).verifyComplete();
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, failed.getResponse().getStatusCode());
+        assertEquals("0", query("select count(*) from idempotency_key"));
+
+        MockServerWebExchange sameInstance = post("abc", "{\"name\":\"John\"}");
+        StepVerifier.create(instance.filter(sameInstance, chain)).verifyComplete();
+
+        assertEquals(2, executions.get());
+        assertEquals(HttpStatus.CREATED, sameInstance.getResponse().getStatusCode());
+        assertNull(sameInstance.getResponse().getHeaders().getFirst(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    private static void awaitReleased() throws Exception {
+        for (int attempt = 0; attempt < 100 && !"0".equals(query("select count(*) from idempotency_key")); attempt++) {
+            Thread.sleep(100);
+        }
+        assertEquals("0", query("select count(*) from idempotency_key"));
+    }
+
+    private static IdempotencyFilter instance() {
+        IdempotencyKeyStore idempotencyKeyStore = new IdempotencyKeyStore(idempotencyKeyRepository, new SimpleMeterRegistry(), Duration.ofHours(24), 100);
+        return new IdempotencyFilter(idempotencyKeyStore, new ObjectMapper(), 1024);
+    }
+
+    private static MockServerWebExchange post(String key, String body) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/customers")
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key)
+                .body(body));
+    }
+
+    private static void execute(String sql) throws Exception {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static String query(String sql) throws Exception {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(sql)) {
+            result.next();
+            return result.getString(1);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.customers_management.controller;
+
+import com.example.customers_management.infrastructure.dto.CustomerResponse;
+import com.example.customers_management.model.CursorPage;
+import com.example.customers_management.service.BulkCustomersService;
+import com.example.customers_management.service.CustomerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerControllerTest {
+
+    @Mock
+    private CustomerService customerService;
+
+    @Mock
+    private BulkCustomersService bulkCustomersService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        webTestClient = WebTestClient.bindToController(new CustomerController(customerService, bulkCustomersService, 2)).build();
+        List<CustomerResponse> customers = IntStream.rangeClosed(1, 3)
+                .mapToObj(id -> {
+                    CustomerResponse customer = new CustomerResponse();
+                    customer.setId((long) id);
+                    customer.setName("Customer " + id);
+                    return customer;
+                })
+                .toList();
+        when(customerService.findPage(null, 3)).thenReturn(Mono.just(new CursorPage<>(customers, "next")));
+    }
+
+    @Test
+    void getAllCustomers_StreamsOneCustomerPerLineAsNdjson() {
+        String body = webTestClient.get().uri("/api/v1/customers?limit=3")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectHeader().valueEquals(CursorPage.NEXT_CURSOR_HEADER, "next")
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        List<String> lines = body.lines().toList();
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(2).startsWith("{") && lines.get(2).contains("\"name\":\"Customer 3\""), lines.get(2));
+    }
+
+    @Test
+    void getAllCustomers_StreamsOneCustomerPerServerSentEvent() {
+        List<CustomerResponse> customers = webTestClient.get().uri("/api/v1/customers?limit=3")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .expectHeader().valueEquals(CursorPage.NEXT_CURSOR_HEADER, "next")
+                .returnResult(CustomerResponse.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertEquals(List.of("Customer 1", "Customer 2", "Customer 3"), customers.stream().map(CustomerResponse::getName).toList());
+    }
+}
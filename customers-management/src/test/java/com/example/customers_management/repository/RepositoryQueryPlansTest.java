@@ -0,0 +1,133 @@
+package com.example.customers_management.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.data.r2dbc.repository.Query;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks through {@code EXPLAIN} that every repository query is answered from an index, against
+ * the schema built by the migrations. The tables are empty, so sequential and bitmap scans are
+ * disabled to make the planner show the plan it would pick on large tables. Queries with a limit
+ * must also read their rows in index order instead of sorting them.
+ */
+class RepositoryQueryPlansTest {
+
+    private static final Pattern PARAMETER = Pattern.compile("(?<![:\\w]):(\\w+)");
+    private static final Pattern LIMIT = Pattern.compile("\\blimit\\b", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Literal values the named parameters are replaced with.
+     */
+    private static final Map<String, String> PARAMETERS = Map.ofEntries(
+            Map.entry("afterId", "1"),
+            Map.entry("before", "timestamp '2024-06-01 00:00:00'"),
+            Map.entry("body", "decode('7b7d', 'hex')"),
+            Map.entry("contentType", "'application/json'"),
+            Map.entry("createdAt", "timestamp '2024-06-01 00:00:00'"),
+            Map.entry("identification", "'0912345678'"),
+            Map.entry("identifications", "array['0912345678', '0987654321']::varchar[]"),
+            Map.entry("key", "'POST /api/v1/customers 1'"),
+            Map.entry("limit", "100"),
+            Map.entry("requestHash", "decode('00', 'hex')"),
+            Map.entry("status", "201"));
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static EmbeddedPostgres postgres;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        postgres.close();
+    }
+
+    static Stream<Arguments> queries() {
+        List<Arguments> queries = new ArrayList<>();
+        for (Class<?> repository : List.of(CustomerRepository.class, CustomerOutboxRepository.class, IdempotencyKeyRepository.class)) {
+            for (Method method : repository.getDeclaredMethods()) {
+                Query query = method.getAnnotation(Query.class);
+                if (query != null) {
+                    queries.add(Arguments.of(repository.getSimpleName() + "." + method.getName(), query.value()));
+                }
+            }
+        }
+
+        // Derived queries, as Spring Data writes them
+        queries.add(Arguments.of("CustomerRepository.findByIdentification", "select * from customer where identification = :identification"));
+        return queries.stream();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("queries")
+    void query_UsesAnIndex(String name, String sql) throws Exception {
+        JsonNode plan = explain(sql);
+        List<String> nodes = new ArrayList<>();
+        collectNodes(plan, nodes);
+
+        assertFalse(nodes.stream().anyMatch(node -> node.startsWith("Seq Scan")), () -> name + " scans a whole table:\n" + plan.toPrettyString());
+        if (LIMIT.matcher(sql).find()) {
+            assertFalse(nodes.contains("Sort"), () -> name + " sorts the rows it limits:\n" + plan.toPrettyString());
+        }
+    }
+
+    private static JsonNode explain(String sql) throws Exception {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("set enable_seqscan = off");
+            statement.execute("set enable_bitmapscan = off");
+            try (ResultSet result = statement.executeQuery("explain (format json) " + bind(sql))) {
+                result.next();
+                return objectMapper.readTree(result.getString(1)).get(0).get("Plan");
+            }
+        }
+    }
+
+    private static String bind(String sql) {
+        Matcher matcher = PARAMETER.matcher(sql);
+        StringBuilder bound = new StringBuilder();
+        while (matcher.find()) {
+            String value = PARAMETERS.get(matcher.group(1));
+            if (value == null) {
+                fail("No value for the parameter :" + matcher.group(1) + ", add one to PARAMETERS");
+            }
+            matcher.appendReplacement(bound, Matcher.quoteReplacement(value));
+        }
+        return matcher.appendTail(bound).toString();
+    }
+
+    private static void collectNodes(JsonNode plan, List<String> nodes) {
+        nodes.add(plan.path("Node Type").asText() + (plan.has("Relation Name") ? " on " + plan.get("Relation Name").asText() : ""));
+        for (JsonNode child : plan.path("Plans")) {
+            collectNodes(child, nodes);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.customers_management.service;
+
+import com.example.customers_management.configuration.observation.CustomerEventTracing;
+import com.example.customers_management.infrastructure.dto.BulkCustomerRequest;
+import com.example.customers_management.infrastructure.dto.BulkCustomerResult;
+import com.example.customers_management.model.Customer;
+import com.example.customers_management.repository.CustomerRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BulkCustomersServiceTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    @Spy
+    private CustomerEventTracing customerEventTracing = new CustomerEventTracing(Tracer.NOOP, Propagator.NOOP);
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    private BulkCustomersService bulkCustomersService;
+
+    private final AtomicLong customerIds = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionalOperator.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(customerRepository.findExistingIdentifications(any())).thenReturn(Flux.empty());
+        lenient().when(customerRepository.insertAllWithCreatedEvents(anyList(), any())).thenAnswer(invocation -> {
+            List<Customer> customers = invocation.getArgument(0);
+            customers.forEach(customer -> customer.setId(customerIds.incrementAndGet()));
+            return Flux.fromIterable(customers);
+        });
+
+        bulkCustomersService = new BulkCustomersService(customerRepository, transactionalOperator, customerEventTracing, objectMapper, 1000);
+    }
+
+    @Test
+    void importCustomers_RoundTripsFollowChunksNotLines() {
+        int lines = 2_500;
+        Flux<String> requests = Flux.fromStream(IntStream.range(0, lines)
+                .mapToObj(i -> line(request("ID" + (10_000 + i)))));
+
+        StepVerifier.create(bulkCustomersService.importCustomers(requests))
+                .expectNextCount(lines)
+                .verifyComplete();
+
+        verify(customerRepository, times(3)).findExistingIdentifications(any());
+        verify(customerRepository, times(3)).insertAllWithCreatedEvents(anyList(), any());
+    }
+
+    @Test
+    void importCustomers_ExistingRepeatedAndInvalidLinesAreRejected() {
+        when(customerRepository.findExistingIdentifications(any())).thenReturn(Flux.just("12345"));
+        BulkCustomerRequest invalid = request("67890");
+        invalid.setName("Jo");
+
+        StepVerifier.create(bulkCustomersService.importCustomers(Flux.just(
+                        line(request("12345")),
+                        line(invalid),
+                        line(request("54321")),
+                        line(request("54321")))))
+                .expectNextMatches(result -> result.getLine() == 2L && result.getMessage().equals("name size must be between 3 and 100"))
+                .expectNextMatches(result -> result.getLine() == 4L && result.getStatus() == BulkCustomerResult.StatusEnum.REJECTED)
+                .expectNextMatches(result -> result.getLine() == 1L && result.getMessage().equals("Customer with identification 12345 already exists"))
+                .expectNextMatches(result -> result.getLine() == 3L
+                        && result.getStatus() == BulkCustomerResult.StatusEnum.CREATED
+                        && result.getCustomerId().equals(1L))
+                .verifyComplete();
+
+        verify(customerRepository).insertAllWithCreatedEvents(argThat(customers -> customers.size() == 1), any());
+    }
+
+    @Test
+    void importCustomers_FailedInsertRejectsTheChunk() {
+        when(customerRepository.insertAllWithCreatedEvents(anyList(), any())).thenReturn(Flux.error(new DuplicateKeyException("duplicate key value violates unique constraint \"customer_identification_key\"")));
+
+        StepVerifier.create(bulkCustomersService.importCustomers(Flux.just(line(request("12345")), line(request("54321")))))
+                .expectNextMatches(result -> result.getStatus() == BulkCustomerResult.StatusEnum.REJECTED
+                        && result.getMessage().equals("An identification of the chunk was taken meanwhile, retry its lines"))
+                .expectNextMatches(result -> result.getStatus() == BulkCustomerResult.StatusEnum.REJECTED && result.getLine() == 2L)
+                .verifyComplete();
+    }
+
+    @Test
+    void importCustomers_OnlyInvalidLinesSkipTheDatabase() {
+        BulkCustomerRequest invalid = request("12345");
+        invalid.setGender(null);
+
+        StepVerifier.create(bulkCustomersService.importCustomers(Flux.just(line(invalid))))
+                .expectNextMatches(result -> result.getMessage().equals("gender is required"))
+                .verifyComplete();
+
+        verify(customerRepository, never()).findExistingIdentifications(any());
+    }
+
+    @Test
+    void importCustomers_MalformedLinesAreRejectedOnTheirOwn() {
+        StepVerifier.create(bulkCustomersService.importCustomers(Flux.just(
+                        "{\"name\":\"John Doe\",",
+                        "",
+                        "{\"name\":\"John Doe\",\"gender\":\"UNKNOWN\",\"identification\":\"12345\"}",
+                        line(request("54321")))))
+                .expectNextMatches(result -> result.getLine() == 1L && result.getMessage().equals("Line is not valid JSON"))
+                .expectNextMatches(result -> result.getLine() == 3L && result.getMessage().equals("gender has an invalid value"))
+                .expectNextMatches(result -> result.getLine() == 4L && result.getStatus() == BulkCustomerResult.StatusEnum.CREATED)
+                .verifyComplete();
+    }
+
+    private String line(BulkCustomerRequest request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private BulkCustomerRequest request(String identification) {
+        return new BulkCustomerRequest()
+                .name("John Doe")
+                .gender(BulkCustomerRequest.GenderEnum.MALE)
+                .identification(identification)
+                .address("Main Street 1")
+                .phone("0999999999")
+                .password("1234")
+                .status(true);
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.customers_management.service;
+
+import com.example.customers_management.configuration.kafka.CustomerEventCodec;
+import com.example.customers_management.configuration.kafka.CustomerEventSerializer;
+import com.example.customers_management.configuration.observation.CustomerEventTracing;
+import com.example.customers_management.model.CustomerEvent;
+import com.example.customers_management.model.CustomerEventType;
+import com.example.customers_management.model.CustomerOutboxEvent;
+import com.example.customers_management.repository.CustomerOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelPropagator;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerOutboxRelayTest {
+
+    private static final String TOPIC = "customers";
+    private static final int BATCH_SIZE = 2;
+
+    @Mock
+    private CustomerOutboxRepository customerOutboxRepository;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InMemorySpanExporter spanExporter = InMemorySpanExporter.create();
+    private MockProducer<String, CustomerEvent> mockProducer;
+    private CustomerOutboxRelay customerOutboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionalOperator.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(customerOutboxRepository.deleteAllById(anyIterable())).thenReturn(Mono.empty());
+    }
+
+    private void createRelay(boolean autoComplete) {
+        // The template closes non-transactional producers after each send; keep the history.
+        mockProducer = new MockProducer<>(autoComplete, new StringSerializer(), new CustomerEventSerializer()) {
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+        KafkaTemplate<String, CustomerEvent> kafkaTemplate = new KafkaTemplate<>(new MockProducerFactory<>(() -> mockProducer));
+        customerOutboxRelay = new CustomerOutboxRelay(customerOutboxRepository, kafkaTemplate, transactionalOperator, customerEventTracing(), meterRegistry, TOPIC, BATCH_SIZE);
+    }
+
+    private CustomerEventTracing customerEventTracing() {
+        io.opentelemetry.api.trace.Tracer otelTracer = SdkTracerProvider.builder()
+                .setSampler(Sampler.alwaysOn())
+                .addSpanProcessor(SimpleSpanProcessor.create(spanExporter))
+                .build()
+                .get("test");
+        ContextPropagators propagators = ContextPropagators.create(W3CTraceContextPropagator.getInstance());
+        return new CustomerEventTracing(
+                new OtelTracer(otelTracer, new OtelCurrentTraceContext(), event -> {
+                }),
+                new OtelPropagator(propagators, otelTracer));
+    }
+
+    @Test
+    void drain_PublishesEveryBatchAndDeletesIt() {
+        createRelay(true);
+        List<CustomerOutboxEvent> events = LongStream.rangeClosed(1, 3)
+                .mapToObj(id -> event(id, CustomerEventType.CREATED))
+                .toList();
+        when(customerOutboxRepository.findNextBatch(BATCH_SIZE))
+                .thenReturn(Flux.fromIterable(events.subList(0, 2)))
+                .thenReturn(Flux.fromIterable(events.subList(2, 3)));
+
+        StepVerifier.create(customerOutboxRelay.drain())
+                .expectNext(3)
+                .verifyComplete();
+
+        List<ProducerRecord<String, CustomerEvent>> history = mockProducer.history();
+        assertEquals(3, history.size());
+        assertEquals(TOPIC, history.get(0).topic());
+        assertEquals("1", history.get(0).key());
+        assertEquals(1L, history.get(0).value().getVersion());
+        assertEquals("Customer 1", history.get(0).value().getCustomerName());
+        assertEquals(CustomerEventType.CREATED, CustomerEventCodec.decode(new CustomerEventSerializer().serialize(TOPIC, history.get(0).value())).getType());
+        assertEquals("CREATED", new String(history.get(0).headers()
+                .lastHeader(CustomerOutboxRelay.EVENT_TYPE_HEADER).value(), StandardCharsets.UTF_8));
+        verify(customerOutboxRepository).deleteAllById(List.of(1L, 2L));
+        verify(customerOutboxRepository).deleteAllById(List.of(3L));
+        assertEquals(3, meterRegistry.get("customer.outbox.delay").timer().count());
+    }
+
+    @Test
+    void drain_PublicationContinuesTheTraceOfTheChange() {
+        createRelay(true);
+        CustomerOutboxEvent traced = event(1L, CustomerEventType.UPDATED).toBuilder()
+                .traceParent("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01")
+                .build();
+        when(customerOutboxRepository.findNextBatch(BATCH_SIZE))
+                .thenReturn(Flux.just(traced, event(2L, CustomerEventType.UPDATED)))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(customerOutboxRelay.drain())
+                .expectNext(2)
+                .verifyComplete();
+
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        assertEquals(1, spans.size());
+        SpanData span = spans.get(0);
+        assertEquals("0af7651916cd43dd8448eb211c80319c", span.getTraceId());
+        assertEquals("b7ad6b7169203331", span.getParentSpanId());
+        assertEquals(SpanKind.PRODUCER, span.getKind());
+
+        String traceParent = new String(mockProducer.history().get(0).headers().lastHeader("traceparent").value(), StandardCharsets.UTF_8);
+        assertEquals("00-0af7651916cd43dd8448eb211c80319c-" + span.getSpanId() + "-01", traceParent);
+        assertNotEquals(traced.getTraceParent(), traceParent);
+        assertNull(mockProducer.history().get(1).headers().lastHeader("traceparent"));
+    }
+
+    @Test
+    void drain_EmptyOutboxPublishesNothing() {
+        createRelay(true);
+        when(customerOutboxRepository.findNextBatch(BATCH_SIZE)).thenReturn(Flux.empty());
+
+        StepVerifier.create(customerOutboxRelay.drain())
+                .expectNext(0)
+                .verifyComplete();
+
+        assertEquals(0, mockProducer.history().size());
+        verify(customerOutboxRepository, never()).deleteAllById(anyIterable());
+    }
+
+    @Test
+    void drain_FailedSendKeepsBatchInOutbox() {
+        createRelay(false);
+        when(customerOutboxRepository.findNextBatch(BATCH_SIZE))
+                .thenReturn(Flux.just(event(1L, CustomerEventType.UPDATED)));
+
+        StepVerifier.create(customerOutboxRelay.drain())
+                .then(() -> mockProducer.errorNext(new RuntimeException("Broker unavailable")))
+                .expectError()
+                .verify();
+
+        verify(customerOutboxRepository, never()).deleteAllById(anyIterable());
+        assertEquals(0, meterRegistry.get("customer.outbox.delay").timer().count());
+    }
+
+    private CustomerOutboxEvent event(Long id, CustomerEventType eventType) {
+        return CustomerOutboxEvent.builder()
+                .id(id)
+                .customerId(id)
+                .customerName("Customer " + id)
+                .eventType(eventType)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -1,25 +1,37 @@
 package com.example.customers_management.service;
 
+import com.example.customers_management.configuration.observation.CustomerEventTracing;
 import com.example.customers_management.exception.custom.BusinessException;
 import com.example.customers_management.infrastructure.dto.CustomerRequest;
+import com.example.customers_management.infrastructure.dto.CustomerResponse;
+import com.example.customers_management.model.CursorPage;
 import com.example.customers_management.model.Customer;
+import com.example.customers_management.model.CustomerEventType;
+import com.example.customers_management.model.CustomerOutboxEvent;
+import com.example.customers_management.repository.CustomerOutboxRepository;
 import com.example.customers_management.repository.CustomerRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,12 +41,14 @@ class CustomerServiceTest {
     private CustomerRepository customerRepository;
 
     @Mock
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private CustomerOutboxRepository customerOutboxRepository;
 
     @Mock
-    private ObjectMapper objectMapper;
+    private TransactionalOperator transactionalOperator;
+
+    @Spy
+    private CustomerEventTracing customerEventTracing = new CustomerEventTracing(Tracer.NOOP, Propagator.NOOP);
 
-    @InjectMocks
     private CustomerService customerService;
 
     private Customer customer;
@@ -50,6 +64,9 @@ class CustomerServiceTest {
         customerRequest = new CustomerRequest();
         customerRequest.setName("John Doe");
         customerRequest.setIdentification("12345");
+
+        customerService = new CustomerService(customerRepository, customerOutboxRepository, transactionalOperator, customerEventTracing, 2);
+        lenient().when(transactionalOperator.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(invocation -> invocation.getArgument(0));
     }
 
     @Test
@@ -71,14 +88,35 @@ class CustomerServiceTest {
     }
 
     @Test
-    void findAll_Success() {
-        when(customerRepository.findAll()).thenReturn(Flux.just(customer));
+    void findPage_Success() {
+        when(customerRepository.findPageAfter(0L, 3)).thenReturn(Flux.just(customer));
 
-        StepVerifier.create(customerService.findAll())
-                .expectNextCount(1)
+        StepVerifier.create(customerService.findPage(null, null))
+                .expectNextMatches(page -> page.getItems().size() == 1 && page.getNextCursor() == null)
                 .verifyComplete();
     }
 
+    @Test
+    void findPage_NextPageStartsAfterLastId() {
+        Customer second = customer.toBuilder().id(2L).build();
+        when(customerRepository.findPageAfter(0L, 2)).thenReturn(Flux.just(customer, second));
+        when(customerRepository.findPageAfter(1L, 2)).thenReturn(Flux.just(second));
+
+        CursorPage<CustomerResponse> firstPage = customerService.findPage(null, 1).block();
+
+        assertEquals(1L, firstPage.getItems().get(0).getId());
+        StepVerifier.create(customerService.findPage(firstPage.getNextCursor(), 1))
+                .expectNextMatches(page -> page.getItems().get(0).getId().equals(2L) && page.getNextCursor() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    void findPage_InvalidCursor() {
+        StepVerifier.create(customerService.findPage("%%%", null))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
     @Test
     void save_Conflict() {
         when(customerRepository.findByIdentification(anyString())).thenReturn(Mono.just(customer));
@@ -89,14 +127,30 @@ class CustomerServiceTest {
                 .verify();
     }
 
+    @Test
+    void save_WritesCreatedEventToOutbox() {
+        when(customerRepository.findByIdentification(anyString())).thenReturn(Mono.empty());
+        when(customerRepository.save(any(Customer.class))).thenReturn(Mono.just(customer));
+        when(customerOutboxRepository.save(any(CustomerOutboxEvent.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(customerService.save(customerRequest))
+                .expectNextMatches(response -> response.getId().equals(1L))
+                .verifyComplete();
+
+        assertOutboxEvent(CustomerEventType.CREATED);
+    }
+
     @Test
     void update_Success() {
         when(customerRepository.findById(1L)).thenReturn(Mono.just(customer));
         when(customerRepository.save(any(Customer.class))).thenReturn(Mono.just(customer));
+        when(customerOutboxRepository.save(any(CustomerOutboxEvent.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
 
         StepVerifier.create(customerService.update(1L, customerRequest))
                 .expectNextMatches(response -> response.getId().equals(1L))
                 .verifyComplete();
+
+        assertOutboxEvent(CustomerEventType.UPDATED);
     }
 
     @Test
@@ -112,9 +166,12 @@ class CustomerServiceTest {
     void deleteById_Success() {
         when(customerRepository.findById(1L)).thenReturn(Mono.just(customer));
         when(customerRepository.deleteById(1L)).thenReturn(Mono.empty());
+        when(customerOutboxRepository.save(any(CustomerOutboxEvent.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
 
         StepVerifier.create(customerService.deleteById(1L))
                 .verifyComplete();
+
+        assertOutboxEvent(CustomerEventType.DELETED);
     }
 
     @Test
@@ -125,4 +182,12 @@ class CustomerServiceTest {
                 .expectError(BusinessException.class)
                 .verify();
     }
+
+    private void assertOutboxEvent(CustomerEventType eventType) {
+        ArgumentCaptor<CustomerOutboxEvent> captor = ArgumentCaptor.forClass(CustomerOutboxEvent.class);
+        verify(customerOutboxRepository).save(captor.capture());
+        assertEquals(1L, captor.getValue().getCustomerId());
+        assertEquals("John Doe", captor.getValue().getCustomerName());
+        assertEquals(eventType, captor.getValue().getEventType());
+    }
 }
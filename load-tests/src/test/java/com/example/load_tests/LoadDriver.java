@@ -0,0 +1,121 @@
+package com.example.load_tests;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed loop load generator: a fixed number of workers, each sending its next request as soon as
+ * the previous one completes. Requests that complete during the warmup are discarded; the
+ * latencies of the rest are recorded per operation in microseconds.
+ */
+final class LoadDriver {
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final HttpClient client;
+
+    LoadDriver(HttpClient client) {
+        this.client = client;
+    }
+
+    LoadReport run(List<Operation> operations, int concurrency, Duration warmup, Duration duration) throws InterruptedException {
+        int totalWeight = operations.stream().mapToInt(Operation::weight).sum();
+        List<Recorder> recorders = operations.stream().map(Recorder::new).toList();
+
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long measureUntil = measureFrom + duration.toNanos();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.submit(() -> {
+                    while (System.nanoTime() < measureUntil) {
+                        pick(recorders, totalWeight).send(client, measureFrom, measureUntil);
+                    }
+                });
+            }
+            workers.shutdown();
+            if (!workers.awaitTermination(duration.plus(warmup).toMinutes() + 2, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Workers did not stop");
+            }
+        }
+
+        Map<String, LoadReport.EndpointStats> endpoints = new TreeMap<>();
+        for (Recorder recorder : recorders) {
+            endpoints.put(recorder.operation.name(), recorder.stats(duration));
+        }
+        return new LoadReport(duration.toSeconds(), concurrency, endpoints);
+    }
+
+    private static Recorder pick(List<Recorder> recorders, int totalWeight) {
+        int ticket = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Recorder recorder : recorders) {
+            ticket -= recorder.operation.weight();
+            if (ticket < 0) {
+                return recorder;
+            }
+        }
+        throw new IllegalStateException("Weights changed during the run");
+    }
+
+    private static final class Recorder {
+
+        private final Operation operation;
+        private final Histogram latencies = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+        private final LongAdder errors = new LongAdder();
+
+        private Recorder(Operation operation) {
+            this.operation = operation;
+        }
+
+        private void send(HttpClient client, long measureFrom, long measureUntil) {
+            HttpRequest request = operation.request().get();
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() / 100 == 2;
+            } catch (IOException e) {
+                ok = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long end = System.nanoTime();
+            if (start < measureFrom || end > measureUntil) {
+                return;
+            }
+            if (ok) {
+                latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(end - start), HIGHEST_LATENCY_MICROS));
+            } else {
+                errors.increment();
+            }
+        }
+
+        private LoadReport.EndpointStats stats(Duration duration) {
+            long requests = latencies.getTotalCount();
+            return new LoadReport.EndpointStats(
+                    requests,
+                    errors.sum(),
+                    requests / (duration.toMillis() / 1000.0),
+                    millis(50),
+                    millis(99),
+                    millis(99.9));
+        }
+
+        private double millis(double percentile) {
+            return latencies.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.load_tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a run: throughput and latency percentiles of the successful requests of each
+ * endpoint, with the errors counted apart. The stored baseline is a report of the same shape.
+ */
+record LoadReport(long durationSeconds, int concurrency, Map<String, EndpointStats> endpoints) {
+
+    /**
+     * Tolerated increase of the error rate over the baseline, in percentage points.
+     */
+    private static final double ERROR_RATE_TOLERANCE = 0.01;
+
+    record EndpointStats(long requests, long errors, double throughput, double p50Millis, double p99Millis, double p999Millis) {
+
+        double errorRate() {
+            long total = requests + errors;
+            return total == 0 ? 0 : (double) errors / total;
+        }
+    }
+
+    /**
+     * Lists the endpoints whose throughput dropped, whose p99 latency rose or whose error rate rose
+     * beyond the tolerances. The tolerances are fractions of the baseline values.
+     */
+    List<String> regressionsAgainst(LoadReport baseline, double throughputTolerance, double latencyTolerance) {
+        if (baseline.concurrency != concurrency) {
+            throw new IllegalStateException("The baseline was recorded with " + baseline.concurrency + " workers and this run used "
+                    + concurrency + ", run with -Dload.concurrency=" + baseline.concurrency + " or update the baseline");
+        }
+
+        List<String> regressions = new ArrayList<>();
+        baseline.endpoints.forEach((endpoint, expected) -> {
+            EndpointStats actual = endpoints.get(endpoint);
+            if (actual == null) {
+                regressions.add(endpoint + ": not measured");
+                return;
+            }
+            if (actual.throughput() < expected.throughput() * (1 - throughputTolerance)) {
+                regressions.add(String.format("%s: throughput %.1f req/s is below the baseline %.1f req/s", endpoint, actual.throughput(), expected.throughput()));
+            }
+            if (actual.p99Millis() > expected.p99Millis() * (1 + latencyTolerance)) {
+                regressions.add(String.format("%s: p99 %.2f ms is above the baseline %.2f ms", endpoint, actual.p99Millis(), expected.p99Millis()));
+            }
+            if (actual.errorRate() > expected.errorRate() + ERROR_RATE_TOLERANCE) {
+                regressions.add(String.format("%s: error rate %.2f%% is above the baseline %.2f%%", endpoint, actual.errorRate() * 100, expected.errorRate() * 100));
+            }
+        });
+        return regressions;
+    }
+
+    String toTable() {
+        StringBuilder table = new StringBuilder(String.format("%-32s %10s %8s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms"));
+        endpoints.forEach((endpoint, stats) -> table.append(String.format("%-32s %10d %8d %10.1f %10.2f %10.2f %10.2f%n",
+                endpoint, stats.requests(), stats.errors(), stats.throughput(), stats.p50Millis(), stats.p99Millis(), stats.p999Millis())));
+        return table.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.load_tests;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of a load test run, read from the system properties that the failsafe plugin passes
+ * on from the pom. Every one of them can be overridden on the command line, e.g.
+ * {@code mvn verify -Dload.duration=PT5M -Dload.concurrency=64}.
+ */
+record LoadTestSettings(Path customersJar,
+                        Path accountsJar,
+                        Path report,
+                        Path logs,
+                        Duration warmup,
+                        Duration duration,
+                        int concurrency,
+                        Path baseline,
+                        boolean updateBaseline,
+                        double throughputTolerance,
+                        double latencyTolerance) {
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                path("load.customers-jar"),
+                path("load.accounts-jar"),
+                path("load.report"),
+                path("load.logs"),
+                Duration.parse(property("load.warmup")),
+                Duration.parse(property("load.duration")),
+                Integer.parseInt(property("load.concurrency")),
+                path("load.baseline"),
+                Boolean.parseBoolean(property("load.update-baseline")),
+                Double.parseDouble(property("load.tolerance.throughput")),
+                Double.parseDouble(property("load.tolerance.latency")));
+    }
+
+    private static Path path(String name) {
+        return Path.of(property(name)).toAbsolutePath().normalize();
+    }
+
+    private static String property(String name) {
+        String value = System.getProperty(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalStateException("System property " + name + " is not set, run the load test with mvn verify");
+        }
+        return value;
+    }
+}
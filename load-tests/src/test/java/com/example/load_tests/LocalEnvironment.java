@@ -0,0 +1,148 @@
+package com.example.load_tests;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.common.ConsumerGroupState;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.http.HttpClient;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Both services running against local stand-ins of their infrastructure: one embedded Postgres
+ * server holding the two databases, which the services migrate when they start, and an embedded
+ * single node Kafka broker. Closing it stops everything in reverse order.
+ */
+final class LocalEnvironment implements AutoCloseable {
+
+    static final String TOPIC = "customer-events";
+    static final String CONSUMER_GROUP = "load-tests";
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+    private ServiceProcess customers;
+    private ServiceProcess accounts;
+
+    private LocalEnvironment() {
+    }
+
+    static LocalEnvironment start(LoadTestSettings settings, HttpClient client) throws Exception {
+        LocalEnvironment environment = new LocalEnvironment();
+        try {
+            environment.startInfrastructureAndServices(settings, client);
+            return environment;
+        } catch (Exception e) {
+            environment.close();
+            throw e;
+        }
+    }
+
+    ServiceProcess customers() {
+        return customers;
+    }
+
+    ServiceProcess accounts() {
+        return accounts;
+    }
+
+    private void startInfrastructureAndServices(LoadTestSettings settings, HttpClient client) throws Exception {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        resources.add(postgres);
+        createDatabase(postgres, "customers_db");
+        createDatabase(postgres, "accounts_db");
+
+        EmbeddedKafkaKraftBroker kafka = new EmbeddedKafkaKraftBroker(1, 1, TOPIC);
+        kafka.afterPropertiesSet();
+        resources.add(kafka::destroy);
+        String brokers = kafka.getBrokersAsString();
+
+        // Accounts first, so that its consumer is assigned the topic before any customer event
+        // is published; the consumer starts from the latest offset.
+        accounts = ServiceProcess.start("accounts-management", settings.accountsJar(), freePort(), Map.of(
+                "SPRING_R2DBC_URL", "r2dbc:postgresql://localhost:" + postgres.getPort() + "/accounts_db",
+                "SPRING_FLYWAY_URL", "jdbc:postgresql://localhost:" + postgres.getPort() + "/accounts_db",
+                "SPRING_R2DBC_USERNAME", "postgres",
+                "SPRING_R2DBC_PASSWORD", "postgres",
+                "SPRING_KAFKA_BOOTSTRAP_SERVERS", brokers,
+                "SPRING_KAFKA_CONSUMER_GROUP_ID", CONSUMER_GROUP,
+                "SPRING_KAFKA_TOPIC", TOPIC,
+                "MANAGEMENT_HEALTH_RABBIT_ENABLED", "false"), settings.logs());
+        resources.add(accounts);
+        accounts.awaitHealthy(client, STARTUP_TIMEOUT);
+        awaitConsumerAssigned(brokers);
+
+        customers = ServiceProcess.start("customers-management", settings.customersJar(), freePort(), Map.of(
+                "SPRING_R2DBC_URL", "r2dbc:postgresql://localhost:" + postgres.getPort() + "/customers_db",
+                "SPRING_FLYWAY_URL", "jdbc:postgresql://localhost:" + postgres.getPort() + "/customers_db",
+                "SPRING_R2DBC_USERNAME", "postgres",
+                "SPRING_R2DBC_PASSWORD", "postgres",
+                "SPRING_KAFKA_PRODUCER_BOOTSTRAP_SERVERS", brokers,
+                "SPRING_KAFKA_ADMIN_PROPERTIES_BOOTSTRAP_SERVERS", brokers,
+                "SPRING_KAFKA_TOPIC", TOPIC,
+                "MANAGEMENT_HEALTH_RABBIT_ENABLED", "false"), settings.logs());
+        resources.add(customers);
+        customers.awaitHealthy(client, STARTUP_TIMEOUT);
+    }
+
+    private static void createDatabase(EmbeddedPostgres postgres, String database) throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create database " + database);
+        }
+    }
+
+    private static void awaitConsumerAssigned(String brokers) throws Exception {
+        try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, brokers))) {
+            long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                ConsumerGroupDescription group = admin.describeConsumerGroups(List.of(CONSUMER_GROUP))
+                        .describedGroups().get(CONSUMER_GROUP).get();
+                if (group.state() == ConsumerGroupState.STABLE
+                        && group.members().stream().anyMatch(member -> !member.assignment().topicPartitions().isEmpty())) {
+                    return;
+                }
+                Thread.sleep(500);
+            }
+        }
+        throw new IllegalStateException("Consumer group " + CONSUMER_GROUP + " was not assigned " + TOPIC + " after " + STARTUP_TIMEOUT);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        Collections.reverse(resources);
+        Exception failure = null;
+        for (AutoCloseable resource : resources) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        resources.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.load_tests;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The mix of requests of a run: customer and account creation, deposits concentrated on a few hot
+ * accounts, and movement reports. Reports are requested for customers whose movements are all
+ * written while seeding, so their cost does not grow with the deposits of the run.
+ */
+final class MixedWorkload {
+
+    private static final int HOT_ACCOUNTS = 4;
+    private static final int REPORT_CUSTOMERS = 16;
+    private static final int MOVEMENTS_PER_REPORT = 30;
+    private static final Duration SNAPSHOT_TIMEOUT = Duration.ofSeconds(60);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final LocalEnvironment environment;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong identifications = new AtomicLong();
+    private final AtomicLong accountNumbers = new AtomicLong();
+    private final List<Long> hotAccounts = new ArrayList<>();
+    private final List<Long> accountCustomers = new ArrayList<>();
+    private final List<Long> reportCustomers = new ArrayList<>();
+
+    MixedWorkload(HttpClient client, LocalEnvironment environment) {
+        this.client = client;
+        this.environment = environment;
+    }
+
+    /**
+     * Request weights, as a percentage of all the requests.
+     */
+    List<Operation> operations() {
+        return List.of(
+                new Operation("POST /api/v1/customers", 15, this::createCustomer),
+                new Operation("POST /api/v1/accounts", 15, this::createAccount),
+                new Operation("POST /api/v1/movements", 60, this::depositOnHotAccount),
+                new Operation("GET /api/v1/movements/reports", 10, this::report));
+    }
+
+    /**
+     * Creates the customers and accounts the operations refer to. Each account is created once
+     * the customer snapshot has reached the accounts service through Kafka.
+     */
+    void seed() throws Exception {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < HOT_ACCOUNTS; i++) {
+            long customerId = send(createCustomer());
+            accountCustomers.add(customerId);
+            hotAccounts.add(awaitAccount(customerId));
+        }
+        for (int i = 0; i < REPORT_CUSTOMERS; i++) {
+            long customerId = send(createCustomer());
+            accountCustomers.add(customerId);
+            reportCustomers.add(customerId);
+            long accountId = awaitAccount(customerId);
+            for (int day = 0; day < MOVEMENTS_PER_REPORT; day++) {
+                send(movement(accountId, today.minusDays(day)));
+            }
+        }
+    }
+
+    private HttpRequest createCustomer() {
+        return post(environment.customers().uri("/api/v1/customers"), Map.of(
+                "name", "Load Test",
+                "gender", "OTHER",
+                "identification", String.format("LT%08d", identifications.incrementAndGet()),
+                "address", "Main Street 1",
+                "phone", "0999999999",
+                "password", "1234",
+                "status", true));
+    }
+
+    private HttpRequest createAccount() {
+        return createAccount(accountCustomers.get(ThreadLocalRandom.current().nextInt(accountCustomers.size())));
+    }
+
+    private HttpRequest createAccount(long customerId) {
+        return post(environment.accounts().uri("/api/v1/accounts"), Map.of(
+                "accountNumber", String.format("%010d", accountNumbers.incrementAndGet()),
+                "accountType", ThreadLocalRandom.current().nextBoolean() ? "SAVINGS" : "CHECKING",
+                "initialBalance", 1000,
+                "status", true,
+                "customerId", customerId));
+    }
+
+    private HttpRequest depositOnHotAccount() {
+        return movement(hotAccounts.get(ThreadLocalRandom.current().nextInt(hotAccounts.size())), LocalDate.now());
+    }
+
+    private HttpRequest movement(long accountId, LocalDate date) {
+        return post(environment.accounts().uri("/api/v1/movements"), Map.of(
+                "type", "DEPOSIT",
+                "value", 10,
+                "accountId", accountId,
+                "date", date.toString()));
+    }
+
+    private HttpRequest report() {
+        LocalDate today = LocalDate.now();
+        long customerId = reportCustomers.get(ThreadLocalRandom.current().nextInt(reportCustomers.size()));
+        return HttpRequest.newBuilder(environment.accounts().uri("/api/v1/movements/reports?startDate=" + today.minusDays(MOVEMENTS_PER_REPORT)
+                        + "&endDate=" + today + "&customerId=" + customerId))
+                .header("Accept", "application/json")
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+    }
+
+    private long awaitAccount(long customerId) throws Exception {
+        long deadline = System.nanoTime() + SNAPSHOT_TIMEOUT.toNanos();
+        while (true) {
+            HttpResponse<String> response = client.send(createAccount(customerId), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() / 100 == 2) {
+                return id(response);
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Customer " + customerId + " did not reach the accounts service: "
+                        + response.statusCode() + " " + response.body());
+            }
+            Thread.sleep(200);
+        }
+    }
+
+    private long send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " failed while seeding: "
+                    + response.statusCode() + " " + response.body());
+        }
+        return id(response);
+    }
+
+    private long id(HttpResponse<String> response) throws JsonProcessingException {
+        return objectMapper.readTree(response.body()).path("id").asLong();
+    }
+
+    private HttpRequest post(URI uri, Map<String, Object> body) {
+        try {
+            return HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .header("Accept", "application/json")
+                    .timeout(REQUEST_TIMEOUT)
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.load_tests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the mixed workload against both services and compares the report with the stored
+ * baseline. The baseline is written instead when it does not exist yet or when the run is made
+ * with {@code -Dload.update-baseline=true}.
+ */
+class MixedWorkloadIT {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    @Test
+    void mixedWorkload_StaysWithinTheBaseline() throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        LoadReport report;
+        try (LocalEnvironment environment = LocalEnvironment.start(settings, client)) {
+            MixedWorkload workload = new MixedWorkload(client, environment);
+            workload.seed();
+            report = new LoadDriver(client).run(workload.operations(), settings.concurrency(), settings.warmup(), settings.duration());
+        }
+
+        System.out.println(report.toTable());
+        Files.createDirectories(settings.report().getParent());
+        objectMapper.writeValue(settings.report().toFile(), report);
+
+        if (settings.updateBaseline() || !Files.exists(settings.baseline())) {
+            objectMapper.writeValue(settings.baseline().toFile(), report);
+            System.out.println("Baseline written to " + settings.baseline());
+            return;
+        }
+
+        List<String> regressions = report.regressionsAgainst(objectMapper.readValue(settings.baseline().toFile(), LoadReport.class),
+                settings.throughputTolerance(), settings.latencyTolerance());
+        assertTrue(regressions.isEmpty(), "Regressions against " + settings.baseline() + ":\n" + String.join("\n", regressions));
+    }
+}
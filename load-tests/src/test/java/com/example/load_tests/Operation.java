@@ -0,0 +1,11 @@
+package com.example.load_tests;
+
+import java.net.http.HttpRequest;
+import java.util.function.Supplier;
+
+/**
+ * One kind of request of a workload. The name is the endpoint the latencies are reported under
+ * and the weight its share of the requests.
+ */
+record Operation(String name, int weight, Supplier<HttpRequest> request) {
+}